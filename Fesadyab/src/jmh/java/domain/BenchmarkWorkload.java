@@ -0,0 +1,48 @@
+package domain;
+
+import java.util.SplittableRandom;
+
+// Deterministic transaction streams shared by the benchmarks
+class BenchmarkWorkload {
+    private final SplittableRandom random;
+    private final int accountCardinality;
+    private final double duplicateRatio;
+    private final double debitRatio;
+    private int nextTransactionId;
+
+    BenchmarkWorkload(long seed, int accountCardinality, double duplicateRatio, double debitRatio) {
+        this.random = new SplittableRandom(seed);
+        this.accountCardinality = accountCardinality;
+        this.duplicateRatio = duplicateRatio;
+        this.debitRatio = debitRatio;
+    }
+
+    Transaction next() {
+        var txn = new Transaction();
+        if (nextTransactionId > 0 && random.nextDouble() < duplicateRatio) {
+            txn.setTransactionId(random.nextInt(nextTransactionId));
+        } else {
+            txn.setTransactionId(nextTransactionId++);
+        }
+        txn.setAccountId(random.nextInt(accountCardinality));
+        txn.setAmount(1 + random.nextInt(2000));
+        txn.setDebit(random.nextDouble() < debitRatio);
+        return txn;
+    }
+
+    Transaction[] next(int count) {
+        var txns = new Transaction[count];
+        for (var i = 0; i < count; i++) {
+            txns[i] = next();
+        }
+        return txns;
+    }
+
+    TransactionEngine populatedEngine(int historySize) {
+        var engine = new TransactionEngine();
+        for (var i = 0; i < historySize; i++) {
+            engine.addTransactionAndDetectFraud(next());
+        }
+        return engine;
+    }
+}
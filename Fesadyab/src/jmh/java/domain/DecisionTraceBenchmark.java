@@ -0,0 +1,50 @@
+package domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-transaction ingest cost with the decision trace off and on; the difference is the tracing overhead
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = DecisionTraceBenchmark.BATCH)
+@Measurement(iterations = 5, batchSize = DecisionTraceBenchmark.BATCH)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DecisionTraceBenchmark {
+    static final int BATCH = 100_000;
+
+    @Param({"false", "true"})
+    boolean traced;
+
+    private TransactionEngine engine;
+    private Transaction[] incoming;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        var workload = new BenchmarkWorkload(42, 10_000, 0.0, 0.5);
+        engine = workload.populatedEngine(100_000);
+        if (traced) {
+            engine.enableDecisionTrace(1 << 16);
+        }
+        incoming = workload.next(BATCH);
+        next = 0;
+    }
+
+    @Benchmark
+    public int addTransactionAndDetectFraud() {
+        return engine.addTransactionAndDetectFraud(incoming[next++ % BATCH]);
+    }
+}
@@ -0,0 +1,66 @@
+package domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Each measured shot ingests BATCH transactions into an engine pre-filled with historySize transactions,
+// so the reported time divided by BATCH is the per-transaction cost at that history size. The single path
+// takes BATCH invocations per shot; the batch path one invocation, so every shot gets a fresh engine.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = IngestBenchmark.BATCH)
+@Measurement(iterations = 5, batchSize = IngestBenchmark.BATCH)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class IngestBenchmark {
+    static final int BATCH = 10_000;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    int historySize;
+
+    @Param({"100", "100000"})
+    int accountCardinality;
+
+    @Param({"0.0", "0.1"})
+    double duplicateRatio;
+
+    @Param({"0.1", "0.5"})
+    double debitRatio;
+
+    private BenchmarkWorkload workload;
+    private TransactionEngine engine;
+    private Transaction[] incoming;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        workload = new BenchmarkWorkload(42, accountCardinality, duplicateRatio, debitRatio);
+        engine = workload.populatedEngine(historySize);
+        incoming = workload.next(BATCH);
+        next = 0;
+    }
+
+    @Benchmark
+    public int addTransactionAndDetectFraud() {
+        return engine.addTransactionAndDetectFraud(incoming[next++ % BATCH]);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 3, batchSize = 1)
+    @Measurement(iterations = 5, batchSize = 1)
+    public int[] addTransactionsAndDetectFraud() {
+        return engine.addTransactionsAndDetectFraud(incoming);
+    }
+}
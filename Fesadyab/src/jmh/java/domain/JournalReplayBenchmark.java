@@ -0,0 +1,60 @@
+package domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Startup cost: rebuilding a TransactionEngine from a journal of recordCount records
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class JournalReplayBenchmark {
+
+    @Param({"1000000", "50000000"})
+    int recordCount;
+
+    private Path path;
+    private TransactionJournal journal;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        path = Files.createTempFile("fesadyab-journal", ".bin");
+        var workload = new BenchmarkWorkload(42, 100_000, 0.0, 0.5);
+        journal = TransactionJournal.open(path);
+        for (var i = 0; i < recordCount; i++) {
+            var txn = workload.next();
+            journal.append(txn.transactionId, txn.accountId, txn.amount, txn.isDebit);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public TransactionEngine replayIntoEngine() {
+        var engine = new TransactionEngine();
+        journal.replay(engine::appendToHistory);
+        return engine;
+    }
+}
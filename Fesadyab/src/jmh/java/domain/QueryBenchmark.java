@@ -0,0 +1,58 @@
+package domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Read paths on a pre-filled engine. The untracked-threshold variant measures the full history scan
+// that tracked thresholds avoid.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class QueryBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    int historySize;
+
+    @Param({"100", "100000"})
+    int accountCardinality;
+
+    private TransactionEngine engine;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        engine = new BenchmarkWorkload(42, accountCardinality, 0.0, 0.5).populatedEngine(historySize);
+        random = new SplittableRandom(7);
+    }
+
+    @Benchmark
+    public int getAverageTransactionAmountByAccount() {
+        return engine.getAverageTransactionAmountByAccount(random.nextInt(accountCardinality));
+    }
+
+    @Benchmark
+    public int getTransactionPatternAboveThreshold() {
+        return engine.getTransactionPatternAboveThreshold(engine.THRESHOLD);
+    }
+
+    @Benchmark
+    public int getTransactionPatternAboveUntrackedThreshold() {
+        return engine.getTransactionPatternAboveThreshold(engine.THRESHOLD + 1);
+    }
+}
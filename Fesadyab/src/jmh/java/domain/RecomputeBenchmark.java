@@ -0,0 +1,79 @@
+package domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Bulk recomputation of per-account totals over columnar rows: scalar against vector kernel, on one
+// thread and split across the common pool. The vector kernel's lane-private accumulators cost LANES
+// times the memory, so the high-cardinality case shows where cache misses outweigh the SIMD work.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "--add-modules", "jdk.incubator.vector"})
+public class RecomputeBenchmark {
+
+    @Param({"10000000"})
+    int rows;
+
+    @Param({"1000", "1000000"})
+    int accountCardinality;
+
+    @Param({"scalar", "vector"})
+    String kernelName;
+
+    private AccountStatisticsRecompute.Kernel kernel;
+    private int[] accountIds;
+    private int[] amounts;
+    private long[] debitBits;
+    private ForkJoinPool serialPool;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        kernel = AccountStatisticsRecompute.Kernel.valueOf(kernelName.toUpperCase());
+        serialPool = new ForkJoinPool(1);
+        var random = new SplittableRandom(42);
+        accountIds = new int[rows];
+        amounts = new int[rows];
+        debitBits = new long[(rows + 63) >>> 6];
+        for (var row = 0; row < rows; row++) {
+            accountIds[row] = random.nextInt(accountCardinality);
+            amounts[row] = 1 + random.nextInt(2000);
+            if (random.nextBoolean()) {
+                debitBits[row >>> 6] |= 1L << row;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        serialPool.shutdown();
+    }
+
+    @Benchmark
+    public int serial() {
+        return AccountStatisticsRecompute.compute(accountIds, amounts, debitBits, 0, rows, kernel, serialPool).accountCount();
+    }
+
+    @Benchmark
+    public int parallel() {
+        return AccountStatisticsRecompute.compute(accountIds, amounts, debitBits, 0, rows, kernel, ForkJoinPool.commonPool())
+                .accountCount();
+    }
+}
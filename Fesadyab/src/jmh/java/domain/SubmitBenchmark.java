@@ -0,0 +1,81 @@
+package domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Many request threads each scoring one transaction at a time: a TransactionEngine behind one lock versus
+// the MicroBatchingTransactionEngine front-end. SampleTime mode reports the latency percentiles.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SubmitBenchmark {
+    @Param({"64", "256"})
+    int maxBatchSize;
+
+    @Param({"50", "200"})
+    long maxWaitMicros;
+
+    private final AtomicInteger nextTransactionId = new AtomicInteger();
+    private TransactionEngine lockedEngine;
+    private MicroBatchingTransactionEngine batchingEngine;
+
+    @State(Scope.Thread)
+    public static class RequestThread {
+        private BenchmarkWorkload workload;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            workload = new BenchmarkWorkload(Thread.currentThread().getId(), 100_000, 0.0, 0.3);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        lockedEngine = new TransactionEngine();
+        batchingEngine = new MicroBatchingTransactionEngine(new TransactionEngine(), maxBatchSize,
+                TimeUnit.MICROSECONDS.toNanos(maxWaitMicros), 1 << 14);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        batchingEngine.close();
+    }
+
+    private Transaction next(RequestThread request) {
+        var txn = request.workload.next();
+        txn.setTransactionId(nextTransactionId.getAndIncrement());
+        return txn;
+    }
+
+    @Benchmark
+    public int locked(RequestThread request) {
+        var txn = next(request);
+        synchronized (lockedEngine) {
+            return lockedEngine.addTransactionAndDetectFraud(txn);
+        }
+    }
+
+    @Benchmark
+    public int microBatched(RequestThread request) {
+        return batchingEngine.submit(next(request)).join();
+    }
+}
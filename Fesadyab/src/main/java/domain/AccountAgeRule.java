@@ -0,0 +1,26 @@
+package domain;
+
+// Flags debits above maxDebit from accounts with fewer than minTransactions earlier transactions; scores the excess
+public class AccountAgeRule implements FraudRule {
+    private final int minTransactions;
+    private final int maxDebit;
+
+    public AccountAgeRule(int minTransactions, int maxDebit) {
+        this.minTransactions = minTransactions;
+        this.maxDebit = maxDebit;
+    }
+
+    @Override
+    public void declareState(FraudRuleState state) {
+        state.requireAccountAggregates();
+    }
+
+    @Override
+    public int score(ScoringContext context) {
+        if (context.isDebit && context.accountCount < minTransactions && context.amount > maxDebit) {
+            return context.amount - maxDebit;
+        }
+
+        return 0;
+    }
+}
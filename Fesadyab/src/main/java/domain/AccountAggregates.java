@@ -0,0 +1,135 @@
+package domain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+// Running per-account sum and count of transaction amounts, kept in 64-bit accumulators.
+class AccountAggregates {
+    private final IntSlotMap slots;
+    private long[] sums;
+    private long[] counts;
+    // Set while a deferred copy may still read the arrays in place
+    private CopyOnWritePages copyPages;
+
+    AccountAggregates() {
+        this(16);
+    }
+
+    AccountAggregates(int expectedAccounts) {
+        slots = new IntSlotMap(expectedAccounts);
+        sums = new long[Math.max(expectedAccounts, 4)];
+        counts = new long[Math.max(expectedAccounts, 4)];
+    }
+
+    private AccountAggregates(IntSlotMap slots, long[] sums, long[] counts) {
+        this.slots = slots;
+        this.sums = sums;
+        this.counts = counts;
+    }
+
+    AccountAggregates copy() {
+        return new AccountAggregates(slots.copy(), sums.clone(), counts.clone());
+    }
+
+    // Copy as of now, made by whichever thread calls get() while this keeps changing (see CopyOnWritePages)
+    Supplier<AccountAggregates> deferredCopy() {
+        var accountCount = slots.size();
+        var keys = slots.keyArray();
+        var pages = copyPages = new CopyOnWritePages(copyPages, accountCount, sums, counts);
+        return () -> {
+            var columns = pages.copy();
+            var copySums = (long[]) columns[0];
+            var copyCounts = (long[]) columns[1];
+            var copy = new AccountAggregates(accountCount);
+            for (var slot = 0; slot < accountCount; slot++) {
+                copy.addAt(copy.slotFor(keys[slot]), copySums[slot], copyCounts[slot]);
+            }
+            return copy;
+        };
+    }
+
+    // Accounts are written in slot order so reading them back reproduces the same slots
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(slots.size());
+        for (var slot = 0; slot < slots.size(); slot++) {
+            out.writeInt(slots.keyAt(slot));
+            out.writeLong(sums[slot]);
+            out.writeLong(counts[slot]);
+        }
+    }
+
+    static AccountAggregates readFrom(DataInput in) throws IOException {
+        var accountCount = in.readInt();
+        var aggregates = new AccountAggregates(accountCount);
+        for (var i = 0; i < accountCount; i++) {
+            var slot = aggregates.slotFor(in.readInt());
+            aggregates.addAt(slot, in.readLong(), in.readLong());
+        }
+        return aggregates;
+    }
+
+    int accountCount() {
+        return slots.size();
+    }
+
+    void add(int accountId, int amount) {
+        add(accountId, amount, 1);
+    }
+
+    void add(int accountId, long amountSum, long count) {
+        addAt(slotFor(accountId), amountSum, count);
+    }
+
+    // Slot of the account, creating an empty entry if needed; lets a caller read and update with one probe
+    int slotFor(int accountId) {
+        var slot = slots.slotFor(accountId);
+        if (slot == sums.length) {
+            sums = Arrays.copyOf(sums, slot * 2);
+            counts = Arrays.copyOf(counts, slot * 2);
+            copyPages = null;
+        }
+        return slot;
+    }
+
+    int accountIdAt(int slot) {
+        return slots.keyAt(slot);
+    }
+
+    long sumAt(int slot) {
+        return sums[slot];
+    }
+
+    long countAt(int slot) {
+        return counts[slot];
+    }
+
+    void addAt(int slot, long amountSum, long count) {
+        if (copyPages != null) {
+            copyPages.beforeWrite(slot);
+        }
+        sums[slot] += amountSum;
+        counts[slot] += count;
+    }
+
+    long getSum(int accountId) {
+        var slot = slots.slotOf(accountId);
+        return slot < 0 ? 0 : sums[slot];
+    }
+
+    long getCount(int accountId) {
+        var slot = slots.slotOf(accountId);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    int getAverage(int accountId) {
+        var slot = slots.slotOf(accountId);
+        if (slot < 0 || counts[slot] == 0) {
+            return 0;
+        }
+
+        return (int) (sums[slot] / counts[slot]);
+    }
+}
@@ -0,0 +1,45 @@
+package domain;
+
+import lombok.Getter;
+
+// Counters of a bounded account cache (see TransactionEngine.enableAccountSpill), counted on the ingesting
+// thread: every account lookup is a hit or a miss, and a miss for an account found in the spill file is a
+// fault. Fault time covers the whole miss, including writing back the evicted account.
+@Getter
+public class AccountCacheMetrics {
+    private final long hits;
+    private final long misses;
+    private final long faults;
+    private final long evictions;
+    private final long totalFaultNanos;
+    private final long maxFaultNanos;
+    private final int cachedAccounts;
+    private final long spilledAccounts;
+
+    AccountCacheMetrics(long hits, long misses, long faults, long evictions, long totalFaultNanos,
+                        long maxFaultNanos, int cachedAccounts, long spilledAccounts) {
+        this.hits = hits;
+        this.misses = misses;
+        this.faults = faults;
+        this.evictions = evictions;
+        this.totalFaultNanos = totalFaultNanos;
+        this.maxFaultNanos = maxFaultNanos;
+        this.cachedAccounts = cachedAccounts;
+        this.spilledAccounts = spilledAccounts;
+    }
+
+    public double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    public long getAverageFaultNanos() {
+        return faults == 0 ? 0 : totalFaultNanos / faults;
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + hits + " misses=" + misses + " hitRate=" + getHitRate() + " faults=" + faults
+                + " evictions=" + evictions + " avgFaultNanos=" + getAverageFaultNanos() + " maxFaultNanos="
+                + maxFaultNanos + " cached=" + cachedAccounts + " spilled=" + spilledAccounts;
+    }
+}
@@ -0,0 +1,269 @@
+package domain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Per-account streaming quantile sketch of transaction amounts, in the style of a merging t-digest.
+// Each account keeps at most CAPACITY centroids (mean, weight) sorted by mean plus its exact min and
+// max; a new amount is inserted as a weight-1 centroid and a full account is compressed under the
+// arcsine scale function, which keeps centroids small near the tails so high percentiles stay accurate.
+// Memory per account is bounded by CAPACITY and a query scans at most CAPACITY centroids.
+class AccountQuantileSketches {
+    static final int CAPACITY = 64;
+    // Compressing under this scale leaves at most about COMPRESSION + 1 centroids
+    static final double COMPRESSION = 32;
+    private static final int INITIAL_CENTROIDS = 4;
+
+    private final IntSlotMap slots;
+    private double[][] means;
+    private int[][] weights;
+    private int[] sizes;
+    private long[] totals;
+    private int[] mins;
+    private int[] maxes;
+
+    AccountQuantileSketches() {
+        slots = new IntSlotMap();
+        means = new double[16][];
+        weights = new int[16][];
+        sizes = new int[16];
+        totals = new long[16];
+        mins = new int[16];
+        maxes = new int[16];
+    }
+
+    AccountQuantileSketches copy() {
+        var copy = new AccountQuantileSketches();
+        for (var slot = 0; slot < slots.size(); slot++) {
+            copy.restore(slots.keyAt(slot), Arrays.copyOf(means[slot], sizes[slot]), Arrays.copyOf(weights[slot], sizes[slot]),
+                    totals[slot], mins[slot], maxes[slot]);
+        }
+        return copy;
+    }
+
+    // Accounts are written in slot order, each as its total, min, max and centroids
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(slots.size());
+        for (var slot = 0; slot < slots.size(); slot++) {
+            out.writeInt(slots.keyAt(slot));
+            out.writeLong(totals[slot]);
+            out.writeInt(mins[slot]);
+            out.writeInt(maxes[slot]);
+            out.writeInt(sizes[slot]);
+            for (var i = 0; i < sizes[slot]; i++) {
+                out.writeDouble(means[slot][i]);
+                out.writeInt(weights[slot][i]);
+            }
+        }
+    }
+
+    static AccountQuantileSketches readFrom(DataInput in) throws IOException {
+        var sketches = new AccountQuantileSketches();
+        var accountCount = in.readInt();
+        for (var account = 0; account < accountCount; account++) {
+            var accountId = in.readInt();
+            var total = in.readLong();
+            var min = in.readInt();
+            var max = in.readInt();
+            var size = in.readInt();
+            if (size <= 0 || size > CAPACITY) {
+                throw new IOException("quantile sketch has " + size + " centroids");
+            }
+            var accountMeans = new double[size];
+            var accountWeights = new int[size];
+            for (var i = 0; i < size; i++) {
+                accountMeans[i] = in.readDouble();
+                accountWeights[i] = in.readInt();
+            }
+            sketches.restore(accountId, accountMeans, accountWeights, total, min, max);
+        }
+        return sketches;
+    }
+
+    int accountCount() {
+        return slots.size();
+    }
+
+    void add(int accountId, int amount) {
+        var slot = slotFor(accountId);
+        var size = sizes[slot];
+        if (size == means[slot].length) {
+            if (size < CAPACITY) {
+                means[slot] = Arrays.copyOf(means[slot], Math.min(size * 2, CAPACITY));
+                weights[slot] = Arrays.copyOf(weights[slot], Math.min(size * 2, CAPACITY));
+            } else {
+                size = compress(slot);
+            }
+        }
+
+        var accountMeans = means[slot];
+        var accountWeights = weights[slot];
+        var index = insertionPoint(accountMeans, size, amount);
+        System.arraycopy(accountMeans, index, accountMeans, index + 1, size - index);
+        System.arraycopy(accountWeights, index, accountWeights, index + 1, size - index);
+        accountMeans[index] = amount;
+        accountWeights[index] = 1;
+        sizes[slot] = size + 1;
+        if (totals[slot]++ == 0) {
+            mins[slot] = amount;
+            maxes[slot] = amount;
+        } else {
+            mins[slot] = Math.min(mins[slot], amount);
+            maxes[slot] = Math.max(maxes[slot], amount);
+        }
+    }
+
+    long getCount(int accountId) {
+        var slot = slots.slotOf(accountId);
+        return slot < 0 ? 0 : totals[slot];
+    }
+
+    int centroidCount(int accountId) {
+        var slot = slots.slotOf(accountId);
+        return slot < 0 ? 0 : sizes[slot];
+    }
+
+    // Estimated amount below which a fraction q of the account's amounts fall; 0 for an unknown account.
+    // Interpolates between centroid centres, and towards the exact min and max beyond the outer ones.
+    // Walks in from the nearer end, so a high percentile only touches the last few centroids.
+    int getQuantile(int accountId, double q) {
+        var slot = slots.slotOf(accountId);
+        if (slot < 0) {
+            return 0;
+        }
+        q = Math.min(Math.max(q, 0), 1);
+        if (q > 0.5) {
+            return round(walkFromTop(slot, (1 - q) * totals[slot]));
+        }
+        var accountMeans = means[slot];
+        var accountWeights = weights[slot];
+        var last = sizes[slot] - 1;
+        var rank = q * totals[slot];
+
+        var center = accountWeights[0] / 2.0;
+        if (rank < center) {
+            return round(mins[slot] + (accountMeans[0] - mins[slot]) * rank / center);
+        }
+        for (var i = 0; i < last; i++) {
+            var gap = (accountWeights[i] + accountWeights[i + 1]) / 2.0;
+            if (rank < center + gap) {
+                return round(accountMeans[i] + (accountMeans[i + 1] - accountMeans[i]) * (rank - center) / gap);
+            }
+            center += gap;
+        }
+        var tail = accountWeights[last] / 2.0;
+        return round(accountMeans[last] + (maxes[slot] - accountMeans[last]) * Math.min((rank - center) / tail, 1));
+    }
+
+    // Mirror image of the walk above, with the rank counted down from the largest amount
+    private double walkFromTop(int slot, double rank) {
+        var accountMeans = means[slot];
+        var accountWeights = weights[slot];
+        var last = sizes[slot] - 1;
+
+        var center = accountWeights[last] / 2.0;
+        if (rank < center) {
+            return maxes[slot] - (maxes[slot] - accountMeans[last]) * rank / center;
+        }
+        for (var i = last; i > 0; i--) {
+            var gap = (accountWeights[i] + accountWeights[i - 1]) / 2.0;
+            if (rank < center + gap) {
+                return accountMeans[i] - (accountMeans[i] - accountMeans[i - 1]) * (rank - center) / gap;
+            }
+            center += gap;
+        }
+        var head = accountWeights[0] / 2.0;
+        return accountMeans[0] - (accountMeans[0] - mins[slot]) * Math.min((rank - center) / head, 1);
+    }
+
+    // Centroid arrays are sized exactly; the next add grows or compresses them as usual
+    private void restore(int accountId, double[] accountMeans, int[] accountWeights, long total, int min, int max) {
+        var slot = slotFor(accountId);
+        means[slot] = accountMeans;
+        weights[slot] = accountWeights;
+        sizes[slot] = accountMeans.length;
+        totals[slot] = total;
+        mins[slot] = min;
+        maxes[slot] = max;
+    }
+
+    private int slotFor(int accountId) {
+        var slot = slots.slotFor(accountId);
+        if (slot == sizes.length) {
+            means = Arrays.copyOf(means, slot * 2);
+            weights = Arrays.copyOf(weights, slot * 2);
+            sizes = Arrays.copyOf(sizes, slot * 2);
+            totals = Arrays.copyOf(totals, slot * 2);
+            mins = Arrays.copyOf(mins, slot * 2);
+            maxes = Arrays.copyOf(maxes, slot * 2);
+        }
+        if (means[slot] == null) {
+            means[slot] = new double[INITIAL_CENTROIDS];
+            weights[slot] = new int[INITIAL_CENTROIDS];
+        }
+        return slot;
+    }
+
+    // First index whose mean is greater than amount, so equal amounts keep arrival order
+    private static int insertionPoint(double[] means, int size, int amount) {
+        var low = 0;
+        var high = size;
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if (means[middle] <= amount) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Merges neighbouring centroids in one pass while the merged centroid spans at most one unit of the
+    // scale function; the means stay sorted because a merged mean lies between its parts
+    private int compress(int slot) {
+        var accountMeans = means[slot];
+        var accountWeights = weights[slot];
+        var size = sizes[slot];
+        double total = 0;
+        for (var i = 0; i < size; i++) {
+            total += accountWeights[i];
+        }
+
+        var out = 0;
+        double emitted = 0;
+        var limit = total * inverseScale(scale(0) + 1);
+        for (var i = 1; i < size; i++) {
+            var merged = accountWeights[out] + accountWeights[i];
+            if (emitted + merged <= limit) {
+                accountMeans[out] += (accountMeans[i] - accountMeans[out]) * accountWeights[i] / merged;
+                accountWeights[out] = merged;
+            } else {
+                emitted += accountWeights[out];
+                limit = total * inverseScale(scale(emitted / total) + 1);
+                out++;
+                accountMeans[out] = accountMeans[i];
+                accountWeights[out] = accountWeights[i];
+            }
+        }
+        sizes[slot] = out + 1;
+        return out + 1;
+    }
+
+    private static double scale(double q) {
+        return COMPRESSION / (2 * Math.PI) * Math.asin(2 * q - 1);
+    }
+
+    private static double inverseScale(double k) {
+        if (k >= COMPRESSION / 4) {
+            return 1;
+        }
+        return (Math.sin(k * 2 * Math.PI / COMPRESSION) + 1) / 2;
+    }
+
+    private static int round(double value) {
+        return (int) Math.round(value);
+    }
+}
@@ -0,0 +1,173 @@
+package domain;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Open-addressing hash table of per-account sum and count in a memory-mapped temporary file, holding the
+// aggregates of accounts evicted from memory. Records are 24 bytes (accountId, flags, sum, count) and are
+// probed linearly from IntSlotMap.mix(accountId); the table doubles into a new file at half load. Entries
+// are only ever inserted or overwritten. The file is deleted on close (on Unix already once it is opened,
+// so a crash leaves nothing behind).
+class AccountSpillFile implements AutoCloseable {
+    static final int RECORD_BYTES = 24;
+    static final int SEGMENT_SHIFT = 20;
+    static final long INITIAL_CAPACITY = 1 << 16;
+    private static final int USED = 1;
+
+    private final Path directory;
+    private FileChannel channel;
+    private MappedByteBuffer[] segments;
+    private long capacity;
+    private long size;
+
+    AccountSpillFile(Path directory) {
+        this(directory, INITIAL_CAPACITY);
+    }
+
+    AccountSpillFile(Path directory, long initialCapacity) {
+        this.directory = directory;
+        var capacity = 16L;
+        while (capacity < initialCapacity) {
+            capacity <<= 1;
+        }
+        map(capacity);
+    }
+
+    // Sized so expectedAccounts records fit without the table doubling
+    static AccountSpillFile forAccounts(Path directory, long expectedAccounts) {
+        return new AccountSpillFile(directory, Math.max(INITIAL_CAPACITY, 2 * (expectedAccounts + 1)));
+    }
+
+    // Copy of the table in a file of its own, copied mapping to mapping without passing through the heap
+    AccountSpillFile copy() {
+        var copy = new AccountSpillFile(directory, capacity);
+        for (var i = 0; i < segments.length; i++) {
+            copy.segments[i].put(0, segments[i], 0, segments[i].capacity());
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    long size() {
+        return size;
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    // Record index holding the account, -1 when it was never spilled; safe to call from reader threads
+    long find(int accountId) {
+        var mask = capacity - 1;
+        for (long record = IntSlotMap.mix(accountId) & mask, probes = 0; probes < capacity; record = (record + 1) & mask, probes++) {
+            var segment = segments[(int) (record >>> SEGMENT_SHIFT)];
+            var offset = offsetOf(record);
+            if ((segment.getInt(offset + 4) & USED) == 0) {
+                return -1;
+            }
+            if (segment.getInt(offset) == accountId) {
+                return record;
+            }
+        }
+        return -1;
+    }
+
+    long sumAt(long record) {
+        return segments[(int) (record >>> SEGMENT_SHIFT)].getLong(offsetOf(record) + 8);
+    }
+
+    long countAt(long record) {
+        return segments[(int) (record >>> SEGMENT_SHIFT)].getLong(offsetOf(record) + 16);
+    }
+
+    int accountIdAt(long record) {
+        return segments[(int) (record >>> SEGMENT_SHIFT)].getInt(offsetOf(record));
+    }
+
+    boolean isUsed(long record) {
+        return (segments[(int) (record >>> SEGMENT_SHIFT)].getInt(offsetOf(record) + 4) & USED) != 0;
+    }
+
+    void put(int accountId, long sum, long count) {
+        if ((size + 1) * 2 > capacity) {
+            grow();
+        }
+        var mask = capacity - 1;
+        var record = IntSlotMap.mix(accountId) & mask;
+        while (isUsed(record) && accountIdAt(record) != accountId) {
+            record = (record + 1) & mask;
+        }
+        var segment = segments[(int) (record >>> SEGMENT_SHIFT)];
+        var offset = offsetOf(record);
+        if (!isUsed(record)) {
+            segment.putInt(offset, accountId);
+            segment.putInt(offset + 4, USED);
+            size++;
+        }
+        segment.putLong(offset + 8, sum);
+        segment.putLong(offset + 16, count);
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Rehashes into a new file twice the size; readers holding the old mapping keep a valid view of it
+    private void grow() {
+        var oldSegments = segments;
+        var oldChannel = channel;
+        var oldCapacity = capacity;
+        map(capacity * 2);
+        size = 0;
+        for (var record = 0L; record < oldCapacity; record++) {
+            var segment = oldSegments[(int) (record >>> SEGMENT_SHIFT)];
+            var offset = offsetOf(record);
+            if ((segment.getInt(offset + 4) & USED) != 0) {
+                put(segment.getInt(offset), segment.getLong(offset + 8), segment.getLong(offset + 16));
+            }
+        }
+        try {
+            oldChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void map(long capacity) {
+        try {
+            var file = Files.createTempFile(directory, "fesadyab-accounts", ".spill");
+            var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            var segmentRecords = Math.min(capacity, 1L << SEGMENT_SHIFT);
+            var segments = new MappedByteBuffer[(int) (capacity / segmentRecords)];
+            try {
+                for (var i = 0; i < segments.length; i++) {
+                    segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * segmentRecords * RECORD_BYTES,
+                            segmentRecords * RECORD_BYTES);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            this.channel = channel;
+            this.segments = segments;
+            this.capacity = capacity;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int offsetOf(long record) {
+        return (int) (record & ((1 << SEGMENT_SHIFT) - 1)) * RECORD_BYTES;
+    }
+}
@@ -0,0 +1,28 @@
+package domain;
+
+import lombok.Getter;
+
+// Consistent view of one account and the engine-wide statistics at a single engine version
+@Getter
+public class AccountStatistics {
+    // Counts completed engine write sections; equal versions mean nothing changed in between
+    private final long version;
+    private final int accountId;
+    private final long transactionCount;
+    private final long amountSum;
+    private final int historySize;
+    private final int patternAboveThreshold;
+
+    AccountStatistics(long version, int accountId, long transactionCount, long amountSum, int historySize, int patternAboveThreshold) {
+        this.version = version;
+        this.accountId = accountId;
+        this.transactionCount = transactionCount;
+        this.amountSum = amountSum;
+        this.historySize = historySize;
+        this.patternAboveThreshold = patternAboveThreshold;
+    }
+
+    public int getAverageAmount() {
+        return transactionCount == 0 ? 0 : (int) (amountSum / transactionCount);
+    }
+}
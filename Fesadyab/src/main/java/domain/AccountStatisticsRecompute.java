@@ -0,0 +1,109 @@
+package domain;
+
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Bulk recomputation of per-account totals over columnar transaction data, for when the aggregates must
+// be rebuilt rather than maintained (a new history is loaded, the averaging window changes). Inputs of
+// at least PARALLEL_ROWS rows are split into 64-row aligned ranges on a ForkJoin pool; each range runs
+// the kernel into its own AccountTotals and the results are merged pairwise.
+// The kernel is chosen per call, by default from -Dfesadyab.recompute.kernel=scalar|vector (scalar when
+// unset); the vector kernel needs the JVM started with --add-modules jdk.incubator.vector and falls back
+// to the scalar one when it is missing. resolveKernel tells which of the two a call would run.
+final class AccountStatisticsRecompute {
+    static final int PARALLEL_ROWS = 1 << 18;
+    static final String KERNEL_PROPERTY = "fesadyab.recompute.kernel";
+
+    enum Kernel {
+        SCALAR,
+        VECTOR
+    }
+
+    private AccountStatisticsRecompute() {
+    }
+
+    static boolean isVectorAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+                && VectorAccountTotalsKernel.isSupported();
+    }
+
+    static Kernel defaultKernel() {
+        var property = System.getProperty(KERNEL_PROPERTY);
+        if (property != null) {
+            return Kernel.valueOf(property.toUpperCase(Locale.ROOT));
+        }
+        return Kernel.SCALAR;
+    }
+
+    static AccountTotals compute(ColumnarTransactionHistory history, Kernel kernel, ForkJoinPool pool) {
+        var from = history.columnOffset();
+        return compute(history.accountIdColumn(), history.amountColumn(), history.debitBitColumn(), from,
+                from + history.size(), kernel, pool);
+    }
+
+    static AccountTotals compute(int[] accountIds, int[] amounts, long[] debitBits, int from, int to,
+                                 Kernel kernel, ForkJoinPool pool) {
+        var implementation = kernelFor(kernel);
+        if (to - from < PARALLEL_ROWS) {
+            var totals = new AccountTotals();
+            implementation.accumulate(accountIds, amounts, debitBits, from, to, totals);
+            return totals;
+        }
+        // A few ranges per worker so an unlucky range does not hold up the whole pool
+        var leafRows = Math.max(PARALLEL_ROWS / 4, (to - from) / (4 * pool.getParallelism()));
+        return pool.invoke(new RangeTask(implementation, accountIds, amounts, debitBits, from, to, leafRows));
+    }
+
+    // The kernel a compute call asked for kernel actually runs
+    static Kernel resolveKernel(Kernel kernel) {
+        return kernel == Kernel.VECTOR && isVectorAvailable() ? Kernel.VECTOR : Kernel.SCALAR;
+    }
+
+    static AccountTotalsKernel kernelFor(Kernel kernel) {
+        return resolveKernel(kernel) == Kernel.VECTOR ? new VectorAccountTotalsKernel() : new ScalarAccountTotalsKernel();
+    }
+
+    private static class RangeTask extends RecursiveTask<AccountTotals> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient AccountTotalsKernel kernel;
+        private final int[] accountIds;
+        private final int[] amounts;
+        private final long[] debitBits;
+        private final int from;
+        private final int to;
+        private final int leafRows;
+
+        RangeTask(AccountTotalsKernel kernel, int[] accountIds, int[] amounts, long[] debitBits, int from, int to,
+                  int leafRows) {
+            this.kernel = kernel;
+            this.accountIds = accountIds;
+            this.amounts = amounts;
+            this.debitBits = debitBits;
+            this.from = from;
+            this.to = to;
+            this.leafRows = leafRows;
+        }
+
+        @Override
+        protected AccountTotals compute() {
+            var middle = (from + (to - from) / 2) & ~63;
+            if (to - from <= leafRows || middle <= from) {
+                var totals = new AccountTotals();
+                kernel.accumulate(accountIds, amounts, debitBits, from, to, totals);
+                return totals;
+            }
+            var right = new RangeTask(kernel, accountIds, amounts, debitBits, middle, to, leafRows);
+            right.fork();
+            var left = new RangeTask(kernel, accountIds, amounts, debitBits, from, middle, leafRows).compute();
+            var rightTotals = right.join();
+            if (left.accountCount() < rightTotals.accountCount()) {
+                rightTotals.addAll(left);
+                return rightTotals;
+            }
+            left.addAll(rightTotals);
+            return left;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package domain;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Per-account sum, count and debit-only sum of amounts, as produced by a bulk recomputation
+class AccountTotals {
+    private final IntSlotMap slots;
+    private long[] sums;
+    private long[] counts;
+    private long[] debitSums;
+
+    AccountTotals() {
+        this(16);
+    }
+
+    AccountTotals(int expectedAccounts) {
+        slots = new IntSlotMap(expectedAccounts);
+        sums = new long[Math.max(expectedAccounts, 4)];
+        counts = new long[Math.max(expectedAccounts, 4)];
+        debitSums = new long[Math.max(expectedAccounts, 4)];
+    }
+
+    int accountCount() {
+        return slots.size();
+    }
+
+    int accountIdAt(int slot) {
+        return slots.keyAt(slot);
+    }
+
+    int slotFor(int accountId) {
+        var slot = slots.slotFor(accountId);
+        if (slot == sums.length) {
+            sums = Arrays.copyOf(sums, slot * 2);
+            counts = Arrays.copyOf(counts, slot * 2);
+            debitSums = Arrays.copyOf(debitSums, slot * 2);
+        }
+        return slot;
+    }
+
+    void addAt(int slot, long amountSum, long count, long debitSum) {
+        sums[slot] += amountSum;
+        counts[slot] += count;
+        debitSums[slot] += debitSum;
+    }
+
+    long sumAt(int slot) {
+        return sums[slot];
+    }
+
+    long countAt(int slot) {
+        return counts[slot];
+    }
+
+    long debitSumAt(int slot) {
+        return debitSums[slot];
+    }
+
+    long getSum(int accountId) {
+        var slot = slots.slotOf(accountId);
+        return slot < 0 ? 0 : sums[slot];
+    }
+
+    long getCount(int accountId) {
+        var slot = slots.slotOf(accountId);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    long getDebitSum(int accountId) {
+        var slot = slots.slotOf(accountId);
+        return slot < 0 ? 0 : debitSums[slot];
+    }
+
+    void addAll(AccountTotals other) {
+        for (var slot = 0; slot < other.accountCount(); slot++) {
+            addAt(slotFor(other.accountIdAt(slot)), other.sums[slot], other.counts[slot], other.debitSums[slot]);
+        }
+    }
+
+    AccountAggregates toAggregates() {
+        var aggregates = new AccountAggregates(accountCount());
+        for (var slot = 0; slot < accountCount(); slot++) {
+            aggregates.addAt(aggregates.slotFor(accountIdAt(slot)), sums[slot], counts[slot]);
+        }
+        return aggregates;
+    }
+
+    // Same accounts written straight to a new spill file, so no in-memory copy of every account is built
+    SpillingAccountAggregates toSpillingAggregates(int maxCachedAccounts, Path directory) {
+        var aggregates = new SpillingAccountAggregates(maxCachedAccounts, directory, accountCount());
+        for (var slot = 0; slot < accountCount(); slot++) {
+            aggregates.putSpilled(accountIdAt(slot), sums[slot], counts[slot]);
+        }
+        return aggregates;
+    }
+}
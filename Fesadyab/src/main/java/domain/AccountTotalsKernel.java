@@ -0,0 +1,7 @@
+package domain;
+
+// Adds the rows from..to-1 of columnar transaction data to totals. The debit flag of row r is bit r of
+// debitBits, as in ColumnarTransactionHistory.
+interface AccountTotalsKernel {
+    void accumulate(int[] accountIds, int[] amounts, long[] debitBits, int from, int to, AccountTotals totals);
+}
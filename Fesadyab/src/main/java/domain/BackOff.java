@@ -0,0 +1,25 @@
+package domain;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Wait policy for the lock-free loops: spin briefly, then yield, then park so an idle or blocked thread
+// does not burn a core
+final class BackOff {
+    static final long PARK_NANOS = 50_000;
+
+    private BackOff() {
+    }
+
+    // Waits once and returns the spin count to pass next time; 0 starts over
+    static int pause(int spins) {
+        if (spins < 100) {
+            Thread.onSpinWait();
+        } else if (spins < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+            return spins;
+        }
+        return spins + 1;
+    }
+}
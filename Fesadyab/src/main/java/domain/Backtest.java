@@ -0,0 +1,95 @@
+package domain;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Replays one recorded transaction stream through many engine configurations in parallel. The input is
+// read once into a shared read-only packed array; every configuration runs its own engine over it on a
+// ForkJoin pool, feeding it batches through PackedTransactionView slices without copying.
+public class Backtest {
+    private static final int BATCH = 4096;
+
+    private final long[] packed;
+
+    private Backtest(int size) {
+        packed = new long[2 * size];
+    }
+
+    public static Backtest fromJournal(Path path) throws IOException {
+        try (var journal = TransactionJournal.open(path)) {
+            if (journal.size() > Integer.MAX_VALUE / 2) {
+                throw new IllegalArgumentException("journal has more records than a backtest can hold");
+            }
+            var backtest = new Backtest((int) journal.size());
+            var next = new int[1];
+            journal.replay((transactionId, accountId, amount, isDebit) -> {
+                backtest.packed[next[0]++] = Transaction.packIdAndAccount(transactionId, accountId);
+                backtest.packed[next[0]++] = Transaction.packAmountAndDebit(amount, isDebit);
+            });
+            return backtest;
+        }
+    }
+
+    public static Backtest of(List<Transaction> txns) {
+        var backtest = new Backtest(txns.size());
+        for (var i = 0; i < txns.size(); i++) {
+            backtest.packed[2 * i] = txns.get(i).packIdAndAccount();
+            backtest.packed[2 * i + 1] = txns.get(i).packAmountAndDebit();
+        }
+        return backtest;
+    }
+
+    public int size() {
+        return packed.length / 2;
+    }
+
+    public List<BacktestResult> run(List<BacktestConfig> configs) {
+        return run(configs, ForkJoinPool.commonPool());
+    }
+
+    // Results are in the order of configs
+    public List<BacktestResult> run(List<BacktestConfig> configs, ForkJoinPool pool) {
+        var tasks = new ArrayList<ForkJoinTask<BacktestResult>>();
+        for (var config : configs) {
+            tasks.add(pool.submit(() -> evaluate(config)));
+        }
+        var results = new ArrayList<BacktestResult>();
+        for (var task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    BacktestResult evaluate(BacktestConfig config) {
+        var engine = new TransactionEngine();
+        engine.setRules(config.rules());
+        var result = new BacktestResult(config);
+        for (var start = 0; start < size(); start += BATCH) {
+            var batch = new PackedTransactionView(packed, start, Math.min(BATCH, size() - start));
+            result.record(engine.addTransactionsAndDetectFraud(batch));
+        }
+        return result;
+    }
+
+    // Backtest <journal> <threshold,...> <debitMultiplier,...>: prints one result line per combination
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("usage: Backtest <journal> <threshold,...> <debitMultiplier,...>");
+            System.exit(2);
+        }
+        var backtest = fromJournal(Path.of(args[0]));
+        var configs = new ArrayList<BacktestConfig>();
+        for (var threshold : args[1].split(",")) {
+            for (var multiplier : args[2].split(",")) {
+                configs.add(new BacktestConfig(Integer.parseInt(threshold.trim()), Integer.parseInt(multiplier.trim())));
+            }
+        }
+        for (var result : backtest.run(configs)) {
+            System.out.println(result);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package domain;
+
+import lombok.Getter;
+
+import java.util.List;
+
+// One engine configuration evaluated by a Backtest
+@Getter
+public class BacktestConfig {
+    private final int threshold;
+    private final int debitMultiplier;
+
+    public BacktestConfig(int threshold, int debitMultiplier) {
+        this.threshold = threshold;
+        this.debitMultiplier = debitMultiplier;
+    }
+
+    List<FraudRule> rules() {
+        return List.of(new ExcessiveDebitRule(debitMultiplier), new ThresholdPatternRule(threshold));
+    }
+
+    @Override
+    public String toString() {
+        return "threshold=" + threshold + " debitMultiplier=" + debitMultiplier;
+    }
+}
@@ -0,0 +1,65 @@
+package domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+// Score statistics of one configuration over a backtest's input. Bucket b of a score histogram counts the
+// scores whose magnitude lies in [2^(b-1), 2^b); bucket 0 is unused because a zero score is not flagged.
+// minScore and maxScore range over all scores, unflagged zeros included.
+@Getter
+public class BacktestResult {
+    private final BacktestConfig config;
+    private long transactionCount;
+    private long flaggedCount;
+    private long scoreSum;
+    private int minScore;
+    private int maxScore;
+    @Getter(AccessLevel.NONE)
+    private final long[] positiveScoreBuckets = new long[33];
+    @Getter(AccessLevel.NONE)
+    private final long[] negativeScoreBuckets = new long[33];
+
+    BacktestResult(BacktestConfig config) {
+        this.config = config;
+    }
+
+    void record(int[] scores) {
+        if (transactionCount == 0 && scores.length > 0) {
+            minScore = scores[0];
+            maxScore = scores[0];
+        }
+        transactionCount += scores.length;
+        for (var score : scores) {
+            minScore = Math.min(minScore, score);
+            maxScore = Math.max(maxScore, score);
+            if (score == 0) {
+                continue;
+            }
+            flaggedCount++;
+            scoreSum += score;
+            if (score > 0) {
+                positiveScoreBuckets[32 - Integer.numberOfLeadingZeros(score)]++;
+            } else {
+                negativeScoreBuckets[64 - Long.numberOfLeadingZeros(-(long) score)]++;
+            }
+        }
+    }
+
+    public long[] getPositiveScoreBuckets() {
+        return positiveScoreBuckets.clone();
+    }
+
+    public long[] getNegativeScoreBuckets() {
+        return negativeScoreBuckets.clone();
+    }
+
+    public double getFlaggedRatio() {
+        return transactionCount == 0 ? 0 : (double) flaggedCount / transactionCount;
+    }
+
+    @Override
+    public String toString() {
+        return config + " transactions=" + transactionCount + " flagged=" + flaggedCount
+                + " scoreSum=" + scoreSum + " minScore=" + minScore + " maxScore=" + maxScore;
+    }
+}
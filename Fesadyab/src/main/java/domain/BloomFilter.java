@@ -0,0 +1,118 @@
+package domain;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bloom filter over int transaction ids, sized from the expected id count and the target false-positive
+// rate: m = -n ln p / (ln 2)^2 bits and k = m / n ln 2 hash functions, derived from one 64-bit mix by
+// double hashing. The counters let operators see when the filter has outgrown its sizing; only the
+// ingesting thread changes them, with opaque stores, so any thread may read them while it runs.
+public class BloomFilter {
+    private final long[] words;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong setBits = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong negatives = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    BloomFilter(long expectedIds, double falsePositiveRate) {
+        if (expectedIds <= 0 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("expectedIds must be positive and falsePositiveRate in (0, 1)");
+        }
+        var bits = Math.ceil(-expectedIds * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        words = new long[(int) Math.min((long) Integer.MAX_VALUE >>> 6, ((long) bits + 63) >>> 6)];
+        bitCount = (long) words.length << 6;
+        hashCount = (int) Math.max(1, Math.min(16, Math.round((double) bitCount / expectedIds * Math.log(2))));
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public double getFillRatio() {
+        return (double) setBits.getOpaque() / bitCount;
+    }
+
+    // False-positive rate implied by the current fill ratio
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(getFillRatio(), hashCount);
+    }
+
+    public long getQueryCount() {
+        return queries.getOpaque();
+    }
+
+    // Queries the filter answered alone: the id was certainly new
+    public long getNegativeCount() {
+        return negatives.getOpaque();
+    }
+
+    // Queries the filter passed on that the exact index then found absent
+    public long getFalsePositiveCount() {
+        return falsePositives.getOpaque();
+    }
+
+    int wordCount() {
+        return words.length;
+    }
+
+    void add(int transactionId) {
+        var hash = hash(transactionId);
+        var h1 = (int) hash;
+        var h2 = (int) (hash >>> 32) | 1;
+        for (var i = 0; i < hashCount; i++) {
+            var bit = index(h1 + i * h2);
+            var mask = 1L << bit;
+            if ((words[(int) (bit >>> 6)] & mask) == 0) {
+                words[(int) (bit >>> 6)] |= mask;
+                increment(setBits);
+            }
+        }
+    }
+
+    boolean mightContain(int transactionId) {
+        increment(queries);
+        var hash = hash(transactionId);
+        var h1 = (int) hash;
+        var h2 = (int) (hash >>> 32) | 1;
+        for (var i = 0; i < hashCount; i++) {
+            var bit = index(h1 + i * h2);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                increment(negatives);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void recordFalsePositive() {
+        increment(falsePositives);
+    }
+
+    // Drops every id but keeps the counters; the owner re-adds the live ids
+    void clear() {
+        Arrays.fill(words, 0);
+        setBits.setOpaque(0);
+    }
+
+    // Single writer, so no atomic read-modify-write is needed
+    private static void increment(AtomicLong counter) {
+        counter.setOpaque(counter.getPlain() + 1);
+    }
+
+    private long index(int combinedHash) {
+        return ((combinedHash & 0xFFFFFFFFL) * bitCount) >>> 32;
+    }
+
+    private static long hash(int transactionId) {
+        var h = transactionId * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 32);
+    }
+}
@@ -0,0 +1,159 @@
+package domain;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+
+// Wire format shared by FraudClusterClient, FraudClusterRouter and FraudClusterNode. Every request is an
+// op byte and its payload; every response is a status byte, then the payload or an error message.
+// Transactions travel in the packed two-long form. Addresses are "host:port" or "unix:/path/to/socket".
+final class ClusterProtocol {
+    // Accounts are hashed into a fixed number of partitions; rebalancing moves whole partitions
+    static final int PARTITIONS = 1024;
+
+    // count, count packed transactions -> count scores; the node stages the batch without applying it
+    static final byte SCORE = 1;
+    // partition -> a copy of the partition's AccountAggregates
+    static final byte EXPORT = 2;
+    // partition, AccountAggregates -> nothing
+    static final byte IMPORT = 3;
+    // partition -> nothing; the node forgets the partition
+    static final byte DROP = 4;
+    // node address -> nothing; router only
+    static final byte ADD_NODE = 5;
+    // nothing -> nothing; the node applies its staged batch, if any, so a repeated APPLY is harmless
+    static final byte APPLY = 6;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    private static final String UNIX_PREFIX = "unix:";
+
+    private ClusterProtocol() {
+    }
+
+    static int partitionOf(int accountId) {
+        return IntSlotMap.mix(accountId) & (PARTITIONS - 1);
+    }
+
+    static SocketAddress parseAddress(String address) {
+        if (address.startsWith(UNIX_PREFIX)) {
+            return UnixDomainSocketAddress.of(address.substring(UNIX_PREFIX.length()));
+        }
+        var colon = address.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("address must be host:port or unix:/path, got " + address);
+        }
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    static String formatAddress(SocketAddress address) {
+        if (address instanceof UnixDomainSocketAddress unix) {
+            return UNIX_PREFIX + unix.getPath();
+        }
+        var inet = (InetSocketAddress) address;
+        return inet.getHostString() + ":" + inet.getPort();
+    }
+
+    // A stale socket file from an earlier run is replaced; port 0 picks a free port
+    static ServerSocketChannel listen(String address) throws IOException {
+        var socketAddress = parseAddress(address);
+        if (socketAddress instanceof UnixDomainSocketAddress unix) {
+            Files.deleteIfExists(unix.getPath());
+            return ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(unix);
+        }
+        return ServerSocketChannel.open().bind(socketAddress);
+    }
+
+    // Removes the socket file of a Unix address the server was bound to
+    static void unlink(String address) {
+        try {
+            if (parseAddress(address) instanceof UnixDomainSocketAddress unix) {
+                Files.deleteIfExists(unix.getPath());
+            }
+        } catch (IOException ignored) {
+            // Best effort; listen() replaces a stale socket file anyway
+        }
+    }
+
+    static Connection connect(String address) throws IOException {
+        var socketAddress = parseAddress(address);
+        var channel = socketAddress instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                : SocketChannel.open();
+        try {
+            channel.connect(socketAddress);
+            if (!(socketAddress instanceof UnixDomainSocketAddress)) {
+                channel.socket().setTcpNoDelay(true);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new Connection(channel);
+    }
+
+    static void writeTransactions(DataOutputStream out, PackedTransactionView txns, int[] indexes, int count) throws IOException {
+        out.writeInt(count);
+        for (var i = 0; i < count; i++) {
+            var index = indexes != null ? indexes[i] : i;
+            out.writeLong(Transaction.packIdAndAccount(txns.transactionIdAt(index), txns.accountIdAt(index)));
+            out.writeLong(Transaction.packAmountAndDebit(txns.amountAt(index), txns.isDebitAt(index)));
+        }
+    }
+
+    static PackedTransactionView readTransactions(DataInputStream in) throws IOException {
+        var count = in.readInt();
+        if (count < 0 || count > Integer.MAX_VALUE / 2) {
+            // The payload cannot be skipped without a valid count, so the connection is closed
+            throw new ProtocolException("bad transaction count " + count);
+        }
+        var packed = new long[2 * count];
+        for (var i = 0; i < packed.length; i++) {
+            packed[i] = in.readLong();
+        }
+        return new PackedTransactionView(packed);
+    }
+
+    // Throws the peer's error message when the response is not OK
+    static void readStatus(DataInputStream in) throws IOException {
+        if (in.readByte() != OK) {
+            throw new IOException(in.readUTF());
+        }
+    }
+
+    static void writeError(DataOutputStream out, Exception e) throws IOException {
+        out.writeByte(ERROR);
+        out.writeUTF(String.valueOf(e.getMessage()));
+        out.flush();
+    }
+
+    // One blocking socket with buffered streams; requests and responses alternate on it
+    static class Connection implements AutoCloseable {
+        final SocketChannel channel;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+            out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
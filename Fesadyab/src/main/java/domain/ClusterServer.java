@@ -0,0 +1,133 @@
+package domain;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+// Accept loop shared by the cluster router and nodes: one thread per connection reads a request op and
+// hands it to handle(), which reads the payload and writes the response. A failed request is answered
+// with its error message and the connection stays usable.
+abstract class ClusterServer implements AutoCloseable {
+    private final ServerSocketChannel server;
+    private final String address;
+    private final String name;
+    private final Set<ClusterProtocol.Connection> connections = ConcurrentHashMap.newKeySet();
+    private Thread acceptor;
+    private volatile boolean running = true;
+
+    ClusterServer(String address, String name) throws IOException {
+        server = ClusterProtocol.listen(address);
+        this.address = ClusterProtocol.formatAddress(server.getLocalAddress());
+        this.name = name;
+    }
+
+    // The bound address, with the actual port when listening on port 0
+    public String address() {
+        return address;
+    }
+
+    // Called by subclasses once they are fully constructed
+    void start() {
+        acceptor = startThread(name + "-acceptor", this::accept);
+    }
+
+    // For a main(): prints the bound address, which scripts and tests wait for before connecting, then
+    // serves until the process is stopped; the shutdown hook removes a Unix socket file
+    void serveUntilShutdown() throws InterruptedException {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                close();
+            } catch (IOException ignored) {
+                // The process is exiting anyway
+            }
+        }));
+        System.out.println("listening " + address);
+        System.out.flush();
+        new CountDownLatch(1).await();
+    }
+
+    abstract void handle(byte op, ClusterProtocol.Connection connection) throws IOException;
+
+    // An interrupt while waiting for the accept loop is kept on the thread rather than thrown
+    @Override
+    public void close() throws IOException {
+        running = false;
+        server.close();
+        for (var connection : connections) {
+            connection.close();
+        }
+        if (acceptor != null) {
+            try {
+                acceptor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        ClusterProtocol.unlink(address);
+    }
+
+    // For a subclass constructor that fails before start()
+    void closeListener() throws IOException {
+        running = false;
+        server.close();
+        ClusterProtocol.unlink(address);
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                var connection = new ClusterProtocol.Connection(server.accept());
+                connections.add(connection);
+                startThread(name + "-connection", () -> serve(connection));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (!running) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void serve(ClusterProtocol.Connection connection) {
+        try (connection) {
+            while (running) {
+                byte op;
+                try {
+                    op = connection.in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                try {
+                    handle(op, connection);
+                } catch (IOException | RuntimeException e) {
+                    ClusterProtocol.writeError(connection.out, e);
+                    if (e instanceof ProtocolException) {
+                        return;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // The peer went away or the server is closing; the connection is dropped either way
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    // The rest of the stream cannot be framed after an unknown op, so its connection is closed
+    static ProtocolException unknownOp(byte op) {
+        return new ProtocolException("unknown request " + op);
+    }
+
+    private static Thread startThread(String name, Runnable body) {
+        var thread = new Thread(body, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
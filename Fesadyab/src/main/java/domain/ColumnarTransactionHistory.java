@@ -0,0 +1,171 @@
+package domain;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+// Stores each transaction field in its own primitive column; isDebit is packed 64 flags per long.
+// Removing the oldest entry only advances offset; the columns are shifted down lazily, in whole
+// bitset words, once the dead prefix is at least half of the capacity.
+class ColumnarTransactionHistory implements TransactionHistory {
+    private int[] transactionIds;
+    private int[] accountIds;
+    private int[] amounts;
+    private long[] debitBits;
+    private int offset;
+    private int size;
+    // Set while a deferred copy may still read the columns in place
+    private CopyOnWritePages columnPages;
+    private CopyOnWritePages debitPages;
+
+    ColumnarTransactionHistory() {
+        this(64);
+    }
+
+    ColumnarTransactionHistory(int initialCapacity) {
+        var capacity = Math.max(initialCapacity, 64);
+        transactionIds = new int[capacity];
+        accountIds = new int[capacity];
+        amounts = new int[capacity];
+        debitBits = new long[(capacity + 63) >>> 6];
+    }
+
+    @Override
+    public TransactionHistory copy() {
+        var copy = new ColumnarTransactionHistory(0);
+        copy.transactionIds = transactionIds.clone();
+        copy.accountIds = accountIds.clone();
+        copy.amounts = amounts.clone();
+        copy.debitBits = debitBits.clone();
+        copy.offset = offset;
+        copy.size = size;
+        return copy;
+    }
+
+    // Copy as of now, made by whichever thread calls get() while this keeps changing (see
+    // CopyOnWritePages). Appends land past the captured entries, so only the last captured word of debit
+    // flags, or everything once the columns are shifted down, is ever kept aside.
+    Supplier<TransactionHistory> deferredCopy() {
+        var capturedOffset = offset;
+        var capturedSize = size;
+        var end = offset + size;
+        var columns = columnPages = new CopyOnWritePages(columnPages, end, transactionIds, accountIds, amounts);
+        var flags = debitPages = new CopyOnWritePages(debitPages, (end + 63) >>> 6, debitBits);
+        return () -> {
+            var copied = columns.copy();
+            var copy = new ColumnarTransactionHistory(0);
+            copy.transactionIds = (int[]) copied[0];
+            copy.accountIds = (int[]) copied[1];
+            copy.amounts = (int[]) copied[2];
+            copy.debitBits = (long[]) flags.copy()[0];
+            copy.offset = capturedOffset;
+            copy.size = capturedSize;
+            return copy;
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void append(int transactionId, int accountId, int amount, boolean isDebit) {
+        var end = offset + size;
+        if (end == transactionIds.length) {
+            makeRoom();
+            end = offset + size;
+        }
+        transactionIds[end] = transactionId;
+        accountIds[end] = accountId;
+        amounts[end] = amount;
+        if (debitPages != null) {
+            debitPages.beforeWrite(end >>> 6);
+        }
+        if (isDebit) {
+            debitBits[end >>> 6] |= 1L << end;
+        } else {
+            debitBits[end >>> 6] &= ~(1L << end);
+        }
+        size++;
+    }
+
+    @Override
+    public void removeOldest() {
+        if (size == 0) {
+            throw new IndexOutOfBoundsException(0);
+        }
+        offset++;
+        size--;
+    }
+
+    @Override
+    public int transactionIdAt(int index) {
+        return transactionIds[position(index)];
+    }
+
+    @Override
+    public int accountIdAt(int index) {
+        return accountIds[position(index)];
+    }
+
+    @Override
+    public int amountAt(int index) {
+        return amounts[position(index)];
+    }
+
+    @Override
+    public boolean isDebitAt(int index) {
+        var position = position(index);
+        return (debitBits[position >>> 6] & (1L << position)) != 0;
+    }
+
+    // Raw columns for bulk kernels, read-only: entry i lives at position columnOffset() + i, and the debit
+    // flag of position p is bit p of debitBitColumn()
+    int[] accountIdColumn() {
+        return accountIds;
+    }
+
+    int[] amountColumn() {
+        return amounts;
+    }
+
+    long[] debitBitColumn() {
+        return debitBits;
+    }
+
+    int columnOffset() {
+        return offset;
+    }
+
+    private int position(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return offset + index;
+    }
+
+    private void makeRoom() {
+        var shift = offset & ~63;
+        if (shift * 2 >= transactionIds.length) {
+            // Later appends reuse the positions freed here, so every captured page is kept
+            if (columnPages != null) {
+                columnPages.beforeWrite(0, transactionIds.length);
+                debitPages.beforeWrite(0, debitBits.length);
+            }
+            System.arraycopy(transactionIds, shift, transactionIds, 0, offset + size - shift);
+            System.arraycopy(accountIds, shift, accountIds, 0, offset + size - shift);
+            System.arraycopy(amounts, shift, amounts, 0, offset + size - shift);
+            System.arraycopy(debitBits, shift >>> 6, debitBits, 0, debitBits.length - (shift >>> 6));
+            offset -= shift;
+            return;
+        }
+
+        var capacity = transactionIds.length * 2;
+        transactionIds = Arrays.copyOf(transactionIds, capacity);
+        accountIds = Arrays.copyOf(accountIds, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        debitBits = Arrays.copyOf(debitBits, (capacity + 63) >>> 6);
+        columnPages = null;
+        debitPages = null;
+    }
+}
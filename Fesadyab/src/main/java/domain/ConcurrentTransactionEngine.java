@@ -0,0 +1,107 @@
+package domain;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Thread-safe counterpart of TransactionEngine. Per-account aggregates are split into lock stripes by
+// accountId; the global history, id index and threshold pattern share one short critical section.
+// Every call holds its account stripe while it passes the global section, so the history order is a
+// linearization that a single-threaded TransactionEngine replays to the same scores.
+public class ConcurrentTransactionEngine {
+    private final ReentrantLock[] accountLocks;
+    private final AccountAggregates[] accountStripes;
+
+    private final ReentrantLock historyLock = new ReentrantLock();
+    final TransactionHistory transactionHistory;
+    final TransactionIdIndex transactionIds;
+    final ThresholdPatternDetector patternDetector;
+    final int THRESHOLD = 1000;
+
+    public ConcurrentTransactionEngine() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public ConcurrentTransactionEngine(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be positive");
+        }
+        accountLocks = new ReentrantLock[stripes];
+        accountStripes = new AccountAggregates[stripes];
+        for (var i = 0; i < stripes; i++) {
+            accountLocks[i] = new ReentrantLock();
+            accountStripes[i] = new AccountAggregates();
+        }
+        transactionHistory = new ColumnarTransactionHistory();
+        transactionIds = new TransactionIdIndex();
+        patternDetector = new ThresholdPatternDetector();
+        patternDetector.track(THRESHOLD, transactionHistory);
+    }
+
+    int stripeCount() {
+        return accountStripes.length;
+    }
+
+    int getAverageTransactionAmountByAccount(int accountId) {
+        var stripe = stripeOf(accountId);
+        accountLocks[stripe].lock();
+        try {
+            return accountStripes[stripe].getAverage(accountId);
+        } finally {
+            accountLocks[stripe].unlock();
+        }
+    }
+
+    int getTransactionPatternAboveThreshold(int threshold) {
+        historyLock.lock();
+        try {
+            if (patternDetector.isTracking(threshold)) {
+                return patternDetector.getPattern(threshold);
+            }
+            return TransactionEngine.getTransactionPatternAboveThreshold(transactionHistory, threshold);
+        } finally {
+            historyLock.unlock();
+        }
+    }
+
+    int historySize() {
+        historyLock.lock();
+        try {
+            return transactionHistory.size();
+        } finally {
+            historyLock.unlock();
+        }
+    }
+
+    public int addTransactionAndDetectFraud(Transaction txn) {
+        var stripe = stripeOf(txn.accountId);
+        var accountLock = accountLocks[stripe];
+        accountLock.lock();
+        try {
+            var aggregates = accountStripes[stripe];
+            var fraudScore = TransactionEngine.excessiveDebitScore(txn, aggregates.getAverage(txn.accountId));
+
+            historyLock.lock();
+            try {
+                if (!transactionIds.add(txn.transactionId)) {
+                    return 0;
+                }
+                if (fraudScore == 0) {
+                    fraudScore = patternDetector.getPattern(THRESHOLD);
+                }
+                transactionHistory.append(txn.transactionId, txn.accountId, txn.amount, txn.isDebit);
+                patternDetector.append(txn.transactionId, txn.amount);
+            } finally {
+                historyLock.unlock();
+            }
+
+            aggregates.add(txn.accountId, txn.amount);
+            return fraudScore;
+        } finally {
+            accountLock.unlock();
+        }
+    }
+
+    // Uses the high hash bits so accounts sharing a stripe still spread over that stripe's own table
+    private int stripeOf(int accountId) {
+        return (int) (((IntSlotMap.mix(accountId) & 0xFFFFFFFFL) * accountStripes.length) >>> 32);
+    }
+}
@@ -0,0 +1,104 @@
+package domain;
+
+import java.lang.reflect.Array;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Point-in-time view of parallel primitive arrays for one reading thread while their owner keeps writing
+// them in place. Capture copies nothing: the owner calls beforeWrite ahead of each in-place write to a
+// captured element, which keeps the old contents of that element's page aside the first time the page
+// is touched, and copy() on the reader copies every other page straight from the live arrays. So the
+// owner pays for the pages it changes while the copy is in flight, never for the whole arrays.
+// Writes at or past the captured length, and writes to arrays the owner has since replaced, need no
+// beforeWrite. A page is either kept by the owner or claimed by the reader, decided by one CAS, so the
+// reader never sees a page half way through a write.
+final class CopyOnWritePages {
+    private static final int PAGE_SHIFT = 10;
+    private static final int LIVE = 0;
+    private static final int KEPT = 1;
+    private static final int COPIED = 2;
+
+    private final Object[] arrays;
+    private final int length;
+    private final Object[][] keptPages;
+    private final AtomicIntegerArray states;
+    // Owner thread only: pages beforeWrite has already handled
+    private final boolean[] touched;
+    // A copy still in flight over the same arrays; both keep their pages
+    private final CopyOnWritePages older;
+    private volatile boolean released;
+
+    // Captures the first length elements of arrays; older is the view the owner held before, if any
+    CopyOnWritePages(CopyOnWritePages older, int length, Object... arrays) {
+        this.arrays = arrays;
+        this.length = length;
+        var pages = (length + (1 << PAGE_SHIFT) - 1) >>> PAGE_SHIFT;
+        keptPages = new Object[arrays.length][pages];
+        states = new AtomicIntegerArray(pages);
+        touched = new boolean[pages];
+        this.older = older != null && !older.released ? older : null;
+    }
+
+    // Owner thread, before writing index of the captured arrays in place
+    void beforeWrite(int index) {
+        for (var view = this; view != null; view = view.older) {
+            if (index < view.length) {
+                view.keep(index >>> PAGE_SHIFT);
+            }
+        }
+    }
+
+    // Owner thread, before writing from..to-1 in place
+    void beforeWrite(int from, int to) {
+        for (var view = this; view != null; view = view.older) {
+            for (var page = from >>> PAGE_SHIFT; page << PAGE_SHIFT < Math.min(to, view.length); page++) {
+                view.keep(page);
+            }
+        }
+    }
+
+    private void keep(int page) {
+        if (touched[page]) {
+            return;
+        }
+        touched[page] = true;
+        if (released || states.get(page) != LIVE) {
+            return;
+        }
+        for (var a = 0; a < arrays.length; a++) {
+            keptPages[a][page] = copyPage(arrays[a], page);
+        }
+        // Publishes the kept pages; if the reader claimed the page first they are simply dropped
+        states.compareAndSet(page, LIVE, KEPT);
+    }
+
+    // Reader thread, once: fresh arrays of the captured length holding the contents as of capture
+    Object[] copy() {
+        var copies = new Object[arrays.length];
+        for (var a = 0; a < arrays.length; a++) {
+            copies[a] = Array.newInstance(arrays[a].getClass().getComponentType(), length);
+        }
+        for (var page = 0; page < states.length(); page++) {
+            var from = page << PAGE_SHIFT;
+            var size = Math.min(1 << PAGE_SHIFT, length - from);
+            for (var a = 0; a < arrays.length; a++) {
+                System.arraycopy(arrays[a], from, copies[a], from, size);
+            }
+            // Claiming the page after reading it means the owner had not written it yet
+            if (!states.compareAndSet(page, LIVE, COPIED)) {
+                for (var a = 0; a < arrays.length; a++) {
+                    System.arraycopy(keptPages[a][page], 0, copies[a], from, size);
+                }
+            }
+        }
+        released = true;
+        return copies;
+    }
+
+    private Object copyPage(Object array, int page) {
+        var from = page << PAGE_SHIFT;
+        var size = Math.min(1 << PAGE_SHIFT, length - from);
+        var copy = Array.newInstance(array.getClass().getComponentType(), size);
+        System.arraycopy(array, from, copy, 0, size);
+        return copy;
+    }
+}
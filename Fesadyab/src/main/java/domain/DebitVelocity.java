@@ -0,0 +1,118 @@
+package domain;
+
+import java.util.Arrays;
+
+// Per-account count and total of debits over the last window clock units, kept in a ring of BUCKETS
+// time buckets per account instead of the raw history. Each account also keeps running totals over its
+// live buckets; a debit first retires the buckets that fell out of the window since the account was last
+// touched (at most BUCKETS of them), so both updates and reads are O(1). The window is resolved to whole
+// buckets: a read at time now covers the buckets holding times after about now - window.
+class DebitVelocity {
+    static final int BUCKETS = 12;
+
+    final long window;
+    private final long bucketWidth;
+    private final IntSlotMap slots;
+    // Newest bucket number each account has been advanced to
+    private long[] heads;
+    private int[] counts;
+    private long[] totals;
+    // Flattened rings: account slot * BUCKETS + bucket number % BUCKETS
+    private int[] bucketCounts;
+    private long[] bucketTotals;
+
+    DebitVelocity(long window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("velocity window must be positive");
+        }
+        this.window = window;
+        bucketWidth = Math.max(1, (window + BUCKETS - 1) / BUCKETS);
+        slots = new IntSlotMap();
+        heads = new long[16];
+        counts = new int[16];
+        totals = new long[16];
+        bucketCounts = new int[16 * BUCKETS];
+        bucketTotals = new long[16 * BUCKETS];
+    }
+
+    int accountCount() {
+        return slots.size();
+    }
+
+    // Records a debit at the given time; one older than the whole ring is dropped
+    void add(int accountId, int amount, long timestamp) {
+        var bucket = Math.floorDiv(timestamp, bucketWidth);
+        var slot = slots.slotOf(accountId);
+        if (slot < 0) {
+            slot = slotFor(accountId);
+            heads[slot] = bucket;
+        } else if (bucket > heads[slot]) {
+            advance(slot, bucket);
+        } else if (bucket <= heads[slot] - BUCKETS) {
+            return;
+        }
+
+        var index = slot * BUCKETS + Math.floorMod(bucket, BUCKETS);
+        bucketCounts[index]++;
+        bucketTotals[index] += amount;
+        counts[slot]++;
+        totals[slot] += amount;
+    }
+
+    int getCount(int accountId, long now) {
+        var slot = slots.slotOf(accountId);
+        if (slot < 0) {
+            return 0;
+        }
+        var count = counts[slot];
+        for (var bucket = firstStale(slot); bucket <= lastStale(slot, now); bucket++) {
+            count -= bucketCounts[slot * BUCKETS + Math.floorMod(bucket, BUCKETS)];
+        }
+        return count;
+    }
+
+    long getTotal(int accountId, long now) {
+        var slot = slots.slotOf(accountId);
+        if (slot < 0) {
+            return 0;
+        }
+        var total = totals[slot];
+        for (var bucket = firstStale(slot); bucket <= lastStale(slot, now); bucket++) {
+            total -= bucketTotals[slot * BUCKETS + Math.floorMod(bucket, BUCKETS)];
+        }
+        return total;
+    }
+
+    // Buckets still counted in the running totals that a read at now no longer covers; the range is
+    // empty while the account's head is current and never wider than the ring
+    private long firstStale(int slot) {
+        return heads[slot] - BUCKETS + 1;
+    }
+
+    private long lastStale(int slot, long now) {
+        return Math.min(Math.floorDiv(now, bucketWidth) - BUCKETS, heads[slot]);
+    }
+
+    private void advance(int slot, long bucket) {
+        for (var stale = firstStale(slot); stale <= lastStale(slot, bucket * bucketWidth); stale++) {
+            var index = slot * BUCKETS + Math.floorMod(stale, BUCKETS);
+            counts[slot] -= bucketCounts[index];
+            totals[slot] -= bucketTotals[index];
+            bucketCounts[index] = 0;
+            bucketTotals[index] = 0;
+        }
+        heads[slot] = bucket;
+    }
+
+    private int slotFor(int accountId) {
+        var slot = slots.slotFor(accountId);
+        if (slot == heads.length) {
+            heads = Arrays.copyOf(heads, slot * 2);
+            counts = Arrays.copyOf(counts, slot * 2);
+            totals = Arrays.copyOf(totals, slot * 2);
+            bucketCounts = Arrays.copyOf(bucketCounts, slot * 2 * BUCKETS);
+            bucketTotals = Arrays.copyOf(bucketTotals, slot * 2 * BUCKETS);
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,41 @@
+package domain;
+
+// Flags a debit that takes the account past maxDebits debits or past maxTotal debited within the last
+// window clock units; scores the total beyond maxTotal, or the amount when only the count is exceeded.
+// The velocity buckets are not part of checkpoints or the journal, which carry no event times, so after
+// restoreCheckpoint or a journal replay the rule only sees debits added since.
+public class DebitVelocityRule implements FraudRule {
+    private final long window;
+    private final int maxDebits;
+    private final long maxTotal;
+
+    public DebitVelocityRule(long window, int maxDebits, long maxTotal) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        this.window = window;
+        this.maxDebits = maxDebits;
+        this.maxTotal = maxTotal;
+    }
+
+    @Override
+    public void declareState(FraudRuleState state) {
+        state.requireDebitVelocity(window);
+    }
+
+    @Override
+    public int score(ScoringContext context) {
+        if (!context.isDebit) {
+            return 0;
+        }
+        var total = context.getDebitTotalWithin(window) + context.amount;
+        if (total > maxTotal) {
+            return (int) Math.min(total - maxTotal, Integer.MAX_VALUE);
+        }
+        if (context.getDebitCountWithin(window) + 1 > maxDebits) {
+            return context.amount;
+        }
+
+        return 0;
+    }
+}
@@ -0,0 +1,106 @@
+package domain;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Preallocated ring of the last capacity scoring decisions, kept in parallel arrays so recording one is a
+// handful of array stores and no allocation. Only the engine thread records. Each slot carries a sequence
+// that is odd while the slot is being rewritten and 2 * position + 2 once it holds that position, so a
+// dump from any thread takes no lock and skips the entries overwritten while it was copying them.
+// A clock read costs about as much as scoring itself, so only every timingInterval-th decision is timed.
+class DecisionTrace {
+    static final long NOT_TIMED = -1;
+
+    private final int mask;
+    private final int timingMask;
+    private final AtomicLongArray sequences;
+    private final int[] transactionIds;
+    private final int[] accountIds;
+    private final int[] amounts;
+    private final boolean[] debits;
+    private final int[] scores;
+    private final FraudRule[] firedRules;
+    private final long[] accountSums;
+    private final long[] accountCounts;
+    private final int[] patternDiffs;
+    private final long[] elapsedNanos;
+    private final AtomicLong recorded = new AtomicLong();
+
+    DecisionTrace(int capacity, int timingInterval) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1 || timingInterval <= 0 || Integer.bitCount(timingInterval) != 1) {
+            throw new IllegalArgumentException("capacity and timingInterval must be positive powers of two");
+        }
+        mask = capacity - 1;
+        timingMask = timingInterval - 1;
+        sequences = new AtomicLongArray(capacity);
+        transactionIds = new int[capacity];
+        accountIds = new int[capacity];
+        amounts = new int[capacity];
+        debits = new boolean[capacity];
+        scores = new int[capacity];
+        firedRules = new FraudRule[capacity];
+        accountSums = new long[capacity];
+        accountCounts = new long[capacity];
+        patternDiffs = new int[capacity];
+        elapsedNanos = new long[capacity];
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    long recordedCount() {
+        return recorded.getAcquire();
+    }
+
+    // Engine thread only: whether the next recorded decision should carry its elapsed time
+    boolean timesNext() {
+        return (recorded.getPlain() & timingMask) == 0;
+    }
+
+    // Engine thread only
+    void record(ScoringContext context, FraudRule firedRule, int score, int patternDiff, long elapsed) {
+        var position = recorded.getPlain();
+        var slot = (int) position & mask;
+        sequences.setOpaque(slot, 2 * position + 1);
+        VarHandle.storeStoreFence();
+        transactionIds[slot] = context.transactionId;
+        accountIds[slot] = context.accountId;
+        amounts[slot] = context.amount;
+        debits[slot] = context.isDebit;
+        scores[slot] = score;
+        firedRules[slot] = firedRule;
+        // The average is divided out at dump time, off the engine thread
+        accountSums[slot] = context.accountSum;
+        accountCounts[slot] = context.accountCount;
+        patternDiffs[slot] = patternDiff;
+        elapsedNanos[slot] = elapsed;
+        sequences.setRelease(slot, 2 * position + 2);
+        recorded.setRelease(position + 1);
+    }
+
+    // Any thread: the retained decisions, oldest first
+    List<FraudDecision> dump() {
+        var end = recorded.getAcquire();
+        var decisions = new ArrayList<FraudDecision>((int) Math.min(end, mask + 1));
+        for (var position = Math.max(0, end - mask - 1); position < end; position++) {
+            var slot = (int) position & mask;
+            var sequence = sequences.getAcquire(slot);
+            if (sequence != 2 * position + 2) {
+                continue;
+            }
+            var count = accountCounts[slot];
+            var decision = new FraudDecision(position, transactionIds[slot], accountIds[slot], amounts[slot],
+                    debits[slot], scores[slot], firedRules[slot], count == 0 ? 0 : (int) (accountSums[slot] / count),
+                    patternDiffs[slot], elapsedNanos[slot]);
+            VarHandle.loadLoadFence();
+            if (sequences.getOpaque(slot) == sequence) {
+                decisions.add(decision);
+            }
+        }
+        return decisions;
+    }
+}
@@ -0,0 +1,163 @@
+package domain;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Point-in-time copy of a TransactionEngine's derived state and its binary file format. Taking one only
+// clones small primitive arrays and captures the large ones copy-on-write (spilled accounts are copied
+// file to file), so copying, encoding and writing can happen off the ingesting thread. The file is a
+// magic/version header, the state sections and a CRC32 of everything before it; it is written to a
+// temporary file and atomically moved into place, so a crash leaves the previous checkpoint intact.
+class EngineCheckpoint {
+    static final int MAGIC = 0x46534331;
+    // Version 2 appends the amount quantile sketches; version 1 files are still read
+    static final int VERSION = 2;
+
+    long journalPosition;
+    long clock;
+    AccountAggregates accountAggregates;
+    TransactionIdIndex transactionIds;
+    ThresholdPatternDetector patternDetector;
+    TransactionHistory transactionHistory;
+    HistoryWindow historyWindow;
+    long pendingScanEvictions;
+    AccountQuantileSketches accountQuantiles;
+    // Copies left to the writing thread by a capture; they fill in the fields above
+    private final List<Runnable> deferredCopies = new ArrayList<>();
+
+    void deferCopy(Runnable copy) {
+        deferredCopies.add(copy);
+    }
+
+    void completeCopies() {
+        deferredCopies.forEach(Runnable::run);
+        deferredCopies.clear();
+    }
+
+    void write(Path path) throws IOException {
+        var target = path.toAbsolutePath();
+        var temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (var file = new FileOutputStream(temporary.toFile())) {
+                var checksum = new CRC32();
+                var out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, checksum), 1 << 16));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeState(out);
+                out.flush();
+                out.writeLong(checksum.getValue());
+                out.flush();
+                file.getChannel().force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    static EngineCheckpoint read(Path path) throws IOException {
+        return read(path, null);
+    }
+
+    // With spilling given, the accounts are read straight into a new spill file with its cache size and
+    // directory instead of into memory
+    static EngineCheckpoint read(Path path, SpillingAccountAggregates spilling) throws IOException {
+        try (var file = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+            var checksum = new CRC32();
+            var in = new DataInputStream(new CheckedInputStream(file, checksum));
+            var magic = in.readInt();
+            var version = in.readInt();
+            if (magic != MAGIC || version < 1 || version > VERSION) {
+                throw new IOException("not an engine checkpoint");
+            }
+            var checkpoint = new EngineCheckpoint();
+            try {
+                checkpoint.readState(in, version, spilling);
+                var expected = checksum.getValue();
+                if (in.readLong() != expected) {
+                    throw new IOException("engine checkpoint is corrupt");
+                }
+            } catch (IOException | RuntimeException e) {
+                checkpoint.close();
+                throw e;
+            }
+            return checkpoint;
+        }
+    }
+
+    private void writeState(DataOutputStream out) throws IOException {
+        out.writeLong(journalPosition);
+        out.writeLong(clock);
+        accountAggregates.writeTo(out);
+        transactionIds.writeTo(out);
+        patternDetector.writeTo(out);
+
+        out.writeBoolean(transactionHistory != null);
+        if (transactionHistory != null) {
+            out.writeInt(transactionHistory.size());
+            for (var i = 0; i < transactionHistory.size(); i++) {
+                out.writeInt(transactionHistory.transactionIdAt(i));
+                out.writeInt(transactionHistory.accountIdAt(i));
+                out.writeInt(transactionHistory.amountAt(i));
+                out.writeBoolean(transactionHistory.isDebitAt(i));
+            }
+        }
+
+        out.writeBoolean(historyWindow != null);
+        if (historyWindow != null) {
+            historyWindow.writeTo(out);
+            out.writeLong(pendingScanEvictions);
+        }
+
+        out.writeBoolean(accountQuantiles != null);
+        if (accountQuantiles != null) {
+            accountQuantiles.writeTo(out);
+        }
+    }
+
+    // Releases the spill file of spilled account aggregates; they are unusable afterwards
+    void close() {
+        if (accountAggregates instanceof SpillingAccountAggregates spilled) {
+            spilled.close();
+        }
+    }
+
+    private void readState(DataInputStream in, int version, SpillingAccountAggregates spilling) throws IOException {
+        journalPosition = in.readLong();
+        clock = in.readLong();
+        accountAggregates = spilling != null
+                ? SpillingAccountAggregates.readFrom(in, spilling.maxCachedAccounts, spilling.directory)
+                : AccountAggregates.readFrom(in);
+        transactionIds = TransactionIdIndex.readFrom(in);
+        patternDetector = ThresholdPatternDetector.readFrom(in);
+
+        if (in.readBoolean()) {
+            var size = in.readInt();
+            transactionHistory = new ColumnarTransactionHistory(size);
+            for (var i = 0; i < size; i++) {
+                transactionHistory.append(in.readInt(), in.readInt(), in.readInt(), in.readBoolean());
+            }
+        }
+
+        if (in.readBoolean()) {
+            historyWindow = HistoryWindow.readFrom(in);
+            pendingScanEvictions = in.readLong();
+        }
+
+        if (version >= 2 && in.readBoolean()) {
+            accountQuantiles = AccountQuantileSketches.readFrom(in);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package domain;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Read path for monitoring threads. The engine changes its aggregates, history and pattern state only
+// inside write sections of a seqlock (odd version); a reader computes its answer from the live state and
+// retries if the version moved meanwhile, so it never blocks ingestion and never returns torn values.
+// A read racing a resize may see mismatched arrays and throw; that is retried the same way.
+public class EngineStatistics {
+    private final TransactionEngine engine;
+    private final AtomicLong version;
+
+    EngineStatistics(TransactionEngine engine, AtomicLong version) {
+        this.engine = engine;
+        this.version = version;
+    }
+
+    // Count, sum and average of one account plus the history size and pattern, all from one version; the
+    // pattern is 0 when the engine's rules do not track the default threshold
+    public AccountStatistics getAccountStatistics(int accountId) {
+        return read(stableVersion -> new AccountStatistics(stableVersion, accountId,
+                engine.accountAggregates.getCount(accountId), engine.accountAggregates.getSum(accountId),
+                engine.transactionHistory.size(), engine.trackedPattern(engine.THRESHOLD)));
+    }
+
+    public int getAverageTransactionAmount(int accountId) {
+        return read(stableVersion -> engine.accountAggregates.getAverage(accountId));
+    }
+
+    public int getHistorySize() {
+        return read(stableVersion -> engine.transactionHistory.size());
+    }
+
+    // Only for thresholds the engine tracks: any other needs a full history scan, which a reader racing a
+    // busy writer would retry indefinitely
+    public int getPatternAboveThreshold(int threshold) {
+        return read(stableVersion -> {
+            if (!engine.isPatternTracked(threshold)) {
+                throw new IllegalArgumentException("pattern threshold " + threshold + " is not tracked");
+            }
+            return engine.trackedPattern(threshold);
+        });
+    }
+
+    // Null unless account spill is enabled
+    public AccountCacheMetrics getAccountCacheMetrics() {
+        return read(stableVersion -> engine.getAccountCacheMetrics());
+    }
+
+    private <T> T read(VersionedReader<T> reader) {
+        for (var spins = 0; ; spins = BackOff.pause(spins)) {
+            var before = version.getAcquire();
+            if ((before & 1) != 0) {
+                continue;
+            }
+            T value;
+            RuntimeException failure = null;
+            try {
+                value = reader.read(before >>> 1);
+            } catch (RuntimeException e) {
+                value = null;
+                failure = e;
+            }
+            VarHandle.loadLoadFence();
+            if (version.getOpaque() == before) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return value;
+            }
+        }
+    }
+
+    private interface VersionedReader<T> {
+        T read(long stableVersion);
+    }
+}
@@ -0,0 +1,25 @@
+package domain;
+
+// Flags a debit larger than multiplier times the account's average amount; scores the excess
+public class ExcessiveDebitRule implements FraudRule {
+    private final int multiplier;
+
+    public ExcessiveDebitRule(int multiplier) {
+        this.multiplier = multiplier;
+    }
+
+    @Override
+    public void declareState(FraudRuleState state) {
+        state.requireAccountAggregates();
+    }
+
+    @Override
+    public int score(ScoringContext context) {
+        var limit = multiplier * context.getAverageAmount();
+        if (context.isDebit && context.amount > limit) {
+            return context.amount - limit;
+        }
+
+        return 0;
+    }
+}
@@ -0,0 +1,110 @@
+package domain;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+
+// Connection to a FraudClusterRouter. Scoring a batch is one round trip, so batches amortize the
+// transport cost the way addTransactionsAndDetectFraud amortizes per-account work in one engine.
+// Calls on one client are serialized; open one client per thread for concurrent submission.
+public class FraudClusterClient implements AutoCloseable {
+    private final ClusterProtocol.Connection connection;
+
+    public FraudClusterClient(String routerAddress) throws IOException {
+        connection = ClusterProtocol.connect(routerAddress);
+    }
+
+    public int addTransactionAndDetectFraud(Transaction txn) throws IOException {
+        return addTransactionsAndDetectFraud(PackedTransactionView.of(txn))[0];
+    }
+
+    public int[] addTransactionsAndDetectFraud(List<Transaction> txns) throws IOException {
+        return addTransactionsAndDetectFraud(PackedTransactionView.of(txns));
+    }
+
+    public synchronized int[] addTransactionsAndDetectFraud(PackedTransactionView txns) throws IOException {
+        var out = connection.out;
+        var in = connection.in;
+        out.writeByte(ClusterProtocol.SCORE);
+        ClusterProtocol.writeTransactions(out, txns, null, txns.size());
+        out.flush();
+        ClusterProtocol.readStatus(in);
+        var scores = new int[txns.size()];
+        for (var i = 0; i < scores.length; i++) {
+            scores[i] = in.readInt();
+        }
+        return scores;
+    }
+
+    // Asks the router to take a running node into the cluster; returns once its partitions have moved
+    public synchronized void addNode(String nodeAddress) throws IOException {
+        connection.out.writeByte(ClusterProtocol.ADD_NODE);
+        connection.out.writeUTF(nodeAddress);
+        connection.out.flush();
+        ClusterProtocol.readStatus(connection.in);
+    }
+
+    @Override
+    public void close() throws IOException {
+        connection.close();
+    }
+
+    // Streams a journal through the cluster in batches, e.g. one written by WorkloadGenerator
+    long scoreJournal(TransactionJournal journal, int batchSize) throws IOException {
+        var packed = new long[2 * batchSize];
+        var flagged = new long[1];
+        var filled = new int[1];
+        try {
+            journal.replay((transactionId, accountId, amount, isDebit) -> {
+                packed[2 * filled[0]] = Transaction.packIdAndAccount(transactionId, accountId);
+                packed[2 * filled[0] + 1] = Transaction.packAmountAndDebit(amount, isDebit);
+                if (++filled[0] == batchSize) {
+                    flagged[0] += countFlagged(new PackedTransactionView(packed));
+                    filled[0] = 0;
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (filled[0] > 0) {
+            flagged[0] += countFlagged(new PackedTransactionView(packed, 0, filled[0]));
+        }
+        return flagged[0];
+    }
+
+    private int countFlagged(PackedTransactionView batch) {
+        try {
+            var flagged = 0;
+            for (var score : addTransactionsAndDetectFraud(batch)) {
+                flagged += score != 0 ? 1 : 0;
+            }
+            return flagged;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[1].equals("add-node")) {
+            try (var client = new FraudClusterClient(args[0])) {
+                client.addNode(args[2]);
+            }
+            return;
+        }
+        if (args.length == 3 && args[1].equals("score")) {
+            try (var client = new FraudClusterClient(args[0]);
+                 var journal = TransactionJournal.open(Path.of(args[2]))) {
+                var start = System.nanoTime();
+                var flagged = client.scoreJournal(journal, 4096);
+                var seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%d transactions, %d flagged, %.0f transactions/s%n",
+                        journal.size(), flagged, journal.size() / seconds);
+            }
+            return;
+        }
+        System.err.println("usage: FraudClusterClient <router> add-node <node address>");
+        System.err.println("       FraudClusterClient <router> score <journal>");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,121 @@
+package domain;
+
+import java.io.IOException;
+
+// One engine process of a fraud cluster. It owns the per-account aggregates of the hash partitions the
+// router sends it and runs the excessive-debit rule against them; the router keeps everything global
+// (duplicate ids, threshold pattern). Each partition has its own AccountAggregates, so rebalancing hands
+// a whole partition over with one EXPORT, IMPORT and DROP. Requests are applied one at a time.
+// SCORE only stages a batch's account changes; the router sends APPLY once every node has scored its
+// part, and any other request first drops a staged batch the router abandoned. Staged state belongs to
+// the node, not the connection, so an APPLY resent over a new connection still finds it.
+public class FraudClusterNode extends ClusterServer {
+    private final AccountAggregates[] partitions = new AccountAggregates[ClusterProtocol.PARTITIONS];
+    // Per-account sum and count deltas of the scored batch awaiting APPLY, null when there is none
+    private AccountAggregates staged;
+    private final FraudRule debitRule = new ExcessiveDebitRule(2);
+    private final ScoringContext scoringContext = new ScoringContext();
+
+    // address is "host:port" (port 0 picks a free one, see address()) or "unix:/path/to/socket"
+    public FraudClusterNode(String address) throws IOException {
+        super(address, "fesadyab-node");
+        start();
+    }
+
+    synchronized int accountCount() {
+        var count = 0;
+        for (var partition : partitions) {
+            count += partition != null ? partition.accountCount() : 0;
+        }
+        return count;
+    }
+
+    @Override
+    synchronized void handle(byte op, ClusterProtocol.Connection connection) throws IOException {
+        var in = connection.in;
+        var out = connection.out;
+        if (op != ClusterProtocol.APPLY) {
+            staged = null;
+        }
+        switch (op) {
+            case ClusterProtocol.SCORE -> {
+                var scores = score(ClusterProtocol.readTransactions(in));
+                out.writeByte(ClusterProtocol.OK);
+                for (var score : scores) {
+                    out.writeInt(score);
+                }
+            }
+            case ClusterProtocol.EXPORT -> {
+                var aggregates = partitions[checkedPartition(in.readInt())];
+                out.writeByte(ClusterProtocol.OK);
+                (aggregates != null ? aggregates : new AccountAggregates(0)).writeTo(out);
+            }
+            case ClusterProtocol.IMPORT -> {
+                // The whole payload is read before validating, so a bad partition leaves the stream framed
+                var partition = in.readInt();
+                var aggregates = AccountAggregates.readFrom(in);
+                partitions[checkedPartition(partition)] = aggregates.accountCount() > 0 ? aggregates : null;
+                out.writeByte(ClusterProtocol.OK);
+            }
+            case ClusterProtocol.DROP -> {
+                partitions[checkedPartition(in.readInt())] = null;
+                out.writeByte(ClusterProtocol.OK);
+            }
+            case ClusterProtocol.APPLY -> {
+                if (staged != null) {
+                    for (var slot = 0; slot < staged.accountCount(); slot++) {
+                        var accountId = staged.accountIdAt(slot);
+                        partition(accountId).add(accountId, staged.sumAt(slot), staged.countAt(slot));
+                    }
+                    staged = null;
+                }
+                out.writeByte(ClusterProtocol.OK);
+            }
+            default -> throw ClusterServer.unknownOp(op);
+        }
+        out.flush();
+    }
+
+    // In order, so several transactions of one account in a batch see each other through the staged deltas
+    private int[] score(PackedTransactionView txns) {
+        var scores = new int[txns.size()];
+        var deltas = new AccountAggregates();
+        for (var i = 0; i < scores.length; i++) {
+            var accountId = txns.accountIdAt(i);
+            var amount = txns.amountAt(i);
+            var aggregates = partitions[ClusterProtocol.partitionOf(accountId)];
+            var slot = deltas.slotFor(accountId);
+            scoringContext.reset(null, txns.transactionIdAt(i), accountId, amount, txns.isDebitAt(i),
+                    deltas.sumAt(slot) + (aggregates != null ? aggregates.getSum(accountId) : 0),
+                    deltas.countAt(slot) + (aggregates != null ? aggregates.getCount(accountId) : 0));
+            scores[i] = debitRule.score(scoringContext);
+            deltas.addAt(slot, amount, 1);
+        }
+        staged = deltas;
+        return scores;
+    }
+
+    private AccountAggregates partition(int accountId) {
+        var partition = ClusterProtocol.partitionOf(accountId);
+        if (partitions[partition] == null) {
+            partitions[partition] = new AccountAggregates();
+        }
+        return partitions[partition];
+    }
+
+    private static int checkedPartition(int partition) {
+        if (partition < 0 || partition >= ClusterProtocol.PARTITIONS) {
+            throw new IllegalArgumentException("partition " + partition + " out of range");
+        }
+        return partition;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("usage: FraudClusterNode <host:port|unix:/path>");
+            System.exit(2);
+        }
+        var node = new FraudClusterNode(args[0]);
+        node.serveUntilShutdown();
+    }
+}
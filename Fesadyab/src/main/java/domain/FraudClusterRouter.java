@@ -0,0 +1,312 @@
+package domain;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Front of a fraud cluster. Clients send batches here; the router plays the sequencer role of
+// PartitionedTransactionEngine across processes: it owns the duplicate id index and the threshold
+// pattern, evaluates them in arrival order, and forwards each accepted transaction to the node owning
+// its account's hash partition. A batch takes two round trips however many nodes it spans: each node
+// involved gets one SCORE request, all sent before any reply is read, and then one APPLY. Scores equal
+// those of a single TransactionEngine with the default rules fed in arrival order.
+// The id index remembers the most recent maxRememberedIds accepted ids (DEFAULT_MAX_REMEMBERED_IDS
+// unless given, 0 for every id), so the router's memory does not grow with the stream; an id older
+// than that is accepted again, as in TransactionEngine(maxRememberedIds).
+// Nodes only stage a scored batch. Once every node involved has replied the router commits the ids and
+// pattern and sends APPLY; if any node fails instead, every other node's reply is still read, the failed
+// node's connection is closed (and reopened on the next request), nothing is applied anywhere and the
+// error goes to the client, so a retried batch is counted exactly once. A node that misses its APPLY
+// keeps it pending, and the router resends it before the node's next request.
+// Batches and node additions are applied one at a time. Adding a node moves partitions to it from the
+// nodes holding more than their share until all are balanced; a moved partition is copied, installed on
+// the new node and only then dropped by its old owner, so a failed move loses no state.
+public class FraudClusterRouter extends ClusterServer {
+    // About 56 MB of index
+    static final int DEFAULT_MAX_REMEMBERED_IDS = 1 << 22;
+
+    private final TransactionIdIndex transactionIds;
+    private ThresholdPatternDetector patternDetector = new ThresholdPatternDetector();
+    // A null entry is a node whose connection failed; it is reconnected on next use
+    private final List<ClusterProtocol.Connection> nodes = new ArrayList<>();
+    private final List<String> nodeAddresses = new ArrayList<>();
+    // Nodes whose APPLY for the last committed batch has not been acknowledged yet
+    private boolean[] pendingApply = new boolean[0];
+    private final int[] owners = new int[ClusterProtocol.PARTITIONS];
+    private final int THRESHOLD = 1000;
+
+    public FraudClusterRouter(String address, List<String> nodeAddresses) throws IOException {
+        this(address, nodeAddresses, DEFAULT_MAX_REMEMBERED_IDS);
+    }
+
+    public FraudClusterRouter(String address, List<String> nodeAddresses, int maxRememberedIds) throws IOException {
+        super(address, "fesadyab-router");
+        transactionIds = new TransactionIdIndex(maxRememberedIds);
+        patternDetector.track(THRESHOLD, new ColumnarTransactionHistory());
+        try {
+            for (var nodeAddress : nodeAddresses) {
+                addNode(nodeAddress);
+            }
+        } catch (IOException e) {
+            closeNodes();
+            closeListener();
+            throw e;
+        }
+        start();
+    }
+
+    public synchronized List<String> nodeAddresses() {
+        return List.copyOf(nodeAddresses);
+    }
+
+    // Connects to a running node and moves its share of the partitions to it
+    public synchronized void addNode(String address) throws IOException {
+        var node = ClusterProtocol.connect(address);
+        nodes.add(node);
+        nodeAddresses.add(address);
+        pendingApply = Arrays.copyOf(pendingApply, nodes.size());
+        var newNode = nodes.size() - 1;
+        if (newNode == 0) {
+            return;
+        }
+
+        var share = ClusterProtocol.PARTITIONS / nodes.size();
+        var counts = partitionCounts();
+        for (var partition = 0; partition < owners.length && counts[newNode] < share; partition++) {
+            var owner = owners[partition];
+            if (counts[owner] > share) {
+                movePartition(partition, owner, newNode);
+                counts[owner]--;
+                counts[newNode]++;
+            }
+        }
+    }
+
+    public synchronized int[] addTransactionsAndDetectFraud(PackedTransactionView txns) throws IOException {
+        if (nodes.isEmpty()) {
+            throw new IllegalStateException("the cluster has no nodes");
+        }
+        var size = txns.size();
+        var scores = new int[size];
+        var targets = new int[size];
+        var counts = new int[nodes.size()];
+        // Ids and pattern are evaluated against the committed state plus this batch, and committed below
+        var batchIds = new TransactionIdIndex();
+        var detector = patternDetector.copy();
+        for (var i = 0; i < size; i++) {
+            var transactionId = txns.transactionIdAt(i);
+            if (transactionIds.contains(transactionId) || !batchIds.add(transactionId)) {
+                targets[i] = -1;
+                continue;
+            }
+            scores[i] = detector.getPattern(THRESHOLD);
+            detector.append(transactionId, txns.amountAt(i));
+            targets[i] = owners[ClusterProtocol.partitionOf(txns.accountIdAt(i))];
+            counts[targets[i]]++;
+        }
+
+        var indexes = new int[nodes.size()][];
+        for (var node = 0; node < indexes.length; node++) {
+            indexes[node] = new int[counts[node]];
+        }
+        var filled = new int[nodes.size()];
+        for (var i = 0; i < size; i++) {
+            if (targets[i] >= 0) {
+                indexes[targets[i]][filled[targets[i]]++] = i;
+            }
+        }
+
+        IOException failure = null;
+        var sent = new boolean[nodes.size()];
+        for (var node = 0; node < indexes.length; node++) {
+            if (counts[node] > 0) {
+                try {
+                    var out = node(node).out;
+                    out.writeByte(ClusterProtocol.SCORE);
+                    ClusterProtocol.writeTransactions(out, txns, indexes[node], counts[node]);
+                    out.flush();
+                    sent[node] = true;
+                } catch (IOException e) {
+                    failure = failed(node, failure, e);
+                }
+            }
+        }
+        for (var node = 0; node < indexes.length; node++) {
+            if (sent[node]) {
+                try {
+                    var in = nodes.get(node).in;
+                    ClusterProtocol.readStatus(in);
+                    for (var i : indexes[node]) {
+                        var debitScore = in.readInt();
+                        if (debitScore != 0) {
+                            scores[i] = debitScore;
+                        }
+                    }
+                } catch (IOException e) {
+                    failure = failed(node, failure, e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        for (var i = 0; i < size; i++) {
+            if (targets[i] >= 0) {
+                transactionIds.addAbsent(txns.transactionIdAt(i));
+            }
+        }
+        patternDetector = detector;
+
+        // The batch is committed from here on: a node that misses its APPLY gets it resent by node()
+        for (var node = 0; node < indexes.length; node++) {
+            if (sent[node]) {
+                pendingApply[node] = true;
+                try {
+                    nodes.get(node).out.writeByte(ClusterProtocol.APPLY);
+                    nodes.get(node).out.flush();
+                } catch (IOException e) {
+                    dropConnection(node);
+                }
+            }
+        }
+        for (var node = 0; node < indexes.length; node++) {
+            if (sent[node] && nodes.get(node) != null) {
+                try {
+                    ClusterProtocol.readStatus(nodes.get(node).in);
+                    pendingApply[node] = false;
+                } catch (IOException e) {
+                    dropConnection(node);
+                }
+            }
+        }
+        return scores;
+    }
+
+    synchronized int[] partitionCounts() {
+        var counts = new int[nodes.size()];
+        for (var owner : owners) {
+            counts[owner]++;
+        }
+        return counts;
+    }
+
+    @Override
+    void handle(byte op, ClusterProtocol.Connection connection) throws IOException {
+        var in = connection.in;
+        var out = connection.out;
+        switch (op) {
+            case ClusterProtocol.SCORE -> {
+                var scores = addTransactionsAndDetectFraud(ClusterProtocol.readTransactions(in));
+                out.writeByte(ClusterProtocol.OK);
+                for (var score : scores) {
+                    out.writeInt(score);
+                }
+            }
+            case ClusterProtocol.ADD_NODE -> {
+                addNode(in.readUTF());
+                out.writeByte(ClusterProtocol.OK);
+            }
+            default -> throw ClusterServer.unknownOp(op);
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        synchronized (this) {
+            closeNodes();
+        }
+    }
+
+    // Either connection may be left mid-request by a failure, so both are closed and reopened on next use
+    private void movePartition(int partition, int from, int to) throws IOException {
+        try {
+            var source = node(from);
+            var target = node(to);
+            source.out.writeByte(ClusterProtocol.EXPORT);
+            source.out.writeInt(partition);
+            source.out.flush();
+            ClusterProtocol.readStatus(source.in);
+            var aggregates = AccountAggregates.readFrom(source.in);
+
+            target.out.writeByte(ClusterProtocol.IMPORT);
+            target.out.writeInt(partition);
+            aggregates.writeTo(target.out);
+            target.out.flush();
+            ClusterProtocol.readStatus(target.in);
+            owners[partition] = to;
+
+            source.out.writeByte(ClusterProtocol.DROP);
+            source.out.writeInt(partition);
+            source.out.flush();
+            ClusterProtocol.readStatus(source.in);
+        } catch (IOException e) {
+            dropConnection(from);
+            dropConnection(to);
+            throw e;
+        }
+    }
+
+    // Reconnects a dropped node and delivers a pending APPLY before anything else is sent to it
+    private ClusterProtocol.Connection node(int node) throws IOException {
+        if (nodes.get(node) == null) {
+            nodes.set(node, ClusterProtocol.connect(nodeAddresses.get(node)));
+        }
+        var connection = nodes.get(node);
+        if (pendingApply[node]) {
+            try {
+                connection.out.writeByte(ClusterProtocol.APPLY);
+                connection.out.flush();
+                ClusterProtocol.readStatus(connection.in);
+            } catch (IOException e) {
+                dropConnection(node);
+                throw e;
+            }
+            pendingApply[node] = false;
+        }
+        return connection;
+    }
+
+    // A connection that failed mid-request cannot be framed any more
+    private void dropConnection(int node) {
+        var connection = nodes.set(node, null);
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (IOException ignored) {
+                // Abandoned either way
+            }
+        }
+    }
+
+    // Drops the failed node's connection; the first error is kept and later ones are attached to it
+    private IOException failed(int node, IOException failure, IOException e) {
+        dropConnection(node);
+        var message = new IOException("node " + nodeAddresses.get(node) + ": " + e.getMessage(), e);
+        if (failure == null) {
+            return message;
+        }
+        failure.addSuppressed(message);
+        return failure;
+    }
+
+    private void closeNodes() throws IOException {
+        for (var node : nodes) {
+            if (node != null) {
+                node.close();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: FraudClusterRouter <host:port|unix:/path> <node address>...");
+            System.exit(2);
+        }
+        var router = new FraudClusterRouter(args[0], Arrays.asList(args).subList(1, args.length));
+        router.serveUntilShutdown();
+    }
+}
@@ -0,0 +1,44 @@
+package domain;
+
+import lombok.Getter;
+
+// One traced scoring decision: the transaction, the rule that fired (null when none did) and the inputs
+// the default rules read, as they were before the transaction was applied
+@Getter
+public class FraudDecision {
+    // Position in the engine's trace; gaps mean entries were overwritten while being dumped
+    private final long sequence;
+    private final int transactionId;
+    private final int accountId;
+    private final int amount;
+    private final boolean isDebit;
+    private final int score;
+    private final FraudRule firedRule;
+    private final int averageAmount;
+    // Pattern at the engine's THRESHOLD, 0 when that threshold is not tracked
+    private final int patternDiff;
+    // Time spent in the rule pipeline, -1 for the decisions the trace did not time
+    private final long elapsedNanos;
+
+    FraudDecision(long sequence, int transactionId, int accountId, int amount, boolean isDebit, int score,
+                  FraudRule firedRule, int averageAmount, int patternDiff, long elapsedNanos) {
+        this.sequence = sequence;
+        this.transactionId = transactionId;
+        this.accountId = accountId;
+        this.amount = amount;
+        this.isDebit = isDebit;
+        this.score = score;
+        this.firedRule = firedRule;
+        this.averageAmount = averageAmount;
+        this.patternDiff = patternDiff;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " txn=" + transactionId + " account=" + accountId + " amount=" + amount
+                + (isDebit ? " debit" : " credit") + " score=" + score
+                + " rule=" + (firedRule != null ? firedRule.getClass().getSimpleName() : "none")
+                + " average=" + averageAmount + " pattern=" + patternDiff + " nanos=" + elapsedNanos;
+    }
+}
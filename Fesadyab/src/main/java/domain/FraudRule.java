@@ -0,0 +1,17 @@
+package domain;
+
+// A fraud check plugged into TransactionEngine. All registered rules are evaluated in one fused pass per
+// transaction over a shared ScoringContext, in registration order; the first non-zero score wins and the
+// remaining rules are skipped.
+public interface FraudRule {
+    // Called once on registration so the engine maintains the incremental state the rule reads
+    default void declareState(FraudRuleState state) {
+    }
+
+    int score(ScoringContext context);
+
+    // Called for every accepted transaction, after scoring, so rules can update state they own; only for
+    // rules that declared FraudRuleState.requireAcceptNotifications
+    default void onAccepted(ScoringContext context) {
+    }
+}
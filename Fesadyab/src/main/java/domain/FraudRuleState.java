@@ -0,0 +1,43 @@
+package domain;
+
+import java.util.Arrays;
+
+// Engine-maintained state a FraudRule can ask for. Each piece is computed once per transaction no matter
+// how many rules read it.
+public class FraudRuleState {
+    boolean accountAggregates;
+    boolean amountQuantiles;
+    int[] patternThresholds = new int[0];
+    long[] velocityWindows = new long[0];
+    boolean acceptNotifications;
+
+    FraudRuleState() {
+    }
+
+    // Per-account sum, count and average as of before the scored transaction
+    public void requireAccountAggregates() {
+        accountAggregates = true;
+    }
+
+    // Per-account streaming quantile sketch of amounts as of before the scored transaction
+    public void requireAmountQuantiles() {
+        amountQuantiles = true;
+    }
+
+    // Incremental threshold pattern detection for the given threshold
+    public void requireThresholdPattern(int threshold) {
+        patternThresholds = Arrays.copyOf(patternThresholds, patternThresholds.length + 1);
+        patternThresholds[patternThresholds.length - 1] = threshold;
+    }
+
+    // Per-account count and total of debits stamped within the last window clock units
+    public void requireDebitVelocity(long window) {
+        velocityWindows = Arrays.copyOf(velocityWindows, velocityWindows.length + 1);
+        velocityWindows[velocityWindows.length - 1] = window;
+    }
+
+    // FraudRule.onAccepted for every accepted transaction; only the rule declaring this is called
+    public void requireAcceptNotifications() {
+        acceptNotifications = true;
+    }
+}
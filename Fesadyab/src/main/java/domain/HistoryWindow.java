@@ -0,0 +1,86 @@
+package domain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Retention policy for a windowed TransactionEngine: keep at most maxTransactions entries and only
+// entries stamped less than maxAge logical time units before the engine clock. 0 disables a bound.
+class HistoryWindow {
+    final int maxTransactions;
+    final long maxAge;
+    private long[] timestamps = new long[64];
+    private int head;
+    private int size;
+
+    HistoryWindow(int maxTransactions, long maxAge) {
+        if (maxTransactions < 0 || maxAge < 0) {
+            throw new IllegalArgumentException("window bounds must not be negative");
+        }
+        if (maxTransactions == 0 && maxAge == 0) {
+            throw new IllegalArgumentException("window needs a count or an age bound");
+        }
+        this.maxTransactions = maxTransactions;
+        this.maxAge = maxAge;
+    }
+
+    HistoryWindow copy() {
+        var copy = new HistoryWindow(maxTransactions, maxAge);
+        copy.timestamps = timestamps.clone();
+        copy.head = head;
+        copy.size = size;
+        return copy;
+    }
+
+    // Bounds, then the retained entries' timestamps oldest first (only kept when there is an age bound)
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(maxTransactions);
+        out.writeLong(maxAge);
+        out.writeInt(size);
+        if (maxAge != 0) {
+            for (var i = 0; i < size; i++) {
+                out.writeLong(timestamps[(head + i) % timestamps.length]);
+            }
+        }
+    }
+
+    static HistoryWindow readFrom(DataInput in) throws IOException {
+        var window = new HistoryWindow(in.readInt(), in.readLong());
+        var size = in.readInt();
+        for (var i = 0; i < size; i++) {
+            window.recordAppend(window.maxAge != 0 ? in.readLong() : 0);
+        }
+        return window;
+    }
+
+    void recordAppend(long timestamp) {
+        if (maxAge == 0) {
+            size++;
+            return;
+        }
+        if (size == timestamps.length) {
+            var grown = new long[size * 2];
+            for (var i = 0; i < size; i++) {
+                grown[i] = timestamps[(head + i) % size];
+            }
+            timestamps = grown;
+            head = 0;
+        }
+        timestamps[(head + size) % timestamps.length] = timestamp;
+        size++;
+    }
+
+    void recordEviction() {
+        if (maxAge != 0) {
+            head = (head + 1) % timestamps.length;
+        }
+        size--;
+    }
+
+    boolean shouldEvict(long now) {
+        if (maxTransactions > 0 && size > maxTransactions) {
+            return true;
+        }
+        return maxAge > 0 && size > 0 && now - timestamps[head] >= maxAge;
+    }
+}
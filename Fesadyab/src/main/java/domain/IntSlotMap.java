@@ -0,0 +1,106 @@
+package domain;
+
+import java.util.Arrays;
+
+// Open-addressing map from int keys to dense slot numbers (0, 1, 2, ...) in insertion order.
+// Callers keep their per-key state in parallel primitive arrays indexed by slot.
+class IntSlotMap {
+    private static final int NO_SLOT = -1;
+
+    private int[] table;
+    private int[] keys;
+    private int size;
+
+    IntSlotMap() {
+        this(16);
+    }
+
+    IntSlotMap(int expectedSize) {
+        table = new int[tableSizeFor(expectedSize)];
+        Arrays.fill(table, NO_SLOT);
+        keys = new int[Math.max(expectedSize, 4)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    IntSlotMap copy() {
+        var copy = new IntSlotMap(0);
+        copy.table = table.clone();
+        copy.keys = keys.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    // Keys of slots 0..size()-1. Later inserts only write past them, so another thread may read them
+    // after this map has moved on.
+    int[] keyArray() {
+        return keys;
+    }
+
+    // Bounded by the table length so a monitoring thread racing a rehash cannot probe forever
+    int slotOf(int key) {
+        var table = this.table;
+        var mask = table.length - 1;
+        for (int i = mix(key) & mask, probes = 0; probes < table.length; i = (i + 1) & mask, probes++) {
+            var slot = table[i];
+            if (slot == NO_SLOT || keys[slot] == key) {
+                return slot;
+            }
+        }
+        return NO_SLOT;
+    }
+
+    int slotFor(int key) {
+        var mask = table.length - 1;
+        var i = mix(key) & mask;
+        while (table[i] != NO_SLOT) {
+            if (keys[table[i]] == key) {
+                return table[i];
+            }
+            i = (i + 1) & mask;
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        keys[size] = key;
+        table[i] = size;
+        if (++size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return size - 1;
+    }
+
+    private void rehash(int capacity) {
+        var rehashed = new int[capacity];
+        Arrays.fill(rehashed, NO_SLOT);
+        var mask = capacity - 1;
+        for (var slot = 0; slot < size; slot++) {
+            var i = mix(keys[slot]) & mask;
+            while (rehashed[i] != NO_SLOT) {
+                i = (i + 1) & mask;
+            }
+            rehashed[i] = slot;
+        }
+        table = rehashed;
+    }
+
+    static int mix(int key) {
+        var h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static int tableSizeFor(int expectedSize) {
+        var capacity = 16;
+        while (capacity < expectedSize * 2L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,171 @@
+package domain;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Asynchronous front-end for a TransactionEngine. submit() may be called from any thread; submissions
+// go through a bounded MPSC queue to one engine thread, which coalesces them into micro-batches and
+// scores each batch with addTransactionsAndDetectFraud. A batch closes when it holds maxBatchSize
+// transactions or maxWaitNanos after its first transaction was taken, whichever comes first, so the
+// extra latency batching adds is bounded by maxWaitNanos. Scores equal those of the wrapped engine
+// fed in queue order. Futures complete on the engine thread; use the *Async variants for heavy callbacks.
+// While a batch waits for more transactions the engine thread parks until its deadline, and each
+// submission wakes it. Anything the engine throws, errors included, fails that batch's futures.
+public class MicroBatchingTransactionEngine implements AutoCloseable {
+    private final TransactionEngine engine;
+    private final MpscRingBuffer<Pending> queue;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final Thread worker;
+    private final AtomicInteger submitting = new AtomicInteger();
+    private volatile boolean running = true;
+    private volatile boolean parked;
+    private volatile long batchCount;
+    private volatile long transactionCount;
+
+    public MicroBatchingTransactionEngine(TransactionEngine engine) {
+        this(engine, 256, TimeUnit.MICROSECONDS.toNanos(200), 1 << 14);
+    }
+
+    // The engine is owned by the worker thread from now on and must not be used directly until close()
+    public MicroBatchingTransactionEngine(TransactionEngine engine, int maxBatchSize, long maxWaitNanos, int queueCapacity) {
+        if (maxBatchSize <= 0 || maxWaitNanos < 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive and maxWaitNanos not negative");
+        }
+        this.engine = engine;
+        this.queue = new MpscRingBuffer<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWaitNanos;
+        worker = new Thread(this::run, "fesadyab-micro-batcher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public CompletableFuture<Integer> submit(Transaction txn) {
+        var pending = new Pending(txn);
+        submitting.incrementAndGet();
+        try {
+            if (!running) {
+                throw new IllegalStateException("engine is closed");
+            }
+            for (var spins = 0; !queue.offer(pending); ) {
+                spins = BackOff.pause(spins);
+            }
+        } finally {
+            submitting.decrementAndGet();
+        }
+        // Pairs with the fence in parkUntil(): either the worker sees the element or this thread sees the flag
+        VarHandle.fullFence();
+        if (parked) {
+            LockSupport.unpark(worker);
+        }
+        return pending.result;
+    }
+
+    public long batchCount() {
+        return batchCount;
+    }
+
+    public double averageBatchSize() {
+        var batches = batchCount;
+        return batches == 0 ? 0 : (double) transactionCount / batches;
+    }
+
+    // Completes every submitted transaction, then stops the engine thread
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(worker);
+        worker.join();
+    }
+
+    private void run() {
+        var batch = new Pending[maxBatchSize];
+        var idleSpins = 0;
+        while (true) {
+            var first = queue.poll();
+            if (first == null) {
+                if (!running && submitting.get() == 0 && queue.isEmpty()) {
+                    return;
+                }
+                if (idleSpins < 200) {
+                    idleSpins = BackOff.pause(idleSpins);
+                } else {
+                    parkUntil(0);
+                }
+                continue;
+            }
+            idleSpins = 0;
+
+            batch[0] = first;
+            var size = 1;
+            var deadline = System.nanoTime() + maxWaitNanos;
+            for (var spins = 0; size < maxBatchSize; ) {
+                var pending = queue.poll();
+                if (pending != null) {
+                    batch[size++] = pending;
+                    spins = 0;
+                } else if (maxWaitNanos == 0 || !running || System.nanoTime() >= deadline) {
+                    break;
+                } else if (++spins < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    parkUntil(deadline);
+                }
+            }
+            process(batch, size);
+        }
+    }
+
+    private void process(Pending[] batch, int size) {
+        var txns = new Transaction[size];
+        for (var i = 0; i < size; i++) {
+            txns[i] = batch[i].txn;
+        }
+        int[] scores = null;
+        Throwable failure = null;
+        try {
+            scores = engine.addTransactionsAndDetectFraud(txns);
+        } catch (Throwable e) {
+            failure = e;
+        }
+        // Counted before any future completes, so a caller that has its result also sees its batch counted
+        transactionCount += size;
+        batchCount++;
+        for (var i = 0; i < size; i++) {
+            if (failure == null) {
+                batch[i].result.complete(scores[i]);
+            } else {
+                batch[i].result.completeExceptionally(failure);
+            }
+            batch[i] = null;
+        }
+    }
+
+    // Parks until a producer or close() signals or, unless it is 0, the deadline passes; re-checks the
+    // queue after publishing the flag so no wake-up is lost
+    private void parkUntil(long deadline) {
+        parked = true;
+        VarHandle.fullFence();
+        if (queue.isEmpty() && running) {
+            if (deadline == 0) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, deadline - System.nanoTime());
+            }
+        }
+        parked = false;
+    }
+
+    private static class Pending {
+        final Transaction txn;
+        final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+        Pending(Transaction txn) {
+            this.txn = txn;
+        }
+    }
+}
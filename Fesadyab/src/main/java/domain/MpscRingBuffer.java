@@ -0,0 +1,66 @@
+package domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded multi-producer/single-consumer queue. Producers claim a position with a CAS on tail; every slot
+// carries a sequence number that says whether it is free for position p (== p) or holds the element of
+// position p (== p + 1), so the consumer never sees a claimed slot before its element is written.
+class MpscRingBuffer<E> {
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a positive power of two");
+        }
+        buffer = new Object[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (var i = 0; i < capacity; i++) {
+            sequences.setPlain(i, i);
+        }
+        mask = capacity - 1;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    // Any thread
+    boolean offer(E element) {
+        while (true) {
+            var t = tail.get();
+            var sequence = sequences.getAcquire((int) t & mask);
+            if (sequence < t) {
+                return false;
+            }
+            if (sequence == t && tail.compareAndSet(t, t + 1)) {
+                buffer[(int) t & mask] = element;
+                sequences.setRelease((int) t & mask, t + 1);
+                return true;
+            }
+        }
+    }
+
+    // Consumer thread only
+    @SuppressWarnings("unchecked")
+    E poll() {
+        var index = (int) head & mask;
+        if (sequences.getAcquire(index) != head + 1) {
+            return null;
+        }
+        var element = (E) buffer[index];
+        buffer[index] = null;
+        sequences.setRelease(index, head + buffer.length);
+        head++;
+        return element;
+    }
+
+    // Consumer thread only; a producer that has claimed a slot but not yet filled it reads as empty
+    boolean isEmpty() {
+        return sequences.getAcquire((int) head & mask) != head + 1;
+    }
+}
@@ -0,0 +1,110 @@
+package domain;
+
+import java.nio.LongBuffer;
+import java.util.List;
+
+// Flyweight over transactions packed two longs each (see Transaction.packIdAndAccount/packAmountAndDebit)
+// in a long[] or a LongBuffer, e.g. a mapped file. moveTo() repositions the view, so iterating a batch
+// reads memory sequentially and allocates nothing. The engine reads entries by index instead.
+public class PackedTransactionView {
+    private final long[] array;
+    private final LongBuffer buffer;
+    private final int base;
+    private final int size;
+    private int index;
+
+    public PackedTransactionView(long[] packed) {
+        this(packed, 0, checkedSize(packed.length));
+    }
+
+    // Covers the count transactions starting at transaction index from, without copying
+    public PackedTransactionView(long[] packed, int from, int count) {
+        if (from < 0 || count < 0 || 2L * (from + (long) count) > packed.length) {
+            throw new IndexOutOfBoundsException("transactions " + from + ".." + (from + count) + " out of range");
+        }
+        array = packed;
+        buffer = null;
+        base = 2 * from;
+        size = count;
+    }
+
+    // Covers the buffer's remaining longs; later position changes of the buffer do not affect the view
+    public PackedTransactionView(LongBuffer packed) {
+        array = null;
+        buffer = packed.duplicate();
+        base = packed.position();
+        size = checkedSize(packed.remaining());
+    }
+
+    public static PackedTransactionView of(Transaction... txns) {
+        var packed = new long[txns.length * 2];
+        for (var i = 0; i < txns.length; i++) {
+            packed[2 * i] = txns[i].packIdAndAccount();
+            packed[2 * i + 1] = txns[i].packAmountAndDebit();
+        }
+        return new PackedTransactionView(packed);
+    }
+
+    public static PackedTransactionView of(List<Transaction> txns) {
+        return of(txns.toArray(new Transaction[0]));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public PackedTransactionView moveTo(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        this.index = index;
+        return this;
+    }
+
+    public int getTransactionId() {
+        return transactionIdAt(index);
+    }
+
+    public int getAccountId() {
+        return accountIdAt(index);
+    }
+
+    public int getAmount() {
+        return amountAt(index);
+    }
+
+    public boolean isDebit() {
+        return isDebitAt(index);
+    }
+
+    public Transaction toTransaction() {
+        return Transaction.unpack(word(2 * index), word(2 * index + 1));
+    }
+
+    int transactionIdAt(int index) {
+        return (int) (word(2 * index) >>> 32);
+    }
+
+    int accountIdAt(int index) {
+        return (int) word(2 * index);
+    }
+
+    int amountAt(int index) {
+        return (int) (word(2 * index + 1) >>> 32);
+    }
+
+    boolean isDebitAt(int index) {
+        return (word(2 * index + 1) & Transaction.PACKED_DEBIT) != 0;
+    }
+
+    private long word(int offset) {
+        return array != null ? array[base + offset] : buffer.get(base + offset);
+    }
+
+    private static int checkedSize(int longs) {
+        if ((longs & 1) != 0) {
+            throw new IllegalArgumentException("packed transactions take two longs each");
+        }
+        return longs / 2;
+    }
+}
@@ -0,0 +1,155 @@
+package domain;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+// Shard-per-core engine. submit() feeds a sequencer thread that owns all global state (id index,
+// history, threshold pattern) and evaluates it in submission order, then forwards each accepted
+// transaction to the shard that owns its account, where the excessive-debit rule runs against that
+// shard's aggregates. Every queue has one producer and one consumer, so no stage takes a lock, and
+// scores equal those of a single TransactionEngine fed in submission order.
+// If a stage throws, the transaction it was handling fails with that error, every transaction not yet
+// completed fails too, and submit() is rejected from then on: the global state may be half updated.
+// submit() and close() must be called from one producer thread.
+public class PartitionedTransactionEngine implements AutoCloseable {
+    private final SpscRingBuffer<Pending> sequencerQueue;
+    private final SpscRingBuffer<Pending>[] shardQueues;
+    private final Thread sequencer;
+    private final Thread[] shards;
+    private volatile boolean running = true;
+    private volatile Throwable failure;
+
+    final TransactionHistory transactionHistory = new ColumnarTransactionHistory();
+    final TransactionIdIndex transactionIds = new TransactionIdIndex();
+    final ThresholdPatternDetector patternDetector = new ThresholdPatternDetector();
+    final int THRESHOLD = 1000;
+
+    public PartitionedTransactionEngine() {
+        this(Runtime.getRuntime().availableProcessors(), 1 << 14);
+    }
+
+    @SuppressWarnings("unchecked")
+    public PartitionedTransactionEngine(int shardCount, int queueCapacity) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive");
+        }
+        patternDetector.track(THRESHOLD, transactionHistory);
+        sequencerQueue = new SpscRingBuffer<>(queueCapacity);
+        shardQueues = (SpscRingBuffer<Pending>[]) new SpscRingBuffer<?>[shardCount];
+        shards = new Thread[shardCount];
+        for (var i = 0; i < shardCount; i++) {
+            var queue = new SpscRingBuffer<Pending>(queueCapacity);
+            shardQueues[i] = queue;
+            shards[i] = startThread("fesadyab-shard-" + i, () -> runShard(queue));
+        }
+        sequencer = startThread("fesadyab-sequencer", this::runSequencer);
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public CompletableFuture<Integer> submit(Transaction txn) {
+        if (!running) {
+            throw new IllegalStateException("engine is closed");
+        }
+        if (failure != null) {
+            throw new IllegalStateException("engine failed", failure);
+        }
+        var pending = new Pending(txn);
+        offer(sequencerQueue, pending);
+        return pending.result;
+    }
+
+    // Completes every submitted transaction, then stops the sequencer and shard threads
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        sequencer.join();
+        for (var shard : shards) {
+            shard.join();
+        }
+    }
+
+    int shardOf(int accountId) {
+        return (int) (((IntSlotMap.mix(accountId) & 0xFFFFFFFFL) * shards.length) >>> 32);
+    }
+
+    private void runSequencer() {
+        drain(sequencerQueue, pending -> {
+            var txn = pending.txn;
+            if (!transactionIds.add(txn.transactionId)) {
+                pending.result.complete(0);
+                return;
+            }
+            pending.patternScore = patternDetector.getPattern(THRESHOLD);
+            transactionHistory.append(txn.transactionId, txn.accountId, txn.amount, txn.isDebit);
+            patternDetector.append(txn.transactionId, txn.amount);
+            offer(shardQueues[shardOf(txn.accountId)], pending);
+        }, () -> true);
+    }
+
+    private void runShard(SpscRingBuffer<Pending> queue) {
+        var aggregates = new AccountAggregates();
+        drain(queue, pending -> {
+            var txn = pending.txn;
+            var fraudScore = TransactionEngine.excessiveDebitScore(txn, aggregates.getAverage(txn.accountId));
+            aggregates.add(txn.accountId, txn.amount);
+            pending.result.complete(fraudScore != 0 ? fraudScore : pending.patternScore);
+        }, () -> !sequencer.isAlive());
+    }
+
+    // Runs until the engine is closed, the upstream stage has exited and the queue is empty
+    private void drain(SpscRingBuffer<Pending> queue, Consumer<Pending> handler, BooleanSupplier upstreamDone) {
+        var idleSpins = 0;
+        while (true) {
+            var pending = queue.poll();
+            if (pending != null) {
+                idleSpins = 0;
+                handle(pending, handler);
+            } else if (!running && upstreamDone.getAsBoolean() && queue.isEmpty()) {
+                return;
+            } else {
+                idleSpins = BackOff.pause(idleSpins);
+            }
+        }
+    }
+
+    // Once any stage has failed the others only fail what reaches them, so no queue stops draining
+    private void handle(Pending pending, Consumer<Pending> handler) {
+        if (failure != null) {
+            pending.result.completeExceptionally(new IllegalStateException("engine failed", failure));
+            return;
+        }
+        try {
+            handler.accept(pending);
+        } catch (Throwable e) {
+            failure = e;
+            pending.result.completeExceptionally(e);
+        }
+    }
+
+    private static void offer(SpscRingBuffer<Pending> queue, Pending pending) {
+        for (var spins = 0; !queue.offer(pending); ) {
+            spins = BackOff.pause(spins);
+        }
+    }
+
+    private static Thread startThread(String name, Runnable body) {
+        var thread = new Thread(body, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static class Pending {
+        final Transaction txn;
+        final CompletableFuture<Integer> result = new CompletableFuture<>();
+        int patternScore;
+
+        Pending(Transaction txn) {
+            this.txn = txn;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package domain;
+
+// Flags debits above the given quantile of the account's earlier amounts, once the account's sketch holds
+// at least minTransactions of them; scores the excess. Unlike the average, the quantile is not dragged up
+// by a few outliers. The sketch's own weight gates the rule, so an account the sketch has not seen (e.g.
+// restored from an older checkpoint) is never scored against an empty quantile.
+public class PercentileDebitRule implements FraudRule {
+    private final double quantile;
+    private final int minTransactions;
+
+    public PercentileDebitRule(double quantile, int minTransactions) {
+        if (quantile <= 0 || quantile > 1) {
+            throw new IllegalArgumentException("quantile must be in (0, 1]");
+        }
+        this.quantile = quantile;
+        this.minTransactions = minTransactions;
+    }
+
+    @Override
+    public void declareState(FraudRuleState state) {
+        state.requireAmountQuantiles();
+    }
+
+    @Override
+    public int score(ScoringContext context) {
+        if (!context.isDebit) {
+            return 0;
+        }
+        var weight = context.getAmountQuantileWeight();
+        if (weight == 0 || weight < minTransactions) {
+            return 0;
+        }
+        var limit = context.getAmountQuantile(quantile);
+        if (context.amount > limit) {
+            return context.amount - limit;
+        }
+
+        return 0;
+    }
+}
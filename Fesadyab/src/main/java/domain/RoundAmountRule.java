@@ -0,0 +1,26 @@
+package domain;
+
+// Flags amounts of at least minAmount that are an exact multiple of unit with a fixed score
+public class RoundAmountRule implements FraudRule {
+    private final int unit;
+    private final int minAmount;
+    private final int score;
+
+    public RoundAmountRule(int unit, int minAmount, int score) {
+        if (unit <= 0) {
+            throw new IllegalArgumentException("unit must be positive");
+        }
+        this.unit = unit;
+        this.minAmount = minAmount;
+        this.score = score;
+    }
+
+    @Override
+    public int score(ScoringContext context) {
+        if (context.amount >= minAmount && context.amount % unit == 0) {
+            return score;
+        }
+
+        return 0;
+    }
+}
@@ -0,0 +1,14 @@
+package domain;
+
+// One hash probe and three additions per row
+class ScalarAccountTotalsKernel implements AccountTotalsKernel {
+
+    @Override
+    public void accumulate(int[] accountIds, int[] amounts, long[] debitBits, int from, int to, AccountTotals totals) {
+        for (var row = from; row < to; row++) {
+            var amount = amounts[row];
+            var isDebit = (debitBits[row >>> 6] & (1L << row)) != 0;
+            totals.addAt(totals.slotFor(accountIds[row]), amount, 1, isDebit ? amount : 0);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+// The transaction being scored plus the engine state declared by the registered rules. One instance is
+// reused for every transaction of an engine, so rules must not keep a reference to it.
+@Getter
+public class ScoringContext {
+    @Getter(AccessLevel.NONE)
+    private TransactionEngine engine;
+    int transactionId;
+    int accountId;
+    int amount;
+    boolean isDebit;
+    long accountSum;
+    long accountCount;
+
+    void reset(TransactionEngine engine, int transactionId, int accountId, int amount, boolean isDebit, long accountSum, long accountCount) {
+        this.engine = engine;
+        this.transactionId = transactionId;
+        this.accountId = accountId;
+        this.amount = amount;
+        this.isDebit = isDebit;
+        this.accountSum = accountSum;
+        this.accountCount = accountCount;
+    }
+
+    public int getAverageAmount() {
+        return accountCount == 0 ? 0 : (int) (accountSum / accountCount);
+    }
+
+    // Approximate q-quantile (0..1) of the account's earlier amounts, from a bounded per-account sketch
+    public int getAmountQuantile(double q) {
+        return engine.getAmountQuantileByAccount(accountId, q);
+    }
+
+    // Number of the account's earlier amounts the quantile sketch has seen
+    public long getAmountQuantileWeight() {
+        return engine.getAmountQuantileWeightByAccount(accountId);
+    }
+
+    // Debits of the account stamped within the last window clock units, before this transaction
+    public int getDebitCountWithin(long window) {
+        return engine.getDebitVelocity(window).getCount(accountId, engine.clock);
+    }
+
+    public long getDebitTotalWithin(long window) {
+        return engine.getDebitVelocity(window).getTotal(accountId, engine.clock);
+    }
+
+    public int getPatternAboveThreshold(int threshold) {
+        return engine.getTransactionPatternAboveThreshold(threshold);
+    }
+}
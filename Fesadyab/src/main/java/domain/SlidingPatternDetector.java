@@ -0,0 +1,188 @@
+package domain;
+
+import java.util.Arrays;
+
+// Threshold pattern over a history whose oldest entries get evicted. With distinct ids the scan never
+// skips anything, and anchored at the oldest retained amount f the above-threshold amounts after it
+// must have the run shape [f...f] p [q...q] with p != f and q == p + (p - f); the result is then p - f.
+// So per threshold only a run-length deque of those amounts is kept and each append, eviction and
+// query is O(1). While a duplicate id is retained the detector falls back to the full scan.
+class SlidingPatternDetector {
+    private final TransactionHistory history;
+    private int[] thresholds = new int[0];
+    private AmountRuns[] runs = new AmountRuns[0];
+    private long appended;
+    private long evicted;
+    private long scanUntilEvicted = -1;
+
+    // The counters number entries from the oldest one in history, and a duplicate id already retained in it
+    // keeps the scan until its later occurrence is evicted
+    SlidingPatternDetector(TransactionHistory history) {
+        this.history = history;
+        appended = history.size();
+        var ids = new TransactionIdIndex();
+        for (var i = 0; i < history.size(); i++) {
+            if (!ids.add(history.transactionIdAt(i))) {
+                scanUntilEvicted = i;
+            }
+        }
+    }
+
+    boolean isTracking(int threshold) {
+        return indexOf(threshold) >= 0;
+    }
+
+    void track(int threshold) {
+        if (isTracking(threshold)) {
+            return;
+        }
+        var amountRuns = new AmountRuns();
+        for (var i = 1; i < history.size(); i++) {
+            if (history.amountAt(i) > threshold) {
+                amountRuns.push(history.amountAt(i));
+            }
+        }
+        thresholds = Arrays.copyOf(thresholds, thresholds.length + 1);
+        runs = Arrays.copyOf(runs, runs.length + 1);
+        thresholds[thresholds.length - 1] = threshold;
+        runs[runs.length - 1] = amountRuns;
+    }
+
+    // Evictions still needed before a retained duplicate id is gone and O(1) queries resume
+    long pendingScanEvictions() {
+        return Math.max(0, scanUntilEvicted - evicted + 1);
+    }
+
+    void scanForEvictions(long evictions) {
+        scanUntilEvicted = Math.max(scanUntilEvicted, evicted + evictions - 1);
+    }
+
+    // Call after the transaction was appended to history
+    void append(int amount, boolean duplicateId) {
+        if (duplicateId) {
+            scanUntilEvicted = appended;
+        }
+        appended++;
+        if (history.size() == 1) {
+            return;
+        }
+        for (var t = 0; t < thresholds.length; t++) {
+            if (amount > thresholds[t]) {
+                runs[t].push(amount);
+            }
+        }
+    }
+
+    // Call after the oldest transaction was removed from history
+    void evictOldest() {
+        evicted++;
+        if (history.isEmpty()) {
+            for (var amountRuns : runs) {
+                amountRuns.clear();
+            }
+            return;
+        }
+        var newOldest = history.amountAt(0);
+        for (var t = 0; t < thresholds.length; t++) {
+            if (newOldest > thresholds[t]) {
+                runs[t].popFirst();
+            }
+        }
+    }
+
+    int getPattern(int threshold) {
+        var t = indexOf(threshold);
+        if (t < 0) {
+            throw new IllegalArgumentException("threshold " + threshold + " is not tracked");
+        }
+        if (evicted <= scanUntilEvicted) {
+            return TransactionEngine.getTransactionPatternAboveThreshold(history, threshold);
+        }
+        if (history.isEmpty()) {
+            return 0;
+        }
+
+        var amountRuns = runs[t];
+        var oldestAmount = history.amountAt(0);
+        var pivot = amountRuns.size() > 0 && amountRuns.amountAt(0) == oldestAmount ? 1 : 0;
+        if (pivot == amountRuns.size()) {
+            return 0;
+        }
+
+        var diff = amountRuns.amountAt(pivot) - oldestAmount;
+        if (amountRuns.countAt(pivot) > 1) {
+            return 0;
+        }
+        if (pivot + 1 == amountRuns.size()) {
+            return diff;
+        }
+        if (pivot + 2 == amountRuns.size() && amountRuns.amountAt(pivot + 1) - amountRuns.amountAt(pivot) == diff) {
+            return diff;
+        }
+        return 0;
+    }
+
+    private int indexOf(int threshold) {
+        for (var t = 0; t < thresholds.length; t++) {
+            if (thresholds[t] == threshold) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    // Deque of (amount, repeat count) runs, oldest first
+    private static class AmountRuns {
+        private int[] amounts = new int[8];
+        private long[] counts = new long[8];
+        private int head;
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int amountAt(int index) {
+            return amounts[(head + index) & (amounts.length - 1)];
+        }
+
+        long countAt(int index) {
+            return counts[(head + index) & (amounts.length - 1)];
+        }
+
+        void push(int amount) {
+            var mask = amounts.length - 1;
+            if (size > 0 && amounts[(head + size - 1) & mask] == amount) {
+                counts[(head + size - 1) & mask]++;
+                return;
+            }
+            if (size == amounts.length) {
+                var grownAmounts = new int[size * 2];
+                var grownCounts = new long[size * 2];
+                for (var i = 0; i < size; i++) {
+                    grownAmounts[i] = amounts[(head + i) & mask];
+                    grownCounts[i] = counts[(head + i) & mask];
+                }
+                amounts = grownAmounts;
+                counts = grownCounts;
+                head = 0;
+                mask = amounts.length - 1;
+            }
+            amounts[(head + size) & mask] = amount;
+            counts[(head + size) & mask] = 1;
+            size++;
+        }
+
+        void popFirst() {
+            if (--counts[head] == 0) {
+                head = (head + 1) & (amounts.length - 1);
+                size--;
+            }
+        }
+
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package domain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// AccountAggregates holding at most maxCachedAccounts accounts in memory, in least-recently-used order.
+// Looking up an account that is not cached evicts the least recently used one to an AccountSpillFile
+// (written back only when it changed since it was loaded) and faults the looked-up account back in from
+// the file, or starts it empty. A slot from slotFor stays valid until the next slotFor call.
+// getSum, getCount and getAverage read the cache and then the file without changing either, so they
+// are safe for EngineStatistics readers and do not count as cache accesses.
+class SpillingAccountAggregates extends AccountAggregates implements AutoCloseable {
+    private static final int NO_SLOT = -1;
+
+    final int maxCachedAccounts;
+    final Path directory;
+    private final AccountSpillFile spillFile;
+    private final int[] table;
+    private final int[] keys;
+    private final long[] sums;
+    private final long[] counts;
+    // Doubly linked recency list over slots, head is the most recently used
+    private final int[] newer;
+    private final int[] older;
+    private final boolean[] dirty;
+    private final boolean[] spilled;
+    private int head = NO_SLOT;
+    private int tail = NO_SLOT;
+    private int cachedAccounts;
+    // Cached accounts with no copy in the spill file, so accountCount() counts every account once
+    private int unspilledAccounts;
+
+    private long hits;
+    private long misses;
+    private long faults;
+    private long evictions;
+    private long totalFaultNanos;
+    private long maxFaultNanos;
+
+    SpillingAccountAggregates(int maxCachedAccounts, Path directory) {
+        this(maxCachedAccounts, directory, 0);
+    }
+
+    // The spill file starts large enough for expectedAccounts, so filling it with putSpilled never rehashes
+    SpillingAccountAggregates(int maxCachedAccounts, Path directory, long expectedAccounts) {
+        this(checkedCacheSize(maxCachedAccounts), directory, AccountSpillFile.forAccounts(directory, expectedAccounts));
+    }
+
+    private SpillingAccountAggregates(int maxCachedAccounts, Path directory, AccountSpillFile spillFile) {
+        super(0);
+        this.maxCachedAccounts = maxCachedAccounts;
+        this.directory = directory;
+        this.spillFile = spillFile;
+        table = new int[IntSlotMap.tableSizeFor(maxCachedAccounts)];
+        Arrays.fill(table, NO_SLOT);
+        keys = new int[maxCachedAccounts];
+        sums = new long[maxCachedAccounts];
+        counts = new long[maxCachedAccounts];
+        newer = new int[maxCachedAccounts];
+        older = new int[maxCachedAccounts];
+        dirty = new boolean[maxCachedAccounts];
+        spilled = new boolean[maxCachedAccounts];
+    }
+
+    // Checked before the spill file is created, so a bad size leaves no file open
+    private static int checkedCacheSize(int maxCachedAccounts) {
+        if (maxCachedAccounts <= 0) {
+            throw new IllegalArgumentException("maxCachedAccounts must be positive");
+        }
+        return maxCachedAccounts;
+    }
+
+    // Reads the AccountAggregates wire format straight into a new spill file, leaving the cache empty
+    static SpillingAccountAggregates readFrom(DataInput in, int maxCachedAccounts, Path directory) throws IOException {
+        var accountCount = in.readInt();
+        var aggregates = new SpillingAccountAggregates(maxCachedAccounts, directory, accountCount);
+        try {
+            for (var i = 0; i < accountCount; i++) {
+                aggregates.putSpilled(in.readInt(), in.readLong(), in.readLong());
+            }
+        } catch (IOException | RuntimeException e) {
+            aggregates.close();
+            throw e;
+        }
+        return aggregates;
+    }
+
+    // Takes over every account of an in-memory aggregates; loading is not counted as cache traffic
+    static SpillingAccountAggregates load(AccountAggregates source, int maxCachedAccounts, Path directory) {
+        var aggregates = new SpillingAccountAggregates(maxCachedAccounts, directory);
+        for (var slot = 0; slot < source.accountCount(); slot++) {
+            aggregates.add(source.accountIdAt(slot), source.sumAt(slot), source.countAt(slot));
+        }
+        aggregates.hits = 0;
+        aggregates.misses = 0;
+        aggregates.faults = 0;
+        aggregates.evictions = 0;
+        aggregates.totalFaultNanos = 0;
+        aggregates.maxFaultNanos = 0;
+        return aggregates;
+    }
+
+    // Stores an account straight in the spill file, for filling an instance whose cache is still empty
+    void putSpilled(int accountId, long sum, long count) {
+        spillFile.put(accountId, sum, count);
+    }
+
+    // Frozen copy of every account for a checkpoint: changed cached accounts are written back, then the
+    // spill file is copied file to file, so the snapshot costs no heap however many accounts there are.
+    // The caller closes it once it has been written.
+    SpillingAccountAggregates snapshot() {
+        for (var slot = 0; slot < cachedAccounts; slot++) {
+            if (dirty[slot] || !spilled[slot]) {
+                spillFile.put(keys[slot], sums[slot], counts[slot]);
+                dirty[slot] = false;
+                spilled[slot] = true;
+            }
+        }
+        unspilledAccounts = 0;
+        return new SpillingAccountAggregates(maxCachedAccounts, directory, spillFile.copy());
+    }
+
+    AccountCacheMetrics metrics() {
+        return new AccountCacheMetrics(hits, misses, faults, evictions, totalFaultNanos, maxFaultNanos,
+                cachedAccounts, spillFile.size());
+    }
+
+    @Override
+    int accountCount() {
+        return (int) (spillFile.size() + unspilledAccounts);
+    }
+
+    @Override
+    int slotFor(int accountId) {
+        var slot = cachedSlotOf(accountId);
+        if (slot != NO_SLOT) {
+            hits++;
+            if (slot != head) {
+                unlink(slot);
+                pushHead(slot);
+            }
+            return slot;
+        }
+
+        misses++;
+        var start = System.nanoTime();
+        slot = cachedAccounts < maxCachedAccounts ? cachedAccounts++ : evictOldest();
+        var record = spillFile.find(accountId);
+        keys[slot] = accountId;
+        dirty[slot] = false;
+        spilled[slot] = record >= 0;
+        sums[slot] = record >= 0 ? spillFile.sumAt(record) : 0;
+        counts[slot] = record >= 0 ? spillFile.countAt(record) : 0;
+        if (record < 0) {
+            unspilledAccounts++;
+        }
+        insert(accountId, slot);
+        pushHead(slot);
+        if (record >= 0) {
+            var elapsed = System.nanoTime() - start;
+            faults++;
+            totalFaultNanos += elapsed;
+            maxFaultNanos = Math.max(maxFaultNanos, elapsed);
+        }
+        return slot;
+    }
+
+    @Override
+    int accountIdAt(int slot) {
+        return keys[slot];
+    }
+
+    @Override
+    long sumAt(int slot) {
+        return sums[slot];
+    }
+
+    @Override
+    long countAt(int slot) {
+        return counts[slot];
+    }
+
+    @Override
+    void addAt(int slot, long amountSum, long count) {
+        sums[slot] += amountSum;
+        counts[slot] += count;
+        dirty[slot] = true;
+    }
+
+    @Override
+    long getSum(int accountId) {
+        var slot = cachedSlotOf(accountId);
+        if (slot != NO_SLOT) {
+            return sums[slot];
+        }
+        var record = spillFile.find(accountId);
+        return record < 0 ? 0 : spillFile.sumAt(record);
+    }
+
+    @Override
+    long getCount(int accountId) {
+        var slot = cachedSlotOf(accountId);
+        if (slot != NO_SLOT) {
+            return counts[slot];
+        }
+        var record = spillFile.find(accountId);
+        return record < 0 ? 0 : spillFile.countAt(record);
+    }
+
+    @Override
+    int getAverage(int accountId) {
+        var slot = cachedSlotOf(accountId);
+        if (slot != NO_SLOT) {
+            return counts[slot] == 0 ? 0 : (int) (sums[slot] / counts[slot]);
+        }
+        var record = spillFile.find(accountId);
+        if (record < 0 || spillFile.countAt(record) == 0) {
+            return 0;
+        }
+        return (int) (spillFile.sumAt(record) / spillFile.countAt(record));
+    }
+
+    // In-memory copy of every account, cached ones first; the copy has no spill file behind it
+    @Override
+    AccountAggregates copy() {
+        var copy = new AccountAggregates(accountCount());
+        for (var slot = 0; slot < cachedAccounts; slot++) {
+            copy.addAt(copy.slotFor(keys[slot]), sums[slot], counts[slot]);
+        }
+        for (var record = 0L; record < spillFile.capacity(); record++) {
+            if (spillFile.isUsed(record) && cachedSlotOf(spillFile.accountIdAt(record)) == NO_SLOT) {
+                copy.addAt(copy.slotFor(spillFile.accountIdAt(record)), spillFile.sumAt(record), spillFile.countAt(record));
+            }
+        }
+        return copy;
+    }
+
+    // Streams the cached accounts and then the spill file's records, in the AccountAggregates format
+    @Override
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(accountCount());
+        for (var slot = 0; slot < cachedAccounts; slot++) {
+            out.writeInt(keys[slot]);
+            out.writeLong(sums[slot]);
+            out.writeLong(counts[slot]);
+        }
+        for (var record = 0L; record < spillFile.capacity(); record++) {
+            if (spillFile.isUsed(record) && cachedSlotOf(spillFile.accountIdAt(record)) == NO_SLOT) {
+                out.writeInt(spillFile.accountIdAt(record));
+                out.writeLong(spillFile.sumAt(record));
+                out.writeLong(spillFile.countAt(record));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        spillFile.close();
+    }
+
+    // Bounded by the table length so a reader racing an eviction cannot probe forever
+    private int cachedSlotOf(int accountId) {
+        var mask = table.length - 1;
+        for (int i = IntSlotMap.mix(accountId) & mask, probes = 0; probes < table.length; i = (i + 1) & mask, probes++) {
+            var slot = table[i];
+            if (slot == NO_SLOT) {
+                return NO_SLOT;
+            }
+            if (keys[slot] == accountId) {
+                return slot;
+            }
+        }
+        return NO_SLOT;
+    }
+
+    private int evictOldest() {
+        var slot = tail;
+        unlink(slot);
+        remove(keys[slot]);
+        if (dirty[slot] || !spilled[slot]) {
+            spillFile.put(keys[slot], sums[slot], counts[slot]);
+        }
+        if (!spilled[slot]) {
+            unspilledAccounts--;
+        }
+        evictions++;
+        return slot;
+    }
+
+    private void insert(int accountId, int slot) {
+        var mask = table.length - 1;
+        var i = IntSlotMap.mix(accountId) & mask;
+        while (table[i] != NO_SLOT) {
+            i = (i + 1) & mask;
+        }
+        table[i] = slot;
+    }
+
+    // Backward-shift deletion keeps every remaining key reachable from its home bucket without tombstones
+    private void remove(int accountId) {
+        var mask = table.length - 1;
+        var i = IntSlotMap.mix(accountId) & mask;
+        while (keys[table[i]] != accountId) {
+            i = (i + 1) & mask;
+        }
+        for (var j = (i + 1) & mask; table[j] != NO_SLOT; j = (j + 1) & mask) {
+            var home = IntSlotMap.mix(keys[table[j]]) & mask;
+            // Move the entry at j into the hole unless its home lies cyclically in (i, j]
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                table[i] = table[j];
+                i = j;
+            }
+        }
+        table[i] = NO_SLOT;
+    }
+
+    private void unlink(int slot) {
+        if (newer[slot] != NO_SLOT) {
+            older[newer[slot]] = older[slot];
+        } else {
+            head = older[slot];
+        }
+        if (older[slot] != NO_SLOT) {
+            newer[older[slot]] = newer[slot];
+        } else {
+            tail = newer[slot];
+        }
+    }
+
+    private void pushHead(int slot) {
+        newer[slot] = NO_SLOT;
+        older[slot] = head;
+        if (head != NO_SLOT) {
+            newer[head] = slot;
+        }
+        head = slot;
+        if (tail == NO_SLOT) {
+            tail = slot;
+        }
+    }
+}
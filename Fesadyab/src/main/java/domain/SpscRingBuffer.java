@@ -0,0 +1,61 @@
+package domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded single-producer/single-consumer queue. Each side caches the other side's index and only
+// re-reads it (with acquire semantics) when the buffer looks full or empty.
+class SpscRingBuffer<E> {
+    private final Object[] buffer;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private long cachedHead;
+    private long cachedTail;
+
+    SpscRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a positive power of two");
+        }
+        buffer = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    boolean isEmpty() {
+        return head.getAcquire() == tail.getAcquire();
+    }
+
+    // Producer thread only
+    boolean offer(E element) {
+        var t = tail.getPlain();
+        if (t - cachedHead == buffer.length) {
+            cachedHead = head.getAcquire();
+            if (t - cachedHead == buffer.length) {
+                return false;
+            }
+        }
+        buffer[(int) t & mask] = element;
+        tail.setRelease(t + 1);
+        return true;
+    }
+
+    // Consumer thread only
+    @SuppressWarnings("unchecked")
+    E poll() {
+        var h = head.getPlain();
+        if (h == cachedTail) {
+            cachedTail = tail.getAcquire();
+            if (h == cachedTail) {
+                return null;
+            }
+        }
+        var index = (int) h & mask;
+        var element = (E) buffer[index];
+        buffer[index] = null;
+        head.setRelease(h + 1);
+        return element;
+    }
+}
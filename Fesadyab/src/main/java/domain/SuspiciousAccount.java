@@ -0,0 +1,20 @@
+package domain;
+
+import lombok.Getter;
+
+// Leaderboard entry: an account and its cumulative fraud score at snapshot time
+@Getter
+public class SuspiciousAccount {
+    private final int accountId;
+    private final long cumulativeScore;
+
+    SuspiciousAccount(int accountId, long cumulativeScore) {
+        this.accountId = accountId;
+        this.cumulativeScore = cumulativeScore;
+    }
+
+    @Override
+    public String toString() {
+        return accountId + "=" + cumulativeScore;
+    }
+}
@@ -0,0 +1,152 @@
+package domain;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Per-account cumulative fraud score (sum of |score|) with the K highest accounts kept in an indexed
+// min-heap. Cumulative scores only grow, so an account outside the heap enters exactly when it passes the
+// heap minimum and every update is O(log K). The engine thread updates it; other threads copy the heap
+// under a seqlock, so a reader retries instead of ever blocking ingestion.
+class SuspiciousAccountLeaderboard {
+    private final IntSlotMap slots = new IntSlotMap();
+    private long[] cumulativeScores = new long[16];
+    private int[] heapPositions = new int[16];
+
+    private final int[] heapAccounts;
+    private final long[] heapScores;
+    private final int[] heapSlots;
+    private int heapSize;
+    // Odd while the engine thread is changing the heap
+    private final AtomicLong sequence = new AtomicLong();
+
+    SuspiciousAccountLeaderboard(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        heapAccounts = new int[k];
+        heapScores = new long[k];
+        heapSlots = new int[k];
+        Arrays.fill(heapPositions, -1);
+    }
+
+    int k() {
+        return heapAccounts.length;
+    }
+
+    // Engine thread only
+    long cumulativeScore(int accountId) {
+        var slot = slots.slotOf(accountId);
+        return slot < 0 ? 0 : cumulativeScores[slot];
+    }
+
+    // Engine thread only
+    void record(int accountId, int fraudScore) {
+        if (fraudScore == 0) {
+            return;
+        }
+        var slot = slots.slotFor(accountId);
+        if (slot == cumulativeScores.length) {
+            cumulativeScores = Arrays.copyOf(cumulativeScores, slot * 2);
+            heapPositions = Arrays.copyOf(heapPositions, slot * 2);
+            Arrays.fill(heapPositions, slot, slot * 2, -1);
+        }
+        var score = cumulativeScores[slot] += Math.abs((long) fraudScore);
+
+        var position = heapPositions[slot];
+        if (position < 0 && heapSize == heapAccounts.length && score <= heapScores[0]) {
+            return;
+        }
+
+        var s = sequence.getPlain();
+        sequence.setOpaque(s + 1);
+        VarHandle.storeStoreFence();
+        if (position >= 0) {
+            heapScores[position] = score;
+            siftDown(position);
+        } else if (heapSize < heapAccounts.length) {
+            place(heapSize++, accountId, score, slot);
+            siftUp(heapSize - 1);
+        } else {
+            heapPositions[heapSlots[0]] = -1;
+            place(0, accountId, score, slot);
+            siftDown(0);
+        }
+        sequence.setRelease(s + 2);
+    }
+
+    // Any thread: a consistent copy of the top K, highest cumulative score first
+    List<SuspiciousAccount> snapshot() {
+        var accounts = new int[heapAccounts.length];
+        var scores = new long[heapAccounts.length];
+        int size;
+        for (var spins = 0; ; spins = BackOff.pause(spins)) {
+            var before = sequence.getAcquire();
+            if ((before & 1) != 0) {
+                continue;
+            }
+            size = heapSize;
+            System.arraycopy(heapAccounts, 0, accounts, 0, size);
+            System.arraycopy(heapScores, 0, scores, 0, size);
+            VarHandle.loadLoadFence();
+            if (sequence.getOpaque() == before) {
+                break;
+            }
+        }
+
+        var result = new ArrayList<SuspiciousAccount>(size);
+        for (var i = 0; i < size; i++) {
+            result.add(new SuspiciousAccount(accounts[i], scores[i]));
+        }
+        result.sort(Comparator.comparingLong(SuspiciousAccount::getCumulativeScore).reversed()
+                .thenComparingInt(SuspiciousAccount::getAccountId));
+        return result;
+    }
+
+    private void place(int position, int accountId, long score, int slot) {
+        heapAccounts[position] = accountId;
+        heapScores[position] = score;
+        heapSlots[position] = slot;
+        heapPositions[slot] = position;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            var parent = (position - 1) >>> 1;
+            if (heapScores[parent] <= heapScores[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            var smallest = position;
+            var left = 2 * position + 1;
+            if (left < heapSize && heapScores[left] < heapScores[smallest]) {
+                smallest = left;
+            }
+            if (left + 1 < heapSize && heapScores[left + 1] < heapScores[smallest]) {
+                smallest = left + 1;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        var account = heapAccounts[a];
+        var score = heapScores[a];
+        var slot = heapSlots[a];
+        place(a, heapAccounts[b], heapScores[b], heapSlots[b]);
+        place(b, account, score, slot);
+    }
+}
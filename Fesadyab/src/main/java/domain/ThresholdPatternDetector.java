@@ -0,0 +1,142 @@
+package domain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Streaming form of TransactionEngine.getTransactionPatternAboveThreshold. The scan is a left fold over
+// the history that only ever looks at the previous matched transaction and the current difference, so
+// keeping that state per threshold gives the scan's result in O(1) per appended transaction.
+class ThresholdPatternDetector {
+    private int[] thresholds = new int[0];
+    private int[] previousIds = new int[0];
+    private int[] previousAmounts = new int[0];
+    private int[] diffs = new int[0];
+    private boolean[] broken = new boolean[0];
+    private boolean seenFirst;
+    private int firstId;
+    private int firstAmount;
+
+    ThresholdPatternDetector copy() {
+        var copy = new ThresholdPatternDetector();
+        copy.thresholds = thresholds.clone();
+        copy.previousIds = previousIds.clone();
+        copy.previousAmounts = previousAmounts.clone();
+        copy.diffs = diffs.clone();
+        copy.broken = broken.clone();
+        copy.seenFirst = seenFirst;
+        copy.firstId = firstId;
+        copy.firstAmount = firstAmount;
+        return copy;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeBoolean(seenFirst);
+        out.writeInt(firstId);
+        out.writeInt(firstAmount);
+        out.writeInt(thresholds.length);
+        for (var t = 0; t < thresholds.length; t++) {
+            out.writeInt(thresholds[t]);
+            out.writeInt(previousIds[t]);
+            out.writeInt(previousAmounts[t]);
+            out.writeInt(diffs[t]);
+            out.writeBoolean(broken[t]);
+        }
+    }
+
+    static ThresholdPatternDetector readFrom(DataInput in) throws IOException {
+        var detector = new ThresholdPatternDetector();
+        detector.seenFirst = in.readBoolean();
+        detector.firstId = in.readInt();
+        detector.firstAmount = in.readInt();
+        var count = in.readInt();
+        detector.thresholds = new int[count];
+        detector.previousIds = new int[count];
+        detector.previousAmounts = new int[count];
+        detector.diffs = new int[count];
+        detector.broken = new boolean[count];
+        for (var t = 0; t < count; t++) {
+            detector.thresholds[t] = in.readInt();
+            detector.previousIds[t] = in.readInt();
+            detector.previousAmounts[t] = in.readInt();
+            detector.diffs[t] = in.readInt();
+            detector.broken[t] = in.readBoolean();
+        }
+        return detector;
+    }
+
+    int[] thresholds() {
+        return thresholds.clone();
+    }
+
+    boolean isTracking(int threshold) {
+        return indexOf(threshold) >= 0;
+    }
+
+    // Registers a threshold and catches it up with the transactions already in history
+    void track(int threshold, TransactionHistory history) {
+        if (isTracking(threshold)) {
+            return;
+        }
+        var t = thresholds.length;
+        thresholds = Arrays.copyOf(thresholds, t + 1);
+        previousIds = Arrays.copyOf(previousIds, t + 1);
+        previousAmounts = Arrays.copyOf(previousAmounts, t + 1);
+        diffs = Arrays.copyOf(diffs, t + 1);
+        broken = Arrays.copyOf(broken, t + 1);
+        thresholds[t] = threshold;
+        previousIds[t] = firstId;
+        previousAmounts[t] = firstAmount;
+
+        for (var i = 1; i < history.size(); i++) {
+            advance(t, history.transactionIdAt(i), history.amountAt(i));
+        }
+    }
+
+    void append(int transactionId, int amount) {
+        if (!seenFirst) {
+            seenFirst = true;
+            firstId = transactionId;
+            firstAmount = amount;
+            Arrays.fill(previousIds, transactionId);
+            Arrays.fill(previousAmounts, amount);
+            return;
+        }
+
+        for (var t = 0; t < thresholds.length; t++) {
+            advance(t, transactionId, amount);
+        }
+    }
+
+    int getPattern(int threshold) {
+        var t = indexOf(threshold);
+        if (t < 0) {
+            throw new IllegalArgumentException("threshold " + threshold + " is not tracked");
+        }
+        return broken[t] ? 0 : diffs[t];
+    }
+
+    private void advance(int t, int transactionId, int amount) {
+        if (broken[t] || transactionId == previousIds[t] || amount <= thresholds[t]) {
+            return;
+        }
+
+        if (diffs[t] == 0) {
+            diffs[t] = amount - previousAmounts[t];
+            previousIds[t] = transactionId;
+            previousAmounts[t] = amount;
+        } else if (diffs[t] != amount - previousAmounts[t]) {
+            broken[t] = true;
+        }
+    }
+
+    private int indexOf(int threshold) {
+        for (var t = 0; t < thresholds.length; t++) {
+            if (thresholds[t] == threshold) {
+                return t;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,20 @@
+package domain;
+
+// Scores the common difference of the arithmetic progression formed by history amounts above threshold
+public class ThresholdPatternRule implements FraudRule {
+    private final int threshold;
+
+    public ThresholdPatternRule(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void declareState(FraudRuleState state) {
+        state.requireThresholdPattern(threshold);
+    }
+
+    @Override
+    public int score(ScoringContext context) {
+        return context.getPatternAboveThreshold(threshold);
+    }
+}
@@ -10,6 +10,37 @@ public class Transaction {
     int accountId;
     int amount;
     boolean isDebit;
+    // Event time in engine clock units; 0 stamps the transaction with the engine clock. Not part of the
+    // packed form.
+    long timestamp;
+
+    // Packed form: two longs, (transactionId << 32 | accountId) and (amount << 32 | flags)
+    static final long PACKED_DEBIT = 1;
+
+    public long packIdAndAccount() {
+        return packIdAndAccount(transactionId, accountId);
+    }
+
+    public long packAmountAndDebit() {
+        return packAmountAndDebit(amount, isDebit);
+    }
+
+    public static long packIdAndAccount(int transactionId, int accountId) {
+        return (long) transactionId << 32 | (accountId & 0xFFFFFFFFL);
+    }
+
+    public static long packAmountAndDebit(int amount, boolean isDebit) {
+        return (long) amount << 32 | (isDebit ? PACKED_DEBIT : 0);
+    }
+
+    public static Transaction unpack(long idAndAccount, long amountAndDebit) {
+        var txn = new Transaction();
+        txn.transactionId = (int) (idAndAccount >>> 32);
+        txn.accountId = (int) idAndAccount;
+        txn.amount = (int) (amountAndDebit >>> 32);
+        txn.isDebit = (amountAndDebit & PACKED_DEBIT) != 0;
+        return txn;
+    }
 
     @Override
     public boolean equals(Object obj) {
@@ -1,54 +1,490 @@
 package domain;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class TransactionEngine {
-    ArrayList<Transaction> transactionHistory;
-    int THRESHOLD = 1000;
+public class TransactionEngine implements AutoCloseable {
+    // One daemon thread writes every engine's checkpoints in turn; an exit mid-write leaves the previous
+    // checkpoint file in place
+    private static final ExecutorService CHECKPOINT_WRITER = Executors.newSingleThreadExecutor(body -> {
+        var thread = new Thread(body, "fesadyab-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    TransactionHistory transactionHistory;
+    AccountAggregates accountAggregates;
+    AccountQuantileSketches accountQuantiles;
+    DebitVelocity[] debitVelocities = new DebitVelocity[0];
+    TransactionIdIndex transactionIds;
+    ThresholdPatternDetector patternDetector;
+    HistoryWindow historyWindow;
+    SlidingPatternDetector slidingPatternDetector;
+    TransactionJournal journal;
+    SuspiciousAccountLeaderboard leaderboard;
+    DecisionTrace decisionTrace;
+    FraudRule[] rules;
+    FraudRule[] statefulRules;
+    FraudRuleState ruleState;
+    ScoringContext scoringContext;
+    long clock;
+    long restoredJournalPosition;
+    boolean partialHistory;
+    // Seqlock over the state EngineStatistics reads: odd while a write section is open
+    final AtomicLong statisticsVersion = new AtomicLong();
+    int statisticsWriteDepth;
+    // Threshold of the default ThresholdPatternRule, at which the trace and statistics report the pattern
+    final int THRESHOLD = 1000;
 
     public TransactionEngine() {
-        transactionHistory = new ArrayList<>();
+        this(0);
+    }
+
+    // maxRememberedIds > 0 caps the duplicate index to the most recent ids; 0 remembers every id
+    public TransactionEngine(int maxRememberedIds) {
+        transactionHistory = new ColumnarTransactionHistory();
+        accountAggregates = new AccountAggregates();
+        transactionIds = new TransactionIdIndex(maxRememberedIds);
+        patternDetector = new ThresholdPatternDetector();
+        scoringContext = new ScoringContext();
+        setRules(List.of(new ExcessiveDebitRule(2), new ThresholdPatternRule(THRESHOLD)));
+    }
+
+    // Replaces the rule pipeline; rules are evaluated in list order and the first non-zero score wins
+    public void setRules(List<FraudRule> rules) {
+        this.rules = new FraudRule[0];
+        this.statefulRules = new FraudRule[0];
+        ruleState = new FraudRuleState();
+        rules.forEach(this::addRule);
+    }
+
+    // Appends a rule with the lowest priority
+    public void addRule(FraudRule rule) {
+        ruleState.acceptNotifications = false;
+        rule.declareState(ruleState);
+        for (var threshold : ruleState.patternThresholds) {
+            trackPatternThreshold(threshold);
+        }
+        if (ruleState.amountQuantiles && accountQuantiles == null) {
+            trackAmountQuantiles();
+        }
+        for (var window : ruleState.velocityWindows) {
+            trackDebitVelocity(window);
+        }
+        rules = Arrays.copyOf(rules, rules.length + 1);
+        rules[rules.length - 1] = rule;
+        if (ruleState.acceptNotifications) {
+            statefulRules = Arrays.copyOf(statefulRules, statefulRules.length + 1);
+            statefulRules[statefulRules.length - 1] = rule;
+        }
+    }
+
+    public List<FraudRule> getRules() {
+        return List.of(rules);
     }
 
     int getAverageTransactionAmountByAccount(int accountId) {
-        var totalAmount = 0;
-        var count = 0;
+        return accountAggregates.getAverage(accountId);
+    }
 
-        for (Transaction txn : transactionHistory) {
-            if (txn.accountId == accountId) {
-                totalAmount += txn.amount;
-                count++;
+    DebitVelocity getDebitVelocity(long window) {
+        for (var velocity : debitVelocities) {
+            if (velocity.window == window) {
+                return velocity;
             }
         }
+        throw new IllegalArgumentException("debit velocity over " + window + " is not tracked, declare it with requireDebitVelocity");
+    }
 
-        if (count == 0) {
-            return 0;
+    // 0 until a rule declares amount quantiles
+    int getAmountQuantileByAccount(int accountId, double q) {
+        return accountQuantiles == null ? 0 : accountQuantiles.getQuantile(accountId, q);
+    }
+
+    long getAmountQuantileWeightByAccount(int accountId) {
+        return accountQuantiles == null ? 0 : accountQuantiles.getCount(accountId);
+    }
+
+    // Consults a Bloom filter before the exact duplicate index, so most new ids skip the index probe.
+    // Replaces any filter enabled before; the filter's counters show when it needs resizing.
+    public void enableDuplicateFilter(long expectedIds, double falsePositiveRate) {
+        transactionIds.useFilter(new BloomFilter(expectedIds, falsePositiveRate));
+    }
+
+    public BloomFilter getDuplicateFilter() {
+        return transactionIds.filter();
+    }
+
+    // Keeps a per-account cumulative fraud score (sum of |score| over scored transactions from now on)
+    // and the k accounts with the highest one
+    public void trackTopSuspiciousAccounts(int k) {
+        if (leaderboard != null) {
+            throw new IllegalStateException("suspicious accounts are already tracked");
+        }
+        leaderboard = new SuspiciousAccountLeaderboard(k);
+    }
+
+    // Safe to call from any thread while this engine ingests (enable tracking before sharing the engine):
+    // an O(K) consistent copy, highest score first
+    public List<SuspiciousAccount> getTopSuspiciousAccounts() {
+        return leaderboard != null ? leaderboard.snapshot() : List.of();
+    }
+
+    long getCumulativeFraudScore(int accountId) {
+        return leaderboard != null ? leaderboard.cumulativeScore(accountId) : 0;
+    }
+
+    public void enableDecisionTrace(int capacity) {
+        enableDecisionTrace(capacity, 64);
+    }
+
+    // Records every scored transaction from now on into a ring of the last capacity decisions, replacing
+    // any trace enabled before; every timingInterval-th decision also carries its scoring time. Both are
+    // powers of two. Costs a few array stores per transaction; a disabled trace costs nothing.
+    public void enableDecisionTrace(int capacity, int timingInterval) {
+        decisionTrace = new DecisionTrace(capacity, timingInterval);
+    }
+
+    public void disableDecisionTrace() {
+        decisionTrace = null;
+    }
+
+    // Safe to call from any thread while this engine ingests (enable tracing before sharing the engine):
+    // the retained decisions, oldest first
+    public List<FraudDecision> getDecisionTrace() {
+        var trace = decisionTrace;
+        return trace != null ? trace.dump() : List.of();
+    }
+
+    // Safe to use from any thread while this engine ingests: reads retry instead of blocking the engine
+    // thread, and a batch is applied in one write section, so it is never seen half done
+    public EngineStatistics getStatistics() {
+        return new EngineStatistics(this, statisticsVersion);
+    }
+
+    // Retains at most maxTransactions entries and/or entries younger than maxAge clock units (0 = no bound).
+    // Evicted transactions leave the averages, the duplicate index and the threshold pattern. Needs an
+    // unbounded duplicate index: a bounded one could forget an id whose transaction is still retained.
+    public void enableHistoryWindow(int maxTransactions, long maxAge) {
+        if (historyWindow != null) {
+            throw new IllegalStateException("history window is already enabled");
+        }
+        if (transactionIds.isBounded()) {
+            throw new IllegalStateException("history window needs an unbounded duplicate index");
+        }
+        if (partialHistory) {
+            throw new IllegalStateException("history window needs the full history, restore a checkpoint with history");
+        }
+        var window = new HistoryWindow(maxTransactions, maxAge);
+        for (var i = 0; i < transactionHistory.size(); i++) {
+            window.recordAppend(clock);
+        }
+        beginStatisticsWrite();
+        try {
+            historyWindow = window;
+            slidingPatternDetector = new SlidingPatternDetector(transactionHistory);
+            for (var threshold : patternDetector.thresholds()) {
+                slidingPatternDetector.track(threshold);
+            }
+            evictExpired();
+        } finally {
+            endStatisticsWrite();
+        }
+    }
+
+    // Keeps at most maxCachedAccounts accounts' aggregates in memory, least recently used first out; evicted
+    // accounts spill to a memory-mapped temporary file in directory and are faulted back in when they next
+    // transact. Reads such as getAverageTransactionAmountByAccount look in the file without faulting.
+    public void enableAccountSpill(int maxCachedAccounts, Path directory) {
+        if (accountAggregates instanceof SpillingAccountAggregates) {
+            throw new IllegalStateException("account spill is already enabled");
+        }
+        installAccountAggregates(SpillingAccountAggregates.load(accountAggregates, maxCachedAccounts, directory));
+    }
+
+    // Faults every spilled account back into memory and deletes the spill file
+    public void disableAccountSpill() {
+        if (accountAggregates instanceof SpillingAccountAggregates spilling) {
+            installAccountAggregates(spilling.copy());
+        }
+    }
+
+    // Deletes the account spill file without faulting its accounts back in; the engine is not usable
+    // afterwards. An attached journal is left open for its owner to close.
+    @Override
+    public void close() {
+        if (accountAggregates instanceof SpillingAccountAggregates spilling) {
+            spilling.close();
+        }
+    }
+
+    // Hit rate and fault latency of the account cache, null unless account spill is enabled. Call from the
+    // ingesting thread; monitoring threads use getStatistics().getAccountCacheMetrics().
+    public AccountCacheMetrics getAccountCacheMetrics() {
+        return accountAggregates instanceof SpillingAccountAggregates spilling ? spilling.metrics() : null;
+    }
+
+    // Rebuilds the per-account aggregates from the retained history in one bulk pass, split across the
+    // common ForkJoin pool for large histories (see AccountStatisticsRecompute)
+    public void recomputeAccountStatistics() {
+        recomputeAccountStatistics(AccountStatisticsRecompute.defaultKernel());
+    }
+
+    void recomputeAccountStatistics(AccountStatisticsRecompute.Kernel kernel) {
+        if (partialHistory) {
+            throw new IllegalStateException("account statistics need the full history, restore a checkpoint with history");
+        }
+        var totals = AccountStatisticsRecompute.compute((ColumnarTransactionHistory) transactionHistory, kernel,
+                ForkJoinPool.commonPool());
+        installAccountAggregates(accountAggregates instanceof SpillingAccountAggregates spilling
+                ? totals.toSpillingAggregates(spilling.maxCachedAccounts, spilling.directory)
+                : totals.toAggregates());
+    }
+
+    private void installAccountAggregates(AccountAggregates aggregates) {
+        var previous = accountAggregates;
+        beginStatisticsWrite();
+        try {
+            accountAggregates = aggregates;
+        } finally {
+            endStatisticsWrite();
+        }
+        // Readers still holding the old spill file's mapping keep a valid view after the close
+        if (previous instanceof SpillingAccountAggregates spilling) {
+            spilling.close();
+        }
+    }
+
+    // Rebuilds state from the journal's records (only those after a restored checkpoint), then journals
+    // every transaction accepted from now on
+    public void attachJournal(TransactionJournal journal) {
+        if (this.journal != null) {
+            throw new IllegalStateException("a journal is already attached");
+        }
+        if (journal.size() < restoredJournalPosition) {
+            throw new IllegalStateException("journal ends before the restored checkpoint");
+        }
+        journal.replay(restoredJournalPosition, this::appendToHistory);
+        this.journal = journal;
+    }
+
+    public CompletableFuture<Void> checkpoint(Path path) {
+        return checkpoint(path, false);
+    }
+
+    // Captures the derived state on the calling thread and copies and writes it to path in the background.
+    // The large arrays are captured copy-on-write (see CopyOnWritePages), so until the copy is done the
+    // engine keeps aside only the pages it changes; the rest is cloned on the calling thread, and the
+    // attached journal is synced so the checkpoint never covers records the journal could lose.
+    // Retained history is written when includeHistory is set or a window is enabled; without it a restored
+    // engine answers untracked pattern thresholds from the history accepted after the restore.
+    public CompletableFuture<Void> checkpoint(Path path, boolean includeHistory) {
+        var checkpoint = captureCheckpoint(includeHistory);
+        var written = new CompletableFuture<Void>();
+        CHECKPOINT_WRITER.execute(() -> {
+            try {
+                checkpoint.completeCopies();
+                checkpoint.write(path);
+                written.complete(null);
+            } catch (IOException | RuntimeException e) {
+                written.completeExceptionally(e);
+            } finally {
+                checkpoint.close();
+            }
+        });
+        return written;
+    }
+
+    // Loads a checkpoint into a fresh engine in time proportional to its size, not to the transactions
+    // behind it. Attach the journal afterwards to replay only the records appended since. With account
+    // spill enabled the accounts are read straight into a new spill file.
+    public void restoreCheckpoint(Path path) throws IOException {
+        if (journal != null || historyWindow != null || accountAggregates.accountCount() > 0
+                || transactionIds.size() > 0 || !transactionHistory.isEmpty()) {
+            throw new IllegalStateException("a checkpoint can only be restored into a fresh engine");
+        }
+        var checkpoint = EngineCheckpoint.read(path,
+                accountAggregates instanceof SpillingAccountAggregates spilling ? spilling : null);
+        if (transactionIds.filter() != null) {
+            checkpoint.transactionIds.useFilter(transactionIds.filter());
+        }
+        beginStatisticsWrite();
+        try {
+            restoredJournalPosition = checkpoint.journalPosition;
+            clock = checkpoint.clock;
+            installAccountAggregates(checkpoint.accountAggregates);
+            transactionIds = checkpoint.transactionIds;
+            patternDetector = checkpoint.patternDetector;
+            partialHistory = checkpoint.transactionHistory == null;
+            if (checkpoint.transactionHistory != null) {
+                transactionHistory = checkpoint.transactionHistory;
+            }
+            if (checkpoint.historyWindow != null) {
+                historyWindow = checkpoint.historyWindow;
+                slidingPatternDetector = new SlidingPatternDetector(transactionHistory);
+                slidingPatternDetector.scanForEvictions(checkpoint.pendingScanEvictions);
+                for (var threshold : patternDetector.thresholds()) {
+                    slidingPatternDetector.track(threshold);
+                }
+            }
+            for (var threshold : ruleState.patternThresholds) {
+                trackPatternThreshold(threshold);
+            }
+            if (checkpoint.accountQuantiles != null) {
+                accountQuantiles = checkpoint.accountQuantiles;
+            } else if (accountQuantiles != null) {
+                trackAmountQuantiles();
+            }
+        } finally {
+            endStatisticsWrite();
+        }
+    }
+
+    EngineCheckpoint captureCheckpoint(boolean includeHistory) {
+        if (journal != null) {
+            journal.sync();
+        }
+        var checkpoint = new EngineCheckpoint();
+        checkpoint.journalPosition = journal != null ? journal.size() : restoredJournalPosition;
+        checkpoint.clock = clock;
+        if (accountAggregates instanceof SpillingAccountAggregates spilling) {
+            checkpoint.accountAggregates = spilling.snapshot();
+        } else {
+            var aggregates = accountAggregates.deferredCopy();
+            checkpoint.deferCopy(() -> checkpoint.accountAggregates = aggregates.get());
+        }
+        var ids = transactionIds.deferredCopy();
+        checkpoint.deferCopy(() -> checkpoint.transactionIds = ids.get());
+        checkpoint.patternDetector = patternDetector.copy();
+        if (accountQuantiles != null) {
+            checkpoint.accountQuantiles = accountQuantiles.copy();
+        }
+        // A partial history would pass for a full one after restore, so it is never written
+        if ((includeHistory || historyWindow != null) && !partialHistory) {
+            var history = ((ColumnarTransactionHistory) transactionHistory).deferredCopy();
+            checkpoint.deferCopy(() -> checkpoint.transactionHistory = history.get());
+        }
+        if (historyWindow != null) {
+            checkpoint.historyWindow = historyWindow.copy();
+            checkpoint.pendingScanEvictions = slidingPatternDetector.pendingScanEvictions();
+        }
+        return checkpoint;
+    }
+
+    // Advances the logical clock used to stamp appended transactions and to expire them
+    public void advanceClock(long now) {
+        if (now > clock) {
+            clock = now;
+        }
+        beginStatisticsWrite();
+        try {
+            evictExpired();
+        } finally {
+            endStatisticsWrite();
+        }
+    }
+
+    // Extra thresholds can be tracked side by side; untracked ones fall back to a full history scan
+    void trackPatternThreshold(int threshold) {
+        beginStatisticsWrite();
+        try {
+            if (slidingPatternDetector != null) {
+                slidingPatternDetector.track(threshold);
+            } else {
+                patternDetector.track(threshold, transactionHistory);
+            }
+        } finally {
+            endStatisticsWrite();
         }
+    }
 
-        return totalAmount / count;
+    // Velocity starts empty: the retained history carries no event times to seed it from
+    private void trackDebitVelocity(long window) {
+        for (var velocity : debitVelocities) {
+            if (velocity.window == window) {
+                return;
+            }
+        }
+        var velocity = new DebitVelocity(window);
+        beginStatisticsWrite();
+        try {
+            debitVelocities = Arrays.copyOf(debitVelocities, debitVelocities.length + 1);
+            debitVelocities[debitVelocities.length - 1] = velocity;
+        } finally {
+            endStatisticsWrite();
+        }
+    }
+
+    // Event time of a transaction: its timestamp, or the engine clock when it has none (0). A timestamp
+    // ahead of the clock advances it first, expiring windowed history like advanceClock.
+    private long eventTime(long timestamp) {
+        if (timestamp == 0) {
+            return clock;
+        }
+        if (timestamp > clock) {
+            advanceClock(timestamp);
+        }
+        return timestamp;
+    }
+
+    // Seeds the sketches from the retained history; the sketches then cover every later accepted
+    // transaction and, unlike the averages, keep evicted amounts
+    private void trackAmountQuantiles() {
+        var quantiles = new AccountQuantileSketches();
+        for (var i = 0; i < transactionHistory.size(); i++) {
+            quantiles.add(transactionHistory.accountIdAt(i), transactionHistory.amountAt(i));
+        }
+        beginStatisticsWrite();
+        try {
+            accountQuantiles = quantiles;
+        } finally {
+            endStatisticsWrite();
+        }
     }
 
     int getTransactionPatternAboveThreshold(int threshold) {
+        if (slidingPatternDetector != null) {
+            if (slidingPatternDetector.isTracking(threshold)) {
+                return slidingPatternDetector.getPattern(threshold);
+            }
+        } else if (patternDetector.isTracking(threshold)) {
+            return patternDetector.getPattern(threshold);
+        }
+        return getTransactionPatternAboveThreshold(transactionHistory, threshold);
+    }
+
+    static int getTransactionPatternAboveThreshold(TransactionHistory transactionHistory, int threshold) {
         if (transactionHistory.isEmpty()) {
             return 0;
         }
 
         var diff = 0;
-        var previous = transactionHistory.getFirst();
+        var previousId = transactionHistory.transactionIdAt(0);
+        var previousAmount = transactionHistory.amountAt(0);
 
-        for (Transaction txn : transactionHistory) {
-            if (txn.transactionId == previous.transactionId) {
+        for (var i = 0; i < transactionHistory.size(); i++) {
+            if (transactionHistory.transactionIdAt(i) == previousId) {
                 continue;
             }
 
-            if (txn.amount <= threshold) {
+            var amount = transactionHistory.amountAt(i);
+            if (amount <= threshold) {
                 continue;
             }
 
             if (diff == 0) {
-                diff = txn.amount - previous.amount;
-                previous = txn;
-            } else if (diff != txn.amount - previous.amount) {
+                diff = amount - previousAmount;
+                previousId = transactionHistory.transactionIdAt(i);
+                previousAmount = amount;
+            } else if (diff != amount - previousAmount) {
                 return 0;
             }
         }
@@ -58,7 +494,10 @@ public class TransactionEngine {
 
     int detectFraudulentTransaction(Transaction txn) {
         var averageAmount = getAverageTransactionAmountByAccount(txn.accountId);
+        return excessiveDebitScore(txn, averageAmount);
+    }
 
+    static int excessiveDebitScore(Transaction txn, int averageAmount) {
         if (txn.isDebit && txn.amount > 2 * averageAmount) {
             return txn.amount - 2 * averageAmount;  // Excessive debit, marked as suspicious
         }
@@ -67,16 +506,272 @@ public class TransactionEngine {
     }
 
     public int addTransactionAndDetectFraud(Transaction txn) {
-        if (transactionHistory.contains(txn)) {
+        return addTransactionAndDetectFraud(txn.transactionId, txn.accountId, txn.amount, txn.isDebit, txn.timestamp);
+    }
+
+    // The timestamp is resolved only once the id is accepted, so a rejected duplicate never moves the clock
+    private int addTransactionAndDetectFraud(int transactionId, int accountId, int amount, boolean isDebit, long timestamp) {
+        if (transactionIds.contains(transactionId)) {
             return 0;
         }
+        var time = eventTime(timestamp);
+
+        int fraudScore;
+        beginStatisticsWrite();
+        try {
+            var slot = accountAggregates.slotFor(accountId);
+            fraudScore = scoreTransaction(transactionId, accountId, amount, isDebit,
+                    accountAggregates.sumAt(slot), accountAggregates.countAt(slot));
 
-        var fraudScore = detectFraudulentTransaction(txn);
-        if (fraudScore == 0) {
-            fraudScore = getTransactionPatternAboveThreshold(THRESHOLD);
+            transactionIds.addAbsent(transactionId);
+            accountAggregates.addAt(slot, amount, 1);
+            recordAccepted(transactionId, accountId, amount, isDebit, false, time);
+        } finally {
+            endStatisticsWrite();
         }
+        notifyStatefulRules();
+        recordScore(accountId, fraudScore);
+        return fraudScore;
+    }
 
-        transactionHistory.add(txn);
+    public int[] addTransactionsAndDetectFraud(List<Transaction> txns) {
+        return addTransactionsAndDetectFraud(txns.toArray(new Transaction[0]));
+    }
+
+    // The packed form has no timestamps, so a batch with any timestamped transaction is added one by one
+    public int[] addTransactionsAndDetectFraud(Transaction[] txns) {
+        for (var txn : txns) {
+            if (txn.timestamp != 0) {
+                return addTimestampedTransactions(txns);
+            }
+        }
+        return addTransactionsAndDetectFraud(PackedTransactionView.of(txns));
+    }
+
+    private int[] addTimestampedTransactions(Transaction[] txns) {
+        var scores = new int[txns.length];
+        beginStatisticsWrite();
+        try {
+            for (var i = 0; i < txns.length; i++) {
+                scores[i] = addTransactionAndDetectFraud(txns[i]);
+            }
+        } finally {
+            endStatisticsWrite();
+        }
+        return scores;
+    }
+
+    // Same scores as calling addTransactionAndDetectFraud on each element in order, but every
+    // account's aggregates are read and written once per batch instead of once per transaction.
+    // Reads the packed entries by index, so a batch never materializes Transaction objects.
+    public int[] addTransactionsAndDetectFraud(PackedTransactionView txns) {
+        var size = txns.size();
+        var scores = new int[size];
+        if (historyWindow != null) {
+            // Evictions inside the batch change later averages, so a windowed engine scores one by one
+            beginStatisticsWrite();
+            try {
+                for (var i = 0; i < size; i++) {
+                    scores[i] = addTransactionAndDetectFraud(txns.transactionIdAt(i), txns.accountIdAt(i),
+                            txns.amountAt(i), txns.isDebitAt(i), clock);
+                }
+            } finally {
+                endStatisticsWrite();
+            }
+            return scores;
+        }
+
+        var accepted = new boolean[size];
+        var accountOrder = new long[size];
+        var sumsBefore = new long[size];
+        var countsBefore = new long[size];
+        var acceptedCount = 0;
+
+        beginStatisticsWrite();
+        try {
+            for (var i = 0; i < size; i++) {
+                if (transactionIds.add(txns.transactionIdAt(i))) {
+                    accepted[i] = true;
+                    accountOrder[acceptedCount++] = ((long) txns.accountIdAt(i) << 32) | i;
+                }
+            }
+
+            Arrays.sort(accountOrder, 0, acceptedCount);
+            for (var start = 0; start < acceptedCount; ) {
+                var slot = accountAggregates.slotFor((int) (accountOrder[start] >> 32));
+                var baseSum = accountAggregates.sumAt(slot);
+                var sum = baseSum;
+                var count = accountAggregates.countAt(slot);
+                var end = start;
+
+                for (; end < acceptedCount && accountOrder[end] >> 32 == accountOrder[start] >> 32; end++) {
+                    var i = (int) accountOrder[end];
+                    sumsBefore[i] = sum;
+                    countsBefore[i] = count;
+                    sum += txns.amountAt(i);
+                    count++;
+                }
+
+                accountAggregates.addAt(slot, sum - baseSum, end - start);
+                start = end;
+            }
+
+            for (var i = 0; i < size; i++) {
+                if (!accepted[i]) {
+                    continue;
+                }
+
+                var transactionId = txns.transactionIdAt(i);
+                var accountId = txns.accountIdAt(i);
+                var amount = txns.amountAt(i);
+                var isDebit = txns.isDebitAt(i);
+                scores[i] = scoreTransaction(transactionId, accountId, amount, isDebit, sumsBefore[i], countsBefore[i]);
+                recordAccepted(transactionId, accountId, amount, isDebit, false, clock);
+                notifyStatefulRules();
+                recordScore(accountId, scores[i]);
+            }
+        } finally {
+            endStatisticsWrite();
+        }
+
+        return scores;
+    }
+
+    void appendToHistory(Transaction txn) {
+        appendToHistory(txn.transactionId, txn.accountId, txn.amount, txn.isDebit, eventTime(txn.timestamp));
+    }
+
+    // Adds a transaction to every piece of engine state without scoring it
+    void appendToHistory(int transactionId, int accountId, int amount, boolean isDebit) {
+        appendToHistory(transactionId, accountId, amount, isDebit, clock);
+    }
+
+    private void appendToHistory(int transactionId, int accountId, int amount, boolean isDebit, long timestamp) {
+        beginStatisticsWrite();
+        try {
+            var newId = transactionIds.add(transactionId);
+            accountAggregates.add(accountId, amount);
+            recordAccepted(transactionId, accountId, amount, isDebit, !newId, timestamp);
+        } finally {
+            endStatisticsWrite();
+        }
+    }
+
+    // One fused pass over the rule pipeline against the state as of before the transaction
+    private int scoreTransaction(int transactionId, int accountId, int amount, boolean isDebit, long accountSum, long accountCount) {
+        if (!ruleState.accountAggregates) {
+            accountSum = 0;
+            accountCount = 0;
+        }
+        scoringContext.reset(this, transactionId, accountId, amount, isDebit, accountSum, accountCount);
+        if (decisionTrace != null) {
+            return scoreAndTrace();
+        }
+
+        for (var rule : rules) {
+            var fraudScore = rule.score(scoringContext);
+            if (fraudScore != 0) {
+                return fraudScore;
+            }
+        }
+        return 0;
+    }
+
+    private int scoreAndTrace() {
+        var timed = decisionTrace.timesNext();
+        var start = timed ? System.nanoTime() : 0;
+        FraudRule firedRule = null;
+        var fraudScore = 0;
+        for (var rule : rules) {
+            fraudScore = rule.score(scoringContext);
+            if (fraudScore != 0) {
+                firedRule = rule;
+                break;
+            }
+        }
+        var elapsed = timed ? System.nanoTime() - start : DecisionTrace.NOT_TIMED;
+        decisionTrace.record(scoringContext, firedRule, fraudScore, trackedPattern(THRESHOLD), elapsed);
         return fraudScore;
     }
+
+    // Pattern of a tracked threshold, 0 for one that is not tracked. O(1), except that with a history window
+    // the sliding detector scans the history while a duplicate id is retained
+    int trackedPattern(int threshold) {
+        if (!isPatternTracked(threshold)) {
+            return 0;
+        }
+        return slidingPatternDetector != null ? slidingPatternDetector.getPattern(threshold) : patternDetector.getPattern(threshold);
+    }
+
+    boolean isPatternTracked(int threshold) {
+        return slidingPatternDetector != null ? slidingPatternDetector.isTracking(threshold) : patternDetector.isTracking(threshold);
+    }
+
+    // Write sections nest, so a batch made of single adds still publishes one version
+    private void beginStatisticsWrite() {
+        if (statisticsWriteDepth++ == 0) {
+            statisticsVersion.setOpaque(statisticsVersion.getPlain() + 1);
+            VarHandle.storeStoreFence();
+        }
+    }
+
+    private void endStatisticsWrite() {
+        if (--statisticsWriteDepth == 0) {
+            statisticsVersion.setRelease(statisticsVersion.getPlain() + 1);
+        }
+    }
+
+    private void recordScore(int accountId, int fraudScore) {
+        if (leaderboard != null) {
+            leaderboard.record(accountId, fraudScore);
+        }
+    }
+
+    private void notifyStatefulRules() {
+        for (var rule : statefulRules) {
+            rule.onAccepted(scoringContext);
+        }
+    }
+
+    // History, pattern, quantile, velocity, journal and window bookkeeping; the caller has already updated
+    // ids and aggregates
+    private void recordAccepted(int transactionId, int accountId, int amount, boolean isDebit, boolean duplicateId,
+                                long timestamp) {
+        if (accountQuantiles != null) {
+            accountQuantiles.add(accountId, amount);
+        }
+        if (isDebit) {
+            for (var velocity : debitVelocities) {
+                velocity.add(accountId, amount, timestamp);
+            }
+        }
+        if (journal != null) {
+            journal.append(transactionId, accountId, amount, isDebit);
+        }
+        transactionHistory.append(transactionId, accountId, amount, isDebit);
+        if (historyWindow == null) {
+            patternDetector.append(transactionId, amount);
+            return;
+        }
+
+        historyWindow.recordAppend(clock);
+        slidingPatternDetector.append(amount, duplicateId);
+        evictExpired();
+    }
+
+    private void evictExpired() {
+        if (historyWindow == null) {
+            return;
+        }
+        while (historyWindow.shouldEvict(clock)) {
+            var transactionId = transactionHistory.transactionIdAt(0);
+            var accountId = transactionHistory.accountIdAt(0);
+            var amount = transactionHistory.amountAt(0);
+            transactionHistory.removeOldest();
+            historyWindow.recordEviction();
+            transactionIds.remove(transactionId);
+            accountAggregates.add(accountId, -amount, -1);
+            slidingPatternDetector.evictOldest();
+        }
+    }
 }
@@ -0,0 +1,25 @@
+package domain;
+
+// Index-addressed view of retained transactions in arrival order; index 0 is the oldest retained entry.
+interface TransactionHistory {
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Independent copy of the retained entries
+    TransactionHistory copy();
+
+    void append(int transactionId, int accountId, int amount, boolean isDebit);
+
+    void removeOldest();
+
+    int transactionIdAt(int index);
+
+    int accountIdAt(int index);
+
+    int amountAt(int index);
+
+    boolean isDebitAt(int index);
+}
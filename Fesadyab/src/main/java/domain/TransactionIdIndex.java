@@ -0,0 +1,267 @@
+package domain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+// Set of seen transaction ids stored as unboxed ints (linear probing, backward-shift deletion).
+// In bounded mode only the most recent maxSize ids are remembered; older ones are forgotten in FIFO order.
+class TransactionIdIndex {
+    private final int maxSize;
+    private final int[] recent;
+    private int recentHead;
+
+    private int[] keys;
+    private boolean[] used;
+    private int size;
+    private BloomFilter filter;
+    private int removalsSinceRebuild;
+    // Set while a deferred copy may still read the table or the ring in place
+    private CopyOnWritePages tablePages;
+    private CopyOnWritePages recentPages;
+
+    TransactionIdIndex() {
+        this(0);
+    }
+
+    TransactionIdIndex(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative");
+        }
+        this.maxSize = maxSize;
+        recent = maxSize > 0 ? new int[maxSize] : null;
+        var capacity = IntSlotMap.tableSizeFor(maxSize > 0 ? maxSize : 16);
+        keys = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    TransactionIdIndex copy() {
+        var copy = new TransactionIdIndex(maxSize);
+        if (recent != null) {
+            System.arraycopy(recent, 0, copy.recent, 0, maxSize);
+        }
+        copy.recentHead = recentHead;
+        copy.keys = keys.clone();
+        copy.used = used.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    // Copy as of now without the filter, made by whichever thread calls get() while this keeps changing
+    // (see CopyOnWritePages)
+    Supplier<TransactionIdIndex> deferredCopy() {
+        var capturedSize = size;
+        var capturedHead = recentHead;
+        var table = tablePages = new CopyOnWritePages(tablePages, keys.length, keys, used);
+        var ring = recent != null ? recentPages = new CopyOnWritePages(recentPages, maxSize, recent) : null;
+        return () -> {
+            var copy = new TransactionIdIndex(maxSize);
+            var columns = table.copy();
+            copy.keys = (int[]) columns[0];
+            copy.used = (boolean[]) columns[1];
+            if (ring != null) {
+                System.arraycopy(ring.copy()[0], 0, copy.recent, 0, maxSize);
+            }
+            copy.recentHead = capturedHead;
+            copy.size = capturedSize;
+            return copy;
+        };
+    }
+
+    // The FIFO ring is written as is, so a bounded index forgets the same ids after being read back
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(maxSize);
+        out.writeInt(size);
+        for (var i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                out.writeInt(keys[i]);
+            }
+        }
+        if (recent != null) {
+            out.writeInt(recentHead);
+            for (var transactionId : recent) {
+                out.writeInt(transactionId);
+            }
+        }
+    }
+
+    static TransactionIdIndex readFrom(DataInput in) throws IOException {
+        var index = new TransactionIdIndex(in.readInt());
+        var size = in.readInt();
+        if (IntSlotMap.tableSizeFor(size) > index.keys.length) {
+            index.rehash(IntSlotMap.tableSizeFor(size));
+        }
+        for (var i = 0; i < size; i++) {
+            index.insert(in.readInt(), false);
+        }
+        if (index.recent != null) {
+            index.recentHead = in.readInt();
+            for (var i = 0; i < index.maxSize; i++) {
+                index.recent[i] = in.readInt();
+            }
+        }
+        return index;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isBounded() {
+        return maxSize > 0;
+    }
+
+    BloomFilter filter() {
+        return filter;
+    }
+
+    // Puts a Bloom filter in front of contains() and add() so ids that were never added skip the key
+    // comparisons of the table probe.
+    // Removed ids stay set in the filter, so it is rebuilt from the live ids once removals outnumber both
+    // them and the filter's words, which keeps the rebuild cost amortized O(1) per removal.
+    void useFilter(BloomFilter filter) {
+        this.filter = filter;
+        rebuildFilter();
+    }
+
+    boolean contains(int transactionId) {
+        if (filter != null && !filter.mightContain(transactionId)) {
+            return false;
+        }
+        if (!containsInTable(transactionId)) {
+            if (filter != null) {
+                filter.recordFalsePositive();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private boolean containsInTable(int transactionId) {
+        var mask = keys.length - 1;
+        for (var i = IntSlotMap.mix(transactionId) & mask; used[i]; i = (i + 1) & mask) {
+            if (keys[i] == transactionId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A filter miss proves the id new, so it goes into the first free bucket without comparing keys
+    boolean add(int transactionId) {
+        if (filter != null && !filter.mightContain(transactionId)) {
+            insert(transactionId, true);
+        } else if (!insert(transactionId, false)) {
+            return false;
+        } else if (filter != null) {
+            filter.recordFalsePositive();
+        }
+        remember(transactionId);
+        return true;
+    }
+
+    // Adds an id that contains() has just reported absent, without querying the filter again
+    void addAbsent(int transactionId) {
+        insert(transactionId, true);
+        remember(transactionId);
+    }
+
+    private void remember(int transactionId) {
+        if (recent != null) {
+            if (size > maxSize) {
+                remove(recent[recentHead]);
+            }
+            if (recentPages != null) {
+                recentPages.beforeWrite(recentHead);
+            }
+            recent[recentHead] = transactionId;
+            recentHead = (recentHead + 1) % maxSize;
+        }
+    }
+
+    boolean remove(int transactionId) {
+        var mask = keys.length - 1;
+        var i = IntSlotMap.mix(transactionId) & mask;
+        while (used[i] && keys[i] != transactionId) {
+            i = (i + 1) & mask;
+        }
+        if (!used[i]) {
+            return false;
+        }
+
+        var hole = i;
+        for (var j = (i + 1) & mask; used[j]; j = (j + 1) & mask) {
+            var home = IntSlotMap.mix(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                beforeTableWrite(hole);
+                keys[hole] = keys[j];
+                hole = j;
+            }
+        }
+        beforeTableWrite(hole);
+        used[hole] = false;
+        size--;
+        if (filter != null && ++removalsSinceRebuild > Math.max(size, filter.wordCount())) {
+            rebuildFilter();
+        }
+        return true;
+    }
+
+    private void rebuildFilter() {
+        filter.clear();
+        for (var i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                filter.add(keys[i]);
+            }
+        }
+        removalsSinceRebuild = 0;
+    }
+
+    private boolean insert(int transactionId, boolean absent) {
+        var mask = keys.length - 1;
+        var i = IntSlotMap.mix(transactionId) & mask;
+        while (used[i]) {
+            if (!absent && keys[i] == transactionId) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+
+        beforeTableWrite(i);
+        keys[i] = transactionId;
+        used[i] = true;
+        if (filter != null) {
+            filter.add(transactionId);
+        }
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    private void beforeTableWrite(int bucket) {
+        if (tablePages != null) {
+            tablePages.beforeWrite(bucket);
+        }
+    }
+
+    private void rehash(int capacity) {
+        var oldKeys = keys;
+        var oldUsed = used;
+        keys = new int[capacity];
+        used = new boolean[capacity];
+        tablePages = null;
+        var mask = capacity - 1;
+        for (var j = 0; j < oldKeys.length; j++) {
+            if (oldUsed[j]) {
+                var i = IntSlotMap.mix(oldKeys[j]) & mask;
+                while (used[i]) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                used[i] = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package domain;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Append-only journal of accepted transactions: a 16-byte header followed by fixed 16-byte records
+// (transactionId, accountId, amount, flags), written through memory-mapped segments of the file.
+// Every record carries a VALID flag that is written last, so the journal ends at the first record
+// without it; the file can therefore be pre-extended and a torn final record is simply ignored.
+public class TransactionJournal implements AutoCloseable {
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 16;
+    static final int MAGIC = 0x46534A31;
+    static final int VERSION = 1;
+    private static final int VALID = 1;
+    private static final int DEBIT = 2;
+
+    private final FileChannel channel;
+    private final long segmentBytes;
+    private final int syncEveryRecords;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long recordCount;
+    private long syncedRecords;
+
+    private TransactionJournal(FileChannel channel, int segmentRecords, int syncEveryRecords) {
+        this.channel = channel;
+        this.segmentBytes = (long) segmentRecords * RECORD_BYTES;
+        this.syncEveryRecords = syncEveryRecords;
+    }
+
+    public static TransactionJournal open(Path path) throws IOException {
+        return open(path, 0);
+    }
+
+    // syncEveryRecords: 0 leaves flushing to the OS until sync() or close(), 1 forces every record to disk,
+    // n forces after every n records
+    public static TransactionJournal open(Path path, int syncEveryRecords) throws IOException {
+        return open(path, syncEveryRecords, 1 << 22);
+    }
+
+    static TransactionJournal open(Path path, int syncEveryRecords, int segmentRecords) throws IOException {
+        if (syncEveryRecords < 0 || segmentRecords <= 0) {
+            throw new IllegalArgumentException("syncEveryRecords must not be negative and segmentRecords must be positive");
+        }
+        var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        var journal = new TransactionJournal(channel, segmentRecords, syncEveryRecords);
+        try {
+            journal.initialize();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    public long size() {
+        return recordCount;
+    }
+
+    public void append(int transactionId, int accountId, int amount, boolean isDebit) {
+        var position = HEADER_BYTES + recordCount * RECORD_BYTES;
+        var segment = segment(position);
+        var offset = (int) (position % segmentBytes);
+        segment.putInt(offset, transactionId);
+        segment.putInt(offset + 4, accountId);
+        segment.putInt(offset + 8, amount);
+        segment.putInt(offset + 12, isDebit ? VALID | DEBIT : VALID);
+        recordCount++;
+
+        if (syncEveryRecords > 0 && recordCount - syncedRecords >= syncEveryRecords) {
+            sync();
+        }
+    }
+
+    // Streams every record, oldest first, without allocating per record
+    public void replay(TransactionSink sink) {
+        replay(0, sink);
+    }
+
+    void replay(long fromRecord, TransactionSink sink) {
+        for (var record = fromRecord; record < recordCount; ) {
+            var position = HEADER_BYTES + record * RECORD_BYTES;
+            var segment = segment(position);
+            var offset = (int) (position % segmentBytes);
+            var end = (int) Math.min(segmentBytes, offset + (recordCount - record) * RECORD_BYTES);
+            for (; offset < end; offset += RECORD_BYTES, record++) {
+                sink.accept(segment.getInt(offset), segment.getInt(offset + 4), segment.getInt(offset + 8),
+                        (segment.getInt(offset + 12) & DEBIT) != 0);
+            }
+        }
+    }
+
+    // Forces the records appended since the last sync to disk
+    public void sync() {
+        var from = HEADER_BYTES + syncedRecords * RECORD_BYTES;
+        var to = HEADER_BYTES + recordCount * RECORD_BYTES;
+        while (from < to) {
+            var offset = (int) (from % segmentBytes);
+            var length = (int) Math.min(segmentBytes - offset, to - from);
+            segment(from).force(offset, length);
+            from += length;
+        }
+        syncedRecords = recordCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        segments.clear();
+        channel.close();
+    }
+
+    private void initialize() throws IOException {
+        var header = segment(0);
+        if (channel.size() == 0 || header.getInt(0) == 0) {
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, RECORD_BYTES);
+            header.force(0, HEADER_BYTES);
+            return;
+        }
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_BYTES) {
+            throw new IOException("not a transaction journal");
+        }
+
+        // Records form a valid prefix followed by zeroed space, so the end can be found by binary search
+        var low = 0L;
+        var high = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            var position = HEADER_BYTES + middle * RECORD_BYTES;
+            if ((segment(position).getInt((int) (position % segmentBytes) + 12) & VALID) != 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        recordCount = low;
+        syncedRecords = low;
+    }
+
+    private MappedByteBuffer segment(long position) {
+        var index = (int) (position / segmentBytes);
+        while (segments.size() <= index) {
+            try {
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, segments.size() * segmentBytes, segmentBytes));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return segments.get(index);
+    }
+}
@@ -0,0 +1,7 @@
+package domain;
+
+// Receives transactions field by field, so bulk producers such as journal replay need no Transaction objects
+@FunctionalInterface
+interface TransactionSink {
+    void accept(int transactionId, int accountId, int amount, boolean isDebit);
+}
@@ -0,0 +1,79 @@
+package domain;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+// SIMD form of the scalar kernel over the jdk.incubator.vector API. Rows of different lanes may hit the
+// same account, so every account gets one accumulator per lane (slot * LANES + lane): a group of LANES
+// rows is then one gather, add and scatter per quantity with no lane conflicts, and the lanes are summed
+// per account at the end. The account-to-slot hashing stays scalar, one chunk of rows at a time.
+// Costs LANES times the accumulator memory of the scalar kernel, and the hashing dominates either way, so
+// on common hardware it does not beat the scalar kernel (see RecomputeBenchmark); it is opt-in. Only
+// loaded when the module is present (see AccountStatisticsRecompute).
+class VectorAccountTotalsKernel implements AccountTotalsKernel {
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final int LANES = LONGS.length();
+    // Same lane count as LONGS, so a group of amounts widens in one conversion
+    private static final VectorSpecies<Integer> INTS = LANES >= 2
+            ? VectorSpecies.of(int.class, VectorShape.forBitSize(LONGS.vectorBitSize() / 2))
+            : null;
+    private static final int CHUNK = 1024;
+
+    // Needs at least two lanes, and the debit flags of a lane group must sit in one bitset word
+    static boolean isSupported() {
+        return LANES >= 2 && 64 % LANES == 0;
+    }
+
+    @Override
+    public void accumulate(int[] accountIds, int[] amounts, long[] debitBits, int from, int to, AccountTotals totals) {
+        var scalar = new ScalarAccountTotalsKernel();
+        var start = Math.min(to, (from + LANES - 1) & -LANES);
+        scalar.accumulate(accountIds, amounts, debitBits, from, start, totals);
+        var end = start + (to - start) / LANES * LANES;
+
+        var slots = new int[CHUNK];
+        var indexes = new int[CHUNK];
+        var iota = IntVector.zero(INTS).addIndex(1);
+        var sums = new long[0];
+        var counts = new long[0];
+        var debitSums = new long[0];
+        for (var chunkStart = start; chunkStart < end; chunkStart += CHUNK) {
+            var size = Math.min(CHUNK, end - chunkStart);
+            for (var i = 0; i < size; i++) {
+                slots[i] = totals.slotFor(accountIds[chunkStart + i]);
+            }
+            if (totals.accountCount() * LANES > sums.length) {
+                var length = Math.max(totals.accountCount() * LANES, sums.length * 2);
+                sums = Arrays.copyOf(sums, length);
+                counts = Arrays.copyOf(counts, length);
+                debitSums = Arrays.copyOf(debitSums, length);
+            }
+
+            for (var i = 0; i < size; i += LANES) {
+                IntVector.fromArray(INTS, slots, i).mul(LANES).add(iota).intoArray(indexes, i);
+            }
+            for (var i = 0; i < size; i += LANES) {
+                var row = chunkStart + i;
+                var amount = (LongVector) IntVector.fromArray(INTS, amounts, row).convertShape(VectorOperators.I2L, LONGS, 0);
+                var debit = VectorMask.fromLong(LONGS, debitBits[row >>> 6] >>> row);
+                LongVector.fromArray(LONGS, sums, 0, indexes, i).add(amount).intoArray(sums, 0, indexes, i);
+                LongVector.fromArray(LONGS, counts, 0, indexes, i).add(1).intoArray(counts, 0, indexes, i);
+                LongVector.fromArray(LONGS, debitSums, 0, indexes, i).add(amount, debit).intoArray(debitSums, 0, indexes, i);
+            }
+        }
+
+        for (var slot = 0; slot < totals.accountCount() && slot * LANES < sums.length; slot++) {
+            var lane = slot * LANES;
+            totals.addAt(slot, LongVector.fromArray(LONGS, sums, lane).reduceLanes(VectorOperators.ADD),
+                    LongVector.fromArray(LONGS, counts, lane).reduceLanes(VectorOperators.ADD),
+                    LongVector.fromArray(LONGS, debitSums, lane).reduceLanes(VectorOperators.ADD));
+        }
+        scalar.accumulate(accountIds, amounts, debitBits, end, to, totals);
+    }
+}
@@ -0,0 +1,297 @@
+package domain;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+// Deterministic synthetic transaction stream for load and soak tests. The same seed and settings always
+// produce the same stream, and nothing is buffered beyond a small replay window, so it can run for
+// billions of transactions (ids wrap around after 2^32). Accounts follow a Zipf law over 1..accountCount
+// (account 1 is the hottest); amounts are log-normal around a median. On top of that it injects
+// arithmetic progressions above the pattern threshold, excessive debits and replays of recent
+// transactions, and counts every injection so a run can be checked against what the engine flagged.
+public class WorkloadGenerator {
+    private static final int REPLAY_WINDOW = 1024;
+
+    private final SplittableRandom random;
+    private ZipfSampler accounts = new ZipfSampler(10_000, 1.0);
+    private double debitRatio = 0.5;
+    private int medianAmount = 100;
+    private double amountSigma = 1.0;
+    private int maxAmount = 1_000_000;
+    private double patternRate;
+    private int patternLength = 5;
+    private int patternThreshold = 1000;
+    private double excessiveDebitRate;
+    private int excessiveDebitFactor = 20;
+    private double duplicateRate;
+
+    private int nextTransactionId;
+    private int patternRemaining;
+    private int patternAccount;
+    private int patternAmount;
+    private int patternStep;
+    private final int[] replayIds = new int[REPLAY_WINDOW];
+    private final int[] replayAccounts = new int[REPLAY_WINDOW];
+    private final int[] replayAmounts = new int[REPLAY_WINDOW];
+    private final boolean[] replayDebits = new boolean[REPLAY_WINDOW];
+    private long generatedCount;
+    private long patternCount;
+    private long patternTransactionCount;
+    private long excessiveDebitCount;
+    private long duplicateCount;
+
+    public WorkloadGenerator(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    // zipfExponent 0 draws accounts uniformly; around 1 a few accounts carry most of the traffic
+    public WorkloadGenerator accounts(int accountCount, double zipfExponent) {
+        accounts = new ZipfSampler(accountCount, zipfExponent);
+        return this;
+    }
+
+    public WorkloadGenerator debitRatio(double debitRatio) {
+        checkProbability(debitRatio, "debitRatio");
+        this.debitRatio = debitRatio;
+        return this;
+    }
+
+    // Log-normal: half of the amounts fall below medianAmount, sigma is the spread of ln(amount)
+    public WorkloadGenerator amounts(int medianAmount, double sigma, int maxAmount) {
+        if (medianAmount <= 0 || sigma < 0 || maxAmount < medianAmount) {
+            throw new IllegalArgumentException("medianAmount must be positive, sigma not negative and maxAmount at least medianAmount");
+        }
+        this.medianAmount = medianAmount;
+        this.amountSigma = sigma;
+        this.maxAmount = maxAmount;
+        return this;
+    }
+
+    // Per transaction, the chance a run of length consecutive transactions above threshold with one
+    // common difference starts. ThresholdPatternRule measures differences from the oldest retained
+    // transaction, its anchor, not within the run: fed into a fresh engine a run of 3 is flagged on its
+    // third transaction, while in a stream the first run after the anchor is flagged once, on its second
+    // transaction, and leaves the pattern broken for good. Runs therefore exercise the pattern state;
+    // the excessive debits are what a long run can be checked against.
+    public WorkloadGenerator patterns(double rate, int length, int threshold) {
+        checkProbability(rate, "rate");
+        if (length < 2 || threshold < 0) {
+            throw new IllegalArgumentException("length must be at least 2 and threshold not negative");
+        }
+        patternRate = rate;
+        patternLength = length;
+        patternThreshold = threshold;
+        return this;
+    }
+
+    // Per transaction, the chance of a debit of factor times the median amount
+    public WorkloadGenerator excessiveDebits(double rate, int factor) {
+        checkProbability(rate, "rate");
+        if (factor <= 0) {
+            throw new IllegalArgumentException("factor must be positive");
+        }
+        excessiveDebitRate = rate;
+        excessiveDebitFactor = factor;
+        return this;
+    }
+
+    // Per transaction, the chance of replaying one of the last transactions with its id
+    public WorkloadGenerator duplicates(double rate) {
+        checkProbability(rate, "rate");
+        duplicateRate = rate;
+        return this;
+    }
+
+    public long getGeneratedCount() {
+        return generatedCount;
+    }
+
+    public long getPatternCount() {
+        return patternCount;
+    }
+
+    public long getPatternTransactionCount() {
+        return patternTransactionCount;
+    }
+
+    public long getExcessiveDebitCount() {
+        return excessiveDebitCount;
+    }
+
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    // Continues the stream: consecutive calls produce the same transactions as one call with their sum
+    public void generate(long count, TransactionSink sink) {
+        for (var i = 0L; i < count; i++) {
+            next(sink);
+        }
+    }
+
+    public void writeTo(TransactionJournal journal, long count) {
+        generate(count, journal::append);
+    }
+
+    // Scores count transactions in batches of batchSize without creating Transaction objects and returns
+    // how many were flagged
+    public long feed(TransactionEngine engine, long count, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        var packed = new long[2 * (int) Math.min(batchSize, Math.max(count, 1))];
+        var size = new int[1];
+        var flagged = 0L;
+        for (var remaining = count; remaining > 0; ) {
+            var batch = (int) Math.min(remaining, packed.length / 2);
+            size[0] = 0;
+            generate(batch, (transactionId, accountId, amount, isDebit) -> {
+                packed[2 * size[0]] = Transaction.packIdAndAccount(transactionId, accountId);
+                packed[2 * size[0]++ + 1] = Transaction.packAmountAndDebit(amount, isDebit);
+            });
+            for (var score : engine.addTransactionsAndDetectFraud(new PackedTransactionView(packed, 0, batch))) {
+                if (score != 0) {
+                    flagged++;
+                }
+            }
+            remaining -= batch;
+        }
+        return flagged;
+    }
+
+    private void next(TransactionSink sink) {
+        generatedCount++;
+        if (patternRemaining > 0) {
+            emit(sink, nextTransactionId++, patternAccount, nextPatternAmount(), false);
+            return;
+        }
+        var originals = generatedCount - 1 - duplicateCount;
+        if (originals > 0 && random.nextDouble() < duplicateRate) {
+            var slot = (int) ((originals - 1 - random.nextInt((int) Math.min(REPLAY_WINDOW, originals))) % REPLAY_WINDOW);
+            duplicateCount++;
+            sink.accept(replayIds[slot], replayAccounts[slot], replayAmounts[slot], replayDebits[slot]);
+            return;
+        }
+
+        var accountId = accounts.sample(random);
+        if (random.nextDouble() < patternRate) {
+            patternCount++;
+            patternRemaining = patternLength;
+            patternAccount = accountId;
+            patternStep = 1 + random.nextInt(Math.max(1, medianAmount));
+            patternAmount = patternThreshold + 1 + random.nextInt(Math.max(1, medianAmount));
+            emit(sink, nextTransactionId++, accountId, nextPatternAmount(), false);
+        } else if (random.nextDouble() < excessiveDebitRate) {
+            excessiveDebitCount++;
+            emit(sink, nextTransactionId++, accountId, (int) Math.min(maxAmount, (long) medianAmount * excessiveDebitFactor), true);
+        } else {
+            emit(sink, nextTransactionId++, accountId, nextAmount(), random.nextDouble() < debitRatio);
+        }
+    }
+
+    // Pattern transactions are credits so the excessive debit rule does not claim them first
+    private int nextPatternAmount() {
+        patternRemaining--;
+        patternTransactionCount++;
+        var amount = patternAmount;
+        patternAmount = (int) Math.min(Integer.MAX_VALUE, (long) patternAmount + patternStep);
+        return amount;
+    }
+
+    private int nextAmount() {
+        var amount = medianAmount * Math.exp(amountSigma * random.nextGaussian());
+        return (int) Math.max(1, Math.min(maxAmount, Math.round(amount)));
+    }
+
+    private void emit(TransactionSink sink, int transactionId, int accountId, int amount, boolean isDebit) {
+        var slot = (int) ((generatedCount - 1 - duplicateCount) % REPLAY_WINDOW);
+        replayIds[slot] = transactionId;
+        replayAccounts[slot] = accountId;
+        replayAmounts[slot] = amount;
+        replayDebits[slot] = isDebit;
+        sink.accept(transactionId, accountId, amount, isDebit);
+    }
+
+    private static void checkProbability(double value, String name) {
+        if (!(value >= 0 && value <= 1)) {
+            throw new IllegalArgumentException(name + " must be in [0, 1]");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("usage: WorkloadGenerator <journal> <count> [seed]");
+            System.exit(2);
+        }
+        var generator = new WorkloadGenerator(args.length == 3 ? Long.parseLong(args[2]) : 1)
+                .accounts(100_000, 1.1)
+                .patterns(0.0001, 5, 1000)
+                .excessiveDebits(0.001, 20)
+                .duplicates(0.001);
+        try (var journal = TransactionJournal.open(Path.of(args[0]))) {
+            generator.writeTo(journal, Long.parseLong(args[1]));
+        }
+        System.out.println(generator.getGeneratedCount() + " transactions, " + generator.getPatternCount() + " patterns, "
+                + generator.getExcessiveDebitCount() + " excessive debits, " + generator.getDuplicateCount() + " duplicates");
+    }
+
+    // Zipf sampling in O(1) per draw by rejection-inversion (Hörmann and Derflinger, 1996), so no
+    // per-account table is needed however many accounts there are
+    static class ZipfSampler {
+        private final int count;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralCount;
+        private final double s;
+
+        ZipfSampler(int count, double exponent) {
+            if (count <= 0 || !(exponent >= 0)) {
+                throw new IllegalArgumentException("count must be positive and exponent not negative");
+            }
+            this.count = count;
+            this.exponent = exponent;
+            hIntegralX1 = hIntegral(1.5) - 1;
+            hIntegralCount = hIntegral(count + 0.5);
+            s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        int sample(SplittableRandom random) {
+            if (exponent == 0) {
+                return 1 + random.nextInt(count);
+            }
+            while (true) {
+                var u = hIntegralCount + random.nextDouble() * (hIntegralX1 - hIntegralCount);
+                var x = hIntegralInverse(u);
+                var k = (int) Math.max(1, Math.min(count, (long) (x + 0.5)));
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                    return k;
+                }
+            }
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            var logX = Math.log(x);
+            return helper2((1 - exponent) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            var t = Math.max(-1, x * (1 - exponent));
+            return Math.exp(helper1(t) * x);
+        }
+
+        // log1p(x) / x, stable near 0
+        private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1 / 3.0 - 0.25 * x));
+        }
+
+        // expm1(x) / x, stable near 0
+        private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3.0 * (1 + 0.25 * x));
+        }
+    }
+}
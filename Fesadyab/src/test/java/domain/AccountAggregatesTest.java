@@ -0,0 +1,64 @@
+package domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AccountAggregatesTest {
+
+    private AccountAggregates aggregates;
+
+    @BeforeEach
+    void setup() {
+        aggregates = new AccountAggregates(2);
+    }
+
+    @Test
+    @DisplayName("Test unknown account has zero sum, count and average")
+    void testUnknownAccount() {
+        assertEquals(0, aggregates.getSum(7));
+        assertEquals(0, aggregates.getCount(7));
+        assertEquals(0, aggregates.getAverage(7));
+    }
+
+    @Test
+    @DisplayName("Test sums and counts are kept per account")
+    void testSumsAndCountsArePerAccount() {
+        aggregates.add(1, 100);
+        aggregates.add(2, 50);
+        aggregates.add(1, 201);
+
+        assertEquals(301, aggregates.getSum(1));
+        assertEquals(2, aggregates.getCount(1));
+        assertEquals(150, aggregates.getAverage(1));
+        assertEquals(50, aggregates.getAverage(2));
+        assertEquals(2, aggregates.accountCount());
+    }
+
+    @Test
+    @DisplayName("Test sums use 64-bit accumulators")
+    void testSumsDoNotOverflow() {
+        aggregates.add(1, Integer.MAX_VALUE);
+        aggregates.add(1, Integer.MAX_VALUE);
+
+        assertEquals(2L * Integer.MAX_VALUE, aggregates.getSum(1));
+        assertEquals(Integer.MAX_VALUE, aggregates.getAverage(1));
+    }
+
+    @Test
+    @DisplayName("Test many accounts survive table growth, including negative and zero ids")
+    void testManyAccounts() {
+        for (int accountId = -500; accountId < 500; accountId++) {
+            aggregates.add(accountId, accountId * 2);
+            aggregates.add(accountId, accountId * 4);
+        }
+
+        assertEquals(1000, aggregates.accountCount());
+        for (int accountId = -500; accountId < 500; accountId++) {
+            assertEquals(accountId * 3, aggregates.getAverage(accountId));
+            assertEquals(2, aggregates.getCount(accountId));
+        }
+    }
+}
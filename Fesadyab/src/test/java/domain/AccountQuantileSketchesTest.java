@@ -0,0 +1,142 @@
+package domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountQuantileSketchesTest {
+
+    private AccountQuantileSketches sketches;
+
+    @BeforeEach
+    void setup() {
+        sketches = new AccountQuantileSketches();
+    }
+
+    // Fraction of the sorted amounts at or below value
+    private double rankOf(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0) {
+            return (double) (-index - 1) / sorted.length;
+        }
+        while (index + 1 < sorted.length && sorted[index + 1] == value) {
+            index++;
+        }
+        return (double) (index + 1) / sorted.length;
+    }
+
+    private void assertRankError(int accountId, int[] amounts, double q, double maxError) {
+        int[] sorted = amounts.clone();
+        Arrays.sort(sorted);
+        int estimate = sketches.getQuantile(accountId, q);
+        double rank = rankOf(sorted, estimate);
+        assertTrue(Math.abs(rank - q) <= maxError, "q=" + q + " estimate " + estimate + " has rank " + rank);
+    }
+
+    @Test
+    @DisplayName("Test unknown account has no quantiles")
+    void testUnknownAccount() {
+        assertEquals(0, sketches.getQuantile(7, 0.5));
+        assertEquals(0, sketches.getCount(7));
+        assertEquals(0, sketches.centroidCount(7));
+    }
+
+    @Test
+    @DisplayName("Test a few amounts are kept exactly and interpolated between")
+    void testSmallAccountIsExact() {
+        sketches.add(1, 30);
+        sketches.add(1, 10);
+        sketches.add(1, 20);
+        sketches.add(2, 500);
+
+        assertEquals(10, sketches.getQuantile(1, 0));
+        assertEquals(20, sketches.getQuantile(1, 0.5));
+        assertEquals(30, sketches.getQuantile(1, 1));
+        assertEquals(15, sketches.getQuantile(1, 1 / 3.0));
+        assertEquals(500, sketches.getQuantile(2, 0.99));
+        assertEquals(3, sketches.getCount(1));
+        assertEquals(2, sketches.accountCount());
+    }
+
+    @Test
+    @DisplayName("Test quantiles of a skewed stream stay accurate, most of all in the tails")
+    void testSkewedStreamAccuracy() {
+        Random random = new Random(5);
+        int[] amounts = new int[100_000];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = (int) Math.exp(4 + 2 * random.nextGaussian());
+            sketches.add(1, amounts[i]);
+        }
+
+        assertRankError(1, amounts, 0.5, 0.02);
+        assertRankError(1, amounts, 0.9, 0.01);
+        assertRankError(1, amounts, 0.99, 0.005);
+        assertRankError(1, amounts, 0.999, 0.002);
+        assertEquals(Arrays.stream(amounts).max().getAsInt(), sketches.getQuantile(1, 1));
+        assertEquals(amounts.length, sketches.getCount(1));
+    }
+
+    @Test
+    @DisplayName("Test an account never holds more than the centroid capacity")
+    void testMemoryIsBounded() {
+        for (int i = 0; i < 50_000; i++) {
+            sketches.add(1, i % 977);
+            assertTrue(sketches.centroidCount(1) <= AccountQuantileSketches.CAPACITY);
+        }
+    }
+
+    @Test
+    @DisplayName("Test sorted and constant streams")
+    void testSortedAndConstantStreams() {
+        int[] amounts = new int[20_000];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = i;
+            sketches.add(1, i);
+            sketches.add(2, 42);
+        }
+
+        assertRankError(1, amounts, 0.99, 0.005);
+        assertRankError(1, amounts, 0.5, 0.02);
+        assertEquals(42, sketches.getQuantile(2, 0.01));
+        assertEquals(42, sketches.getQuantile(2, 0.99));
+    }
+
+    @Test
+    @DisplayName("Test copies and serialized sketches answer like the original and keep updating independently")
+    void testCopyAndSerialization() throws IOException {
+        Random random = new Random(8);
+        for (int i = 0; i < 5000; i++) {
+            sketches.add(random.nextInt(3), random.nextInt(10_000));
+        }
+        AccountQuantileSketches copy = sketches.copy();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketches.writeTo(new DataOutputStream(bytes));
+        AccountQuantileSketches read = AccountQuantileSketches.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        for (int accountId = 0; accountId < 3; accountId++) {
+            for (double q : new double[]{0, 0.1, 0.5, 0.99, 1}) {
+                assertEquals(sketches.getQuantile(accountId, q), copy.getQuantile(accountId, q));
+                assertEquals(sketches.getQuantile(accountId, q), read.getQuantile(accountId, q));
+            }
+            assertEquals(sketches.getCount(accountId), read.getCount(accountId));
+        }
+        for (int i = 0; i < 1000; i++) {
+            read.add(0, 50_000);
+            assertTrue(read.centroidCount(0) <= AccountQuantileSketches.CAPACITY);
+        }
+        assertEquals(50_000, read.getQuantile(0, 1));
+        assertTrue(sketches.getQuantile(0, 1) < 10_000);
+    }
+}
@@ -0,0 +1,156 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AccountStatisticsRecomputeTest {
+
+    private final int[] accountIds;
+    private final int[] amounts;
+    private final long[] debitBits;
+
+    AccountStatisticsRecomputeTest() {
+        int rows = AccountStatisticsRecompute.PARALLEL_ROWS * 2 + 37;
+        Random random = new Random(11);
+        accountIds = new int[rows];
+        amounts = new int[rows];
+        debitBits = new long[(rows + 63) / 64];
+        for (int row = 0; row < rows; row++) {
+            accountIds[row] = random.nextInt(3000) - 1000;
+            amounts[row] = random.nextInt(2_000_000) - 1000;
+            if (random.nextBoolean()) {
+                debitBits[row / 64] |= 1L << row;
+            }
+        }
+    }
+
+    private void assertMatchesNaive(AccountTotals totals, int from, int to) {
+        AccountTotals expected = new AccountTotals();
+        for (int row = from; row < to; row++) {
+            boolean isDebit = (debitBits[row / 64] & (1L << row)) != 0;
+            expected.addAt(expected.slotFor(accountIds[row]), amounts[row], 1, isDebit ? amounts[row] : 0);
+        }
+        assertEquals(expected.accountCount(), totals.accountCount());
+        for (int slot = 0; slot < expected.accountCount(); slot++) {
+            int accountId = expected.accountIdAt(slot);
+            assertEquals(expected.sumAt(slot), totals.getSum(accountId), "sum of " + accountId);
+            assertEquals(expected.countAt(slot), totals.getCount(accountId), "count of " + accountId);
+            assertEquals(expected.debitSumAt(slot), totals.getDebitSum(accountId), "debit sum of " + accountId);
+        }
+    }
+
+    @Test
+    @DisplayName("Test both kernels match a naive loop on unaligned ranges, serially and split across a pool")
+    void testKernelsMatchNaiveLoop() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (AccountStatisticsRecompute.Kernel kernel : AccountStatisticsRecompute.Kernel.values()) {
+                if (kernel == AccountStatisticsRecompute.Kernel.VECTOR && !AccountStatisticsRecompute.isVectorAvailable()) {
+                    continue;
+                }
+                assertMatchesNaive(AccountStatisticsRecompute.compute(accountIds, amounts, debitBits, 5, 1003, kernel, pool), 5, 1003);
+                assertMatchesNaive(AccountStatisticsRecompute.compute(accountIds, amounts, debitBits, 3, 3, kernel, pool), 3, 3);
+                assertMatchesNaive(AccountStatisticsRecompute.compute(accountIds, amounts, debitBits, 13, accountIds.length,
+                        kernel, pool), 13, accountIds.length);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Test the kernel is selected by a system property and defaults to scalar")
+    void testKernelSelection() {
+        assertEquals(AccountStatisticsRecompute.Kernel.SCALAR, AccountStatisticsRecompute.defaultKernel());
+        System.setProperty(AccountStatisticsRecompute.KERNEL_PROPERTY, "vector");
+        try {
+            assertEquals(AccountStatisticsRecompute.Kernel.VECTOR, AccountStatisticsRecompute.defaultKernel());
+        } finally {
+            System.clearProperty(AccountStatisticsRecompute.KERNEL_PROPERTY);
+        }
+    }
+
+    @Test
+    @DisplayName("Test a columnar history with evicted entries is recomputed from its live range")
+    void testRecomputeHistory() {
+        ColumnarTransactionHistory history = new ColumnarTransactionHistory();
+        for (int i = 0; i < 300; i++) {
+            history.append(i, i % 7, 10 * i, i % 3 == 0);
+        }
+        for (int i = 0; i < 130; i++) {
+            history.removeOldest();
+        }
+
+        AccountTotals totals = AccountStatisticsRecompute.compute(history, AccountStatisticsRecompute.defaultKernel(),
+                ForkJoinPool.commonPool());
+        long sum = 0;
+        long debitSum = 0;
+        for (int i = 130; i < 300; i++) {
+            if (i % 7 == 2) {
+                sum += 10 * i;
+                debitSum += i % 3 == 0 ? 10 * i : 0;
+            }
+        }
+        assertEquals(7, totals.accountCount());
+        assertEquals(sum, totals.getSum(2));
+        assertEquals(debitSum, totals.getDebitSum(2));
+        assertEquals(0, totals.getCount(8));
+    }
+
+    @Test
+    @DisplayName("Test the vector kernel falls back to the scalar one when its module is missing")
+    void testVectorKernelFallsBack() {
+        assertEquals(AccountStatisticsRecompute.isVectorAvailable() ? AccountStatisticsRecompute.Kernel.VECTOR
+                        : AccountStatisticsRecompute.Kernel.SCALAR,
+                AccountStatisticsRecompute.resolveKernel(AccountStatisticsRecompute.Kernel.VECTOR));
+        assertEquals(AccountStatisticsRecompute.Kernel.SCALAR,
+                AccountStatisticsRecompute.resolveKernel(AccountStatisticsRecompute.Kernel.SCALAR));
+        assertMatchesNaive(AccountStatisticsRecompute.compute(accountIds, amounts, debitBits, 0, 1000,
+                AccountStatisticsRecompute.Kernel.VECTOR, ForkJoinPool.commonPool()), 0, 1000);
+    }
+
+    @Test
+    @DisplayName("Test an unknown kernel name is rejected")
+    void testUnknownKernelIsRejected() {
+        System.setProperty(AccountStatisticsRecompute.KERNEL_PROPERTY, "gpu");
+        try {
+            assertThrows(IllegalArgumentException.class, AccountStatisticsRecompute::defaultKernel);
+        } finally {
+            System.clearProperty(AccountStatisticsRecompute.KERNEL_PROPERTY);
+        }
+    }
+
+    @Test
+    @DisplayName("Test recomputed account statistics match the incrementally maintained ones")
+    void testRecomputeAccountStatistics() {
+        TransactionEngine engine = new TransactionEngine();
+        engine.enableHistoryWindow(500, 0);
+        Random random = new Random(9);
+        for (int i = 0; i < 2000; i++) {
+            engine.addTransactionAndDetectFraud(createTransaction(i, random.nextInt(40), random.nextInt(3000), random.nextBoolean()));
+        }
+        int[] averages = new int[40];
+        for (int account = 0; account < 40; account++) {
+            averages[account] = engine.getAverageTransactionAmountByAccount(account);
+        }
+
+        engine.recomputeAccountStatistics(AccountStatisticsRecompute.Kernel.SCALAR);
+        for (int account = 0; account < 40; account++) {
+            assertEquals(averages[account], engine.getAverageTransactionAmountByAccount(account));
+        }
+        engine.recomputeAccountStatistics();
+        long count = 0;
+        for (int account = 0; account < 40; account++) {
+            assertEquals(averages[account], engine.getAverageTransactionAmountByAccount(account));
+            count += engine.accountAggregates.getCount(account);
+        }
+        assertEquals(500, count);
+    }
+}
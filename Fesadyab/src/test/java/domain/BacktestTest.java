@@ -0,0 +1,104 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class BacktestTest {
+
+    private List<Transaction> randomTransactions(int count) {
+        Random random = new Random(21);
+        List<Transaction> txns = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            txns.add(createTransaction(random.nextInt(count), random.nextInt(50), 1 + random.nextInt(2500), random.nextInt(3) == 0));
+        }
+        return txns;
+    }
+
+    @Test
+    @DisplayName("Test every configuration gets the statistics of a sequential engine with its rules")
+    void testResultsMatchSequentialEngines() {
+        List<Transaction> txns = randomTransactions(10_000);
+        List<BacktestConfig> configs = List.of(new BacktestConfig(1000, 2), new BacktestConfig(500, 3),
+                new BacktestConfig(2000, 1), new BacktestConfig(1000, 5));
+
+        List<BacktestResult> results = Backtest.of(txns).run(configs, new ForkJoinPool(3));
+
+        assertEquals(configs.size(), results.size());
+        for (int c = 0; c < configs.size(); c++) {
+            BacktestConfig config = configs.get(c);
+            BacktestResult result = results.get(c);
+            assertSame(config, result.getConfig());
+
+            TransactionEngine engine = new TransactionEngine();
+            engine.setRules(List.of(new ExcessiveDebitRule(config.getDebitMultiplier()), new ThresholdPatternRule(config.getThreshold())));
+            long flagged = 0;
+            long sum = 0;
+            for (Transaction txn : txns) {
+                int score = engine.addTransactionAndDetectFraud(txn);
+                flagged += score != 0 ? 1 : 0;
+                sum += score;
+            }
+            assertEquals(txns.size(), result.getTransactionCount());
+            assertEquals(flagged, result.getFlaggedCount(), config.toString());
+            assertEquals(sum, result.getScoreSum(), config.toString());
+            assertEquals(flagged, Arrays.stream(result.getPositiveScoreBuckets()).sum()
+                    + Arrays.stream(result.getNegativeScoreBuckets()).sum());
+        }
+    }
+
+    @Test
+    @DisplayName("Test score histograms bucket by power of two")
+    void testScoreHistogram() {
+        BacktestResult result = new BacktestResult(new BacktestConfig(1000, 2));
+        result.record(new int[]{0, 1, 2, 3, 4, -1, -5, Integer.MIN_VALUE});
+
+        assertEquals(8, result.getTransactionCount());
+        assertEquals(7, result.getFlaggedCount());
+        assertEquals(Integer.MIN_VALUE, result.getMinScore());
+        assertEquals(4, result.getMaxScore());
+        long[] positive = result.getPositiveScoreBuckets();
+        assertEquals(1, positive[1]);
+        assertEquals(2, positive[2]);
+        assertEquals(1, positive[3]);
+        long[] negative = result.getNegativeScoreBuckets();
+        assertEquals(1, negative[1]);
+        assertEquals(1, negative[3]);
+        assertEquals(1, negative[32]);
+    }
+
+    @Test
+    @DisplayName("Test a journal is loaded once and replayed for each configuration")
+    void testFromJournal(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("journal.bin");
+        List<Transaction> txns = randomTransactions(3000);
+        try (TransactionJournal journal = TransactionJournal.open(path)) {
+            for (Transaction txn : txns) {
+                journal.append(txn.transactionId, txn.accountId, txn.amount, txn.isDebit);
+            }
+        }
+
+        Backtest backtest = Backtest.fromJournal(path);
+        List<BacktestConfig> configs = List.of(new BacktestConfig(1000, 2), new BacktestConfig(1500, 2));
+        List<BacktestResult> fromJournal = backtest.run(configs);
+        List<BacktestResult> fromList = Backtest.of(txns).run(configs);
+
+        assertEquals(3000, backtest.size());
+        for (int c = 0; c < configs.size(); c++) {
+            assertEquals(fromList.get(c).getFlaggedCount(), fromJournal.get(c).getFlaggedCount());
+            assertEquals(fromList.get(c).getScoreSum(), fromJournal.get(c).getScoreSum());
+        }
+    }
+}
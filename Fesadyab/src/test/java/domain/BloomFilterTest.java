@@ -0,0 +1,89 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("Test sizing follows the expected count and false-positive rate")
+    void testSizing() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+
+        assertEquals(9600, filter.getBitCount());
+        assertEquals(7, filter.getHashCount());
+        assertEquals(0.0, filter.getFillRatio());
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(10, 1));
+    }
+
+    @Test
+    @DisplayName("Test added ids are always found and the false-positive rate stays near its target")
+    void testFalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int id = 0; id < 10_000; id++) {
+            filter.add(id * 7);
+        }
+        for (int id = 0; id < 10_000; id++) {
+            assertTrue(filter.mightContain(id * 7));
+        }
+
+        int positives = 0;
+        for (int id = 0; id < 100_000; id++) {
+            if (filter.mightContain(-1 - id)) {
+                positives++;
+            }
+        }
+        assertTrue(positives < 2000, "false positives: " + positives);
+        assertTrue(filter.getFillRatio() > 0.4 && filter.getFillRatio() < 0.6);
+        assertTrue(filter.getExpectedFalsePositiveRate() < 0.02);
+        assertEquals(110_000, filter.getQueryCount());
+        assertEquals(100_000 - positives, filter.getNegativeCount());
+    }
+
+    @Test
+    @DisplayName("Test clear drops ids but keeps the counters")
+    void testClear() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        filter.add(5);
+        assertTrue(filter.mightContain(5));
+        filter.recordFalsePositive();
+
+        filter.clear();
+        assertFalse(filter.mightContain(5));
+        assertEquals(0.0, filter.getFillRatio());
+        assertEquals(2, filter.getQueryCount());
+        assertEquals(1, filter.getFalsePositiveCount());
+    }
+
+    @Test
+    @DisplayName("Test a duplicate filter leaves scores unchanged and counts its lookups")
+    void testDuplicateFilterKeepsScores() {
+        TransactionEngine engine = new TransactionEngine();
+        TransactionEngine reference = new TransactionEngine();
+        TransactionEngine filtered = new TransactionEngine();
+        filtered.addTransactionAndDetectFraud(createTransaction(1, 1, 100));
+        reference.addTransactionAndDetectFraud(createTransaction(1, 1, 100));
+        filtered.enableDuplicateFilter(1000, 0.01);
+
+        Random random = new Random(5);
+        for (int i = 0; i < 3000; i++) {
+            Transaction txn = createTransaction(random.nextInt(2000), random.nextInt(10), random.nextInt(1500), random.nextBoolean());
+            assertEquals(reference.addTransactionAndDetectFraud(txn), filtered.addTransactionAndDetectFraud(txn), "transaction " + i);
+        }
+
+        BloomFilter filter = filtered.getDuplicateFilter();
+        assertEquals(3000, filter.getQueryCount());
+        assertEquals(3000 - filter.getNegativeCount() - filter.getFalsePositiveCount(),
+                3000 - filtered.transactionIds.size() + 1);
+        assertEquals(null, new TransactionEngine().getDuplicateFilter());
+    }
+}
@@ -0,0 +1,98 @@
+package domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarTransactionHistoryTest {
+
+    private ColumnarTransactionHistory history;
+
+    @BeforeEach
+    void setup() {
+        history = new ColumnarTransactionHistory();
+    }
+
+    @Test
+    @DisplayName("Test new history is empty")
+    void testNewHistoryIsEmpty() {
+        assertTrue(history.isEmpty());
+        assertEquals(0, history.size());
+    }
+
+    @Test
+    @DisplayName("Test appended columns are read back in order")
+    void testAppendedColumnsAreReadBack() {
+        history.append(10, 1, 100, true);
+        history.append(11, 2, -50, false);
+
+        assertFalse(history.isEmpty());
+        assertEquals(2, history.size());
+        assertEquals(10, history.transactionIdAt(0));
+        assertEquals(1, history.accountIdAt(0));
+        assertEquals(100, history.amountAt(0));
+        assertTrue(history.isDebitAt(0));
+        assertEquals(11, history.transactionIdAt(1));
+        assertEquals(2, history.accountIdAt(1));
+        assertEquals(-50, history.amountAt(1));
+        assertFalse(history.isDebitAt(1));
+    }
+
+    @Test
+    @DisplayName("Test debit flags survive growth across bitset words")
+    void testDebitFlagsSurviveGrowth() {
+        for (int i = 0; i < 1000; i++) {
+            history.append(i, i % 7, i * 3, i % 3 == 0);
+        }
+
+        assertEquals(1000, history.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, history.transactionIdAt(i));
+            assertEquals(i % 7, history.accountIdAt(i));
+            assertEquals(i * 3, history.amountAt(i));
+            assertEquals(i % 3 == 0, history.isDebitAt(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Test reading past the end is rejected")
+    void testReadingPastTheEndIsRejected() {
+        history.append(1, 1, 1, false);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> history.amountAt(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> history.isDebitAt(64));
+    }
+
+    @Test
+    @DisplayName("Test removing the oldest entries shifts indexes and survives compaction")
+    void testRemoveOldest() {
+        for (int i = 0; i < 5000; i++) {
+            history.append(i, i % 5, i, i % 2 == 0);
+            if (i % 3 != 0) {
+                history.removeOldest();
+            }
+        }
+
+        int first = 5000 - history.size();
+        assertEquals(1667, history.size());
+        for (int i = 0; i < history.size(); i++) {
+            assertEquals(first + i, history.transactionIdAt(i));
+            assertEquals((first + i) % 5, history.accountIdAt(i));
+            assertEquals(first + i, history.amountAt(i));
+            assertEquals((first + i) % 2 == 0, history.isDebitAt(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Test removing from an empty history is rejected")
+    void testRemoveOldestFromEmptyHistory() {
+        assertThrows(IndexOutOfBoundsException.class, () -> history.removeOldest());
+        assertThrows(IndexOutOfBoundsException.class, () -> history.amountAt(-1));
+    }
+
+}
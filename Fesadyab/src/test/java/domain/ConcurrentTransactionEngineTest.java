@@ -0,0 +1,117 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConcurrentTransactionEngineTest {
+
+    @Test
+    @DisplayName("Test single-threaded use scores like TransactionEngine")
+    void testSingleThreadedUseMatchesTransactionEngine() {
+        ConcurrentTransactionEngine concurrent = new ConcurrentTransactionEngine(3);
+        TransactionEngine engine = new TransactionEngine();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 1000; i++) {
+            Transaction txn = createTransaction(random.nextInt(800), random.nextInt(10),
+                    random.nextInt(2500), random.nextBoolean());
+            assertEquals(engine.addTransactionAndDetectFraud(txn), concurrent.addTransactionAndDetectFraud(txn));
+        }
+        for (int accountId = 0; accountId < 10; accountId++) {
+            assertEquals(engine.getAverageTransactionAmountByAccount(accountId),
+                    concurrent.getAverageTransactionAmountByAccount(accountId));
+        }
+        assertEquals(engine.getTransactionPatternAboveThreshold(1000), concurrent.getTransactionPatternAboveThreshold(1000));
+        assertEquals(engine.transactionHistory.size(), concurrent.historySize());
+    }
+
+    @Test
+    @DisplayName("Test concurrent ingestion matches a single-threaded replay of the linearized order")
+    void testConcurrentIngestionMatchesLinearizedReplay() throws Exception {
+        int threads = 8;
+        int perThread = 2500;
+        ConcurrentTransactionEngine concurrent = new ConcurrentTransactionEngine(4);
+        Random random = new Random(11);
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int id = 0; id < threads * perThread; id++) {
+            Transaction txn = createTransaction(id, random.nextInt(50), 900 + random.nextInt(600), random.nextInt(4) == 0);
+            transactions.add(txn);
+            if (random.nextInt(10) == 0) {
+                transactions.add(createTransaction(id, txn.getAccountId(), txn.getAmount(), txn.isDebit()));
+            }
+        }
+        Collections.shuffle(transactions, random);
+
+        int[] scores = new int[transactions.size()];
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = offset; i < transactions.size(); i += threads) {
+                    scores[i] = concurrent.addTransactionAndDetectFraud(transactions.get(i));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        TransactionEngine replay = new TransactionEngine();
+        Map<Integer, Integer> replayScores = new HashMap<>();
+        TransactionHistory history = concurrent.transactionHistory;
+        for (int i = 0; i < history.size(); i++) {
+            Transaction txn = createTransaction(history.transactionIdAt(i), history.accountIdAt(i),
+                    history.amountAt(i), history.isDebitAt(i));
+            replayScores.put(txn.getTransactionId(), replay.addTransactionAndDetectFraud(txn));
+        }
+
+        Map<Integer, List<Integer>> concurrentScores = new HashMap<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            concurrentScores.computeIfAbsent(transactions.get(i).getTransactionId(), id -> new ArrayList<>()).add(scores[i]);
+        }
+        assertEquals(threads * perThread, history.size());
+        for (Map.Entry<Integer, List<Integer>> entry : concurrentScores.entrySet()) {
+            int[] expected = new int[entry.getValue().size()];
+            expected[expected.length - 1] = replayScores.get(entry.getKey());
+            int[] actual = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            Arrays.sort(expected);
+            Arrays.sort(actual);
+            assertEquals(Arrays.toString(expected), Arrays.toString(actual), "transaction " + entry.getKey());
+        }
+        for (int accountId = 0; accountId < 50; accountId++) {
+            assertEquals(replay.getAverageTransactionAmountByAccount(accountId),
+                    concurrent.getAverageTransactionAmountByAccount(accountId));
+        }
+    }
+
+    @Test
+    @DisplayName("Test stripe count must be positive")
+    void testStripeCountMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentTransactionEngine(0));
+        assertEquals(5, new ConcurrentTransactionEngine(5).stripeCount());
+    }
+}
@@ -0,0 +1,60 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class CopyOnWritePagesTest {
+
+    @Test
+    @DisplayName("Test the copy holds the captured contents while the owner keeps writing in place")
+    void testCopyIsPointInTime() {
+        Random random = new Random(3);
+        for (int run = 0; run < 20; run++) {
+            long[] values = new long[50_000];
+            boolean[] flags = new boolean[values.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = random.nextLong();
+                flags[i] = random.nextBoolean();
+            }
+            long[] expectedValues = values.clone();
+            boolean[] expectedFlags = flags.clone();
+            CopyOnWritePages pages = new CopyOnWritePages(null, 40_000, values, flags);
+
+            CompletableFuture<Object[]> copy = CompletableFuture.supplyAsync(pages::copy);
+            while (!copy.isDone()) {
+                int index = random.nextInt(values.length);
+                pages.beforeWrite(index);
+                values[index]++;
+                flags[index] = !flags[index];
+            }
+
+            Object[] copied = copy.join();
+            assertArrayEquals(Arrays.copyOf(expectedValues, 40_000), (long[]) copied[0], "run " + run);
+            assertArrayEquals(Arrays.copyOf(expectedFlags, 40_000), (boolean[]) copied[1], "run " + run);
+        }
+    }
+
+    @Test
+    @DisplayName("Test two copies in flight over the same array each see their own capture")
+    void testOverlappingCopies() {
+        int[] values = new int[5000];
+        CopyOnWritePages first = new CopyOnWritePages(null, values.length, values);
+        for (int i = 0; i < values.length; i += 7) {
+            first.beforeWrite(i);
+            values[i] = 1;
+        }
+        int[] atSecond = values.clone();
+        CopyOnWritePages second = new CopyOnWritePages(first, values.length, values);
+        second.beforeWrite(0, values.length);
+        Arrays.fill(values, 2);
+
+        assertArrayEquals(atSecond, (int[]) second.copy()[0]);
+        assertArrayEquals(new int[values.length], (int[]) first.copy()[0]);
+    }
+}
@@ -0,0 +1,136 @@
+package domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DebitVelocityTest {
+
+    private DebitVelocity velocity;
+
+    @BeforeEach
+    void setup() {
+        velocity = new DebitVelocity(60);
+    }
+
+    @Test
+    @DisplayName("Test unknown account has no debits")
+    void testUnknownAccount() {
+        assertEquals(0, velocity.getCount(7, 100));
+        assertEquals(0, velocity.getTotal(7, 100));
+        assertEquals(0, velocity.accountCount());
+    }
+
+    @Test
+    @DisplayName("Test debits leave the window bucket by bucket as time passes")
+    void testDebitsExpire() {
+        velocity.add(1, 100, 0);
+        velocity.add(1, 200, 7);
+        velocity.add(1, 300, 30);
+        velocity.add(2, 50, 30);
+
+        assertEquals(3, velocity.getCount(1, 59));
+        assertEquals(600, velocity.getTotal(1, 59));
+        assertEquals(2, velocity.getCount(1, 60));
+        assertEquals(500, velocity.getTotal(1, 60));
+        assertEquals(1, velocity.getCount(1, 65));
+        assertEquals(300, velocity.getTotal(1, 89));
+        assertEquals(0, velocity.getCount(1, 90));
+        assertEquals(50, velocity.getTotal(2, 60));
+    }
+
+    @Test
+    @DisplayName("Test a new debit retires stale buckets and reads never change state")
+    void testAddRetiresStaleBuckets() {
+        velocity.add(1, 100, 0);
+        velocity.add(1, 200, 10);
+        assertEquals(0, velocity.getCount(1, 1000));
+        assertEquals(2, velocity.getCount(1, 10));
+
+        velocity.add(1, 400, 65);
+        assertEquals(2, velocity.getCount(1, 65));
+        assertEquals(600, velocity.getTotal(1, 65));
+        velocity.add(1, 800, 10_000);
+        assertEquals(1, velocity.getCount(1, 10_000));
+        assertEquals(800, velocity.getTotal(1, 10_000));
+    }
+
+    @Test
+    @DisplayName("Test late debits land in their own bucket unless older than the ring")
+    void testLateDebits() {
+        velocity.add(1, 100, 100);
+        velocity.add(1, 10, 80);
+        velocity.add(1, 1, 20);
+
+        assertEquals(2, velocity.getCount(1, 100));
+        assertEquals(110, velocity.getTotal(1, 100));
+        assertEquals(100, velocity.getTotal(1, 140));
+    }
+
+    @Test
+    @DisplayName("Test counts match a scan over a random stream")
+    void testMatchesScan() {
+        Random random = new Random(3);
+        int n = 5000;
+        int[] accounts = new int[n];
+        int[] amounts = new int[n];
+        long[] times = new long[n];
+        long now = 0;
+        for (int i = 0; i < n; i++) {
+            now += random.nextInt(4);
+            accounts[i] = random.nextInt(20);
+            amounts[i] = random.nextInt(1000);
+            times[i] = now;
+            velocity.add(accounts[i], amounts[i], now);
+
+            int account = random.nextInt(20);
+            long bucketStart = (now / 5 - DebitVelocity.BUCKETS + 1) * 5;
+            int count = 0;
+            long total = 0;
+            for (int j = 0; j <= i; j++) {
+                if (accounts[j] == account && times[j] >= bucketStart) {
+                    count++;
+                    total += amounts[j];
+                }
+            }
+            assertEquals(count, velocity.getCount(account, now));
+            assertEquals(total, velocity.getTotal(account, now));
+        }
+    }
+
+    @Test
+    @DisplayName("Test the window must be positive")
+    void testWindowMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new DebitVelocity(0));
+    }
+
+    @Test
+    @DisplayName("Test a batch with timestamps scores like single adds")
+    void testTimestampedBatchMatchesSingleAdds() {
+        TransactionEngine engine = new TransactionEngine();
+        TransactionEngine single = new TransactionEngine();
+        engine.setRules(List.of(new DebitVelocityRule(50, 4, 3000)));
+        single.setRules(List.of(new DebitVelocityRule(50, 4, 3000)));
+        Random random = new Random(9);
+        List<Transaction> txns = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Transaction txn = createTransaction(i, random.nextInt(5), random.nextInt(1000), random.nextBoolean());
+            txn.setTimestamp(i % 7 == 0 ? 0 : i);
+            txns.add(txn);
+        }
+
+        int[] scores = engine.addTransactionsAndDetectFraud(txns);
+        for (int i = 0; i < txns.size(); i++) {
+            assertEquals(single.addTransactionAndDetectFraud(txns.get(i)), scores[i], "transaction " + i);
+        }
+        assertEquals(299, engine.clock);
+    }
+}
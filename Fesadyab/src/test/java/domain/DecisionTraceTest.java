@@ -0,0 +1,133 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecisionTraceTest {
+
+    private final FraudRule rule = new ExcessiveDebitRule(2);
+
+    private void record(DecisionTrace trace, ScoringContext context, int n) {
+        context.reset(null, n, n, n, n % 2 == 0, 2L * n, 2);
+        trace.record(context, n % 3 == 0 ? rule : null, n, n, n);
+    }
+
+    @Test
+    @DisplayName("Test the trace keeps the most recent decisions, oldest first")
+    void testKeepsMostRecentDecisions() {
+        DecisionTrace trace = new DecisionTrace(8, 1);
+        ScoringContext context = new ScoringContext();
+        assertEquals(List.of(), trace.dump());
+
+        for (int n = 0; n < 20; n++) {
+            record(trace, context, n);
+        }
+
+        List<FraudDecision> decisions = trace.dump();
+        assertEquals(20, trace.recordedCount());
+        assertEquals(8, decisions.size());
+        assertTrue(trace.timesNext());
+        for (int i = 0; i < 8; i++) {
+            FraudDecision decision = decisions.get(i);
+            int n = 12 + i;
+            assertEquals(n, decision.getSequence());
+            assertEquals(n, decision.getTransactionId());
+            assertEquals(n, decision.getAverageAmount());
+            assertEquals(n % 2 == 0, decision.isDebit());
+            if (n % 3 == 0) {
+                assertSame(rule, decision.getFiredRule());
+            } else {
+                assertNull(decision.getFiredRule());
+            }
+        }
+        assertTrue(decisions.get(0).toString().contains("rule=ExcessiveDebitRule"));
+    }
+
+    @Test
+    @DisplayName("Test dumps taken on another thread never return a torn decision")
+    void testDumpFromAnotherThread() throws InterruptedException {
+        DecisionTrace trace = new DecisionTrace(64, 1);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            ScoringContext context = new ScoringContext();
+            for (int n = 0; n < 2_000_000; n++) {
+                record(trace, context, n);
+            }
+        });
+        writer.start();
+
+        while (writer.isAlive()) {
+            long lastSequence = -1;
+            for (FraudDecision decision : trace.dump()) {
+                long n = decision.getSequence();
+                if (decision.getTransactionId() != n || decision.getAmount() != n || decision.getScore() != n
+                        || decision.getElapsedNanos() != n || decision.getPatternDiff() != n) {
+                    failure.set("torn decision " + decision);
+                }
+                if (n <= lastSequence) {
+                    failure.set("decision " + n + " repeated or out of order");
+                }
+                lastSequence = n;
+            }
+            Thread.yield();
+        }
+        writer.join();
+
+        assertNull(failure.get());
+        assertEquals(64, trace.dump().size());
+    }
+
+    @Test
+    @DisplayName("Test capacity and timing interval must be powers of two")
+    void testCapacityMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new DecisionTrace(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DecisionTrace(12, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DecisionTrace(16, 3));
+    }
+
+    @Test
+    @DisplayName("Test the decision trace records why each transaction was scored")
+    void testDecisionTrace() {
+        TransactionEngine engine = new TransactionEngine();
+        engine.enableDecisionTrace(4, 2);
+        engine.addTransactionAndDetectFraud(createTransaction(1, 1, 1100));
+        engine.addTransactionAndDetectFraud(createTransaction(2, 1, 1300));
+        engine.addTransactionsAndDetectFraud(List.of(createTransaction(3, 1, 500, true),
+                createTransaction(2, 1, 1300), createTransaction(4, 2, 3000, true)));
+
+        List<FraudDecision> trace = engine.getDecisionTrace();
+        assertEquals(4, trace.size());
+        FraudDecision first = trace.get(0);
+        assertEquals(0, first.getSequence());
+        assertEquals(0, first.getScore());
+        assertNull(first.getFiredRule());
+        FraudDecision pattern = trace.get(2);
+        assertEquals(3, pattern.getTransactionId());
+        assertEquals(200, pattern.getScore());
+        assertInstanceOf(ThresholdPatternRule.class, pattern.getFiredRule());
+        assertEquals(1200, pattern.getAverageAmount());
+        assertEquals(200, pattern.getPatternDiff());
+        FraudDecision debit = trace.get(3);
+        assertEquals(3000, debit.getScore());
+        assertInstanceOf(ExcessiveDebitRule.class, debit.getFiredRule());
+        assertTrue(pattern.getElapsedNanos() >= 0);
+        assertEquals(-1, debit.getElapsedNanos());
+
+        engine.addTransactionAndDetectFraud(createTransaction(5, 2, 10));
+        assertEquals(List.of(1L, 2L, 3L, 4L), engine.getDecisionTrace().stream().map(FraudDecision::getSequence).toList());
+        engine.disableDecisionTrace();
+        engine.addTransactionAndDetectFraud(createTransaction(6, 2, 10));
+        assertEquals(List.of(), engine.getDecisionTrace());
+    }
+}
@@ -0,0 +1,277 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EngineCheckpointTest {
+
+    @TempDir
+    Path directory;
+
+    private Transaction randomTransaction(Random random) {
+        return createTransaction(random.nextInt(3000), random.nextInt(20), 900 + random.nextInt(400), random.nextBoolean());
+    }
+
+    private void assertSameState(TransactionEngine expected, TransactionEngine actual) {
+        for (int accountId = 0; accountId < 20; accountId++) {
+            assertEquals(expected.getAverageTransactionAmountByAccount(accountId),
+                    actual.getAverageTransactionAmountByAccount(accountId), "account " + accountId);
+        }
+        assertEquals(expected.getTransactionPatternAboveThreshold(1000), actual.getTransactionPatternAboveThreshold(1000));
+    }
+
+    @Test
+    @DisplayName("Test checkpoint plus journal tail restores the same engine as ingesting everything")
+    void testRestoreWithJournalTail() throws IOException {
+        Random random = new Random(12);
+        Path journalPath = directory.resolve("journal.bin");
+        Path checkpointPath = directory.resolve("engine.ckpt");
+        TransactionEngine reference = new TransactionEngine();
+
+        try (TransactionJournal journal = TransactionJournal.open(journalPath)) {
+            TransactionEngine engine = new TransactionEngine();
+            engine.attachJournal(journal);
+            for (int i = 0; i < 2000; i++) {
+                Transaction txn = randomTransaction(random);
+                assertEquals(reference.addTransactionAndDetectFraud(txn), engine.addTransactionAndDetectFraud(txn));
+                if (i == 1000) {
+                    engine.checkpoint(checkpointPath).join();
+                }
+            }
+        }
+
+        TransactionEngine restored = new TransactionEngine();
+        restored.restoreCheckpoint(checkpointPath);
+        try (TransactionJournal journal = TransactionJournal.open(journalPath)) {
+            restored.attachJournal(journal);
+            assertSameState(reference, restored);
+            for (int i = 0; i < 500; i++) {
+                Transaction txn = randomTransaction(random);
+                assertEquals(reference.addTransactionAndDetectFraud(txn), restored.addTransactionAndDetectFraud(txn), "transaction " + i);
+            }
+        }
+        assertSameState(reference, restored);
+    }
+
+    @Test
+    @DisplayName("Test the threshold pattern carries over a checkpoint without history")
+    void testPatternSurvivesWithoutHistory() throws IOException {
+        Path checkpointPath = directory.resolve("pattern.ckpt");
+        TransactionEngine engine = new TransactionEngine();
+        engine.addTransactionAndDetectFraud(createTransaction(1, 1, 1100, false));
+        engine.addTransactionAndDetectFraud(createTransaction(2, 1, 1200, false));
+        engine.checkpoint(checkpointPath).join();
+
+        TransactionEngine restored = new TransactionEngine();
+        restored.restoreCheckpoint(checkpointPath);
+        assertEquals(0, restored.transactionHistory.size());
+        assertEquals(100, restored.getTransactionPatternAboveThreshold(1000));
+        assertEquals(100, restored.addTransactionAndDetectFraud(createTransaction(3, 2, 1300, false)));
+        assertEquals(100, restored.addTransactionAndDetectFraud(createTransaction(4, 2, 1350, false)));
+        assertEquals(0, restored.getTransactionPatternAboveThreshold(1000));
+        assertThrows(IllegalStateException.class, () -> restored.enableHistoryWindow(10, 0));
+    }
+
+    @Test
+    @DisplayName("Test a windowed engine keeps evicting and scoring identically after restore")
+    void testWindowedRestore() throws IOException {
+        Random random = new Random(34);
+        Path checkpointPath = directory.resolve("window.ckpt");
+        TransactionEngine engine = new TransactionEngine();
+        engine.enableHistoryWindow(40, 25);
+        for (int i = 0; i < 300; i++) {
+            engine.addTransactionAndDetectFraud(randomTransaction(random));
+            engine.advanceClock(i / 5);
+        }
+        // A retained duplicate id switches the sliding detector to scanning until it is evicted
+        engine.appendToHistory(engine.transactionHistory.transactionIdAt(30), 1, 1100, false);
+        engine.checkpoint(checkpointPath).join();
+
+        TransactionEngine restored = new TransactionEngine();
+        restored.restoreCheckpoint(checkpointPath);
+        assertEquals(engine.transactionHistory.size(), restored.transactionHistory.size());
+        assertSameState(engine, restored);
+        for (int i = 300; i < 600; i++) {
+            Transaction txn = randomTransaction(random);
+            assertEquals(engine.addTransactionAndDetectFraud(txn), restored.addTransactionAndDetectFraud(txn), "transaction " + i);
+            engine.advanceClock(i / 5);
+            restored.advanceClock(i / 5);
+            assertSameState(engine, restored);
+        }
+    }
+
+    @Test
+    @DisplayName("Test a windowed engine restored with a journal tail tracks its duplicate ids and re-accepts evicted ones")
+    void testWindowedRestoreWithJournalTail() throws IOException {
+        Path journalPath = directory.resolve("window.journal");
+        Path checkpointPath = directory.resolve("window-tail.ckpt");
+        TransactionEngine reference = new TransactionEngine();
+        reference.enableHistoryWindow(6, 0);
+        int[] amounts = {0, 1000, 1100, 1200, 900, 900, 1000, 1100, 1000, 1100, 1200, 900, 900};
+
+        try (TransactionJournal journal = TransactionJournal.open(journalPath)) {
+            TransactionEngine engine = new TransactionEngine();
+            engine.enableHistoryWindow(6, 0);
+            engine.attachJournal(journal);
+            for (int id = 1; id <= 12; id++) {
+                Transaction txn = createTransaction(id, id % 3, amounts[id], false);
+                assertEquals(reference.addTransactionAndDetectFraud(txn), engine.addTransactionAndDetectFraud(txn));
+                if (id == 8) {
+                    engine.checkpoint(checkpointPath).join();
+                }
+            }
+            // Journaled after the checkpoint, so the restored engine only sees it in the replayed tail
+            reference.appendToHistory(12, 1, 1500, false);
+            engine.appendToHistory(12, 1, 1500, false);
+        }
+
+        TransactionEngine restored = new TransactionEngine();
+        restored.restoreCheckpoint(checkpointPath);
+        try (TransactionJournal journal = TransactionJournal.open(journalPath)) {
+            restored.attachJournal(journal);
+            assertSameState(reference, restored);
+            assertFalse(restored.transactionIds.contains(3));
+            assertEquals(reference.slidingPatternDetector.pendingScanEvictions(),
+                    restored.slidingPatternDetector.pendingScanEvictions());
+            for (int id = 3; id <= 10; id++) {
+                Transaction txn = createTransaction(id, id % 3, 900 + 150 * (id % 3), id % 2 == 0);
+                assertEquals(reference.addTransactionAndDetectFraud(txn), restored.addTransactionAndDetectFraud(txn), "id " + id);
+                assertSameState(reference, restored);
+                if (id == 3) {
+                    assertTrue(restored.transactionIds.contains(3));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test a bounded duplicate index forgets the same ids after restore")
+    void testBoundedIdsRestore() throws IOException {
+        Path checkpointPath = directory.resolve("ids.ckpt");
+        TransactionEngine engine = new TransactionEngine(3);
+        for (int id = 1; id <= 5; id++) {
+            engine.addTransactionAndDetectFraud(createTransaction(id, 1, 100, false));
+        }
+        engine.checkpoint(checkpointPath).join();
+
+        TransactionEngine restored = new TransactionEngine();
+        restored.restoreCheckpoint(checkpointPath);
+        assertFalse(restored.transactionIds.contains(2));
+        assertTrue(restored.transactionIds.contains(3));
+        restored.addTransactionAndDetectFraud(createTransaction(6, 1, 100, false));
+        assertFalse(restored.transactionIds.contains(3));
+        assertTrue(restored.transactionIds.contains(4));
+    }
+
+    @Test
+    @DisplayName("Test a checkpoint stays point-in-time while a windowed engine keeps ingesting into its arrays")
+    void testCheckpointIsPointInTimeUnderIngest() throws IOException {
+        Random random = new Random(78);
+        Path checkpointPath = directory.resolve("busy.ckpt");
+        TransactionEngine engine = new TransactionEngine();
+        TransactionEngine reference = new TransactionEngine();
+        engine.enableHistoryWindow(5000, 0);
+        reference.enableHistoryWindow(5000, 0);
+        for (int i = 0; i < 20_000; i++) {
+            Transaction txn = createTransaction(i, random.nextInt(20), 900 + random.nextInt(400), random.nextBoolean());
+            engine.addTransactionAndDetectFraud(txn);
+            reference.addTransactionAndDetectFraud(txn);
+        }
+
+        CompletableFuture<Void> written = engine.checkpoint(checkpointPath);
+        for (int i = 20_000; i < 60_000; i++) {
+            engine.addTransactionAndDetectFraud(createTransaction(i, random.nextInt(40), 900 + random.nextInt(400), false));
+        }
+        written.join();
+
+        TransactionEngine restored = new TransactionEngine();
+        restored.restoreCheckpoint(checkpointPath);
+        assertSameState(reference, restored);
+        assertEquals(reference.transactionIds.size(), restored.transactionIds.size());
+        assertTrue(restored.transactionIds.contains(19_999));
+        assertFalse(restored.transactionIds.contains(20_000));
+        for (int i = 0; i < reference.transactionHistory.size(); i++) {
+            assertEquals(reference.transactionHistory.transactionIdAt(i), restored.transactionHistory.transactionIdAt(i));
+            assertEquals(reference.transactionHistory.isDebitAt(i), restored.transactionHistory.isDebitAt(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Test transactions accepted while a checkpoint is written are not in it")
+    void testCheckpointIsPointInTime() throws IOException {
+        Path checkpointPath = directory.resolve("snapshot.ckpt");
+        TransactionEngine engine = new TransactionEngine();
+        engine.addTransactionAndDetectFraud(createTransaction(1, 1, 100, false));
+        CompletableFuture<Void> written = engine.checkpoint(checkpointPath, true);
+        engine.addTransactionAndDetectFraud(createTransaction(2, 1, 300, false));
+        written.join();
+
+        TransactionEngine restored = new TransactionEngine();
+        restored.restoreCheckpoint(checkpointPath);
+        assertEquals(100, restored.getAverageTransactionAmountByAccount(1));
+        assertEquals(1, restored.transactionHistory.size());
+        assertFalse(restored.transactionIds.contains(2));
+    }
+
+    @Test
+    @DisplayName("Test amount quantile sketches carry over a checkpoint without history")
+    void testQuantileSketchesAreCheckpointed() throws IOException {
+        Path checkpointPath = directory.resolve("quantiles.ckpt");
+        TransactionEngine engine = new TransactionEngine();
+        engine.setRules(List.of(new PercentileDebitRule(0.99, 20)));
+        for (int i = 0; i < 50; i++) {
+            engine.addTransactionAndDetectFraud(createTransaction(i, 1, 100, false));
+        }
+        engine.checkpoint(checkpointPath).join();
+
+        TransactionEngine restored = new TransactionEngine();
+        restored.setRules(List.of(new PercentileDebitRule(0.99, 20)));
+        restored.restoreCheckpoint(checkpointPath);
+        assertEquals(50, restored.accountQuantiles.getCount(1));
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(50, 1, 100, true)));
+        assertEquals(0, restored.addTransactionAndDetectFraud(createTransaction(50, 1, 100, true)));
+        assertEquals(800, restored.addTransactionAndDetectFraud(createTransaction(51, 1, 900, true)));
+        assertEquals(0, restored.addTransactionAndDetectFraud(createTransaction(52, 2, 900, true)));
+    }
+
+    @Test
+    @DisplayName("Test corrupt checkpoints, non-fresh engines and short journals are rejected")
+    void testRejectsInvalidRestores() throws IOException {
+        Path checkpointPath = directory.resolve("bad.ckpt");
+        TransactionEngine engine = new TransactionEngine();
+        try (TransactionJournal journal = TransactionJournal.open(directory.resolve("long.bin"))) {
+            engine.attachJournal(journal);
+            engine.addTransactionAndDetectFraud(createTransaction(1, 1, 100, false));
+            engine.checkpoint(checkpointPath).join();
+        }
+
+        TransactionEngine busy = new TransactionEngine();
+        busy.addTransactionAndDetectFraud(createTransaction(9, 1, 100, false));
+        assertThrows(IllegalStateException.class, () -> busy.restoreCheckpoint(checkpointPath));
+
+        TransactionEngine restored = new TransactionEngine();
+        restored.restoreCheckpoint(checkpointPath);
+        try (TransactionJournal empty = TransactionJournal.open(directory.resolve("short.bin"))) {
+            assertThrows(IllegalStateException.class, () -> restored.attachJournal(empty));
+        }
+
+        byte[] bytes = Files.readAllBytes(checkpointPath);
+        bytes[20] ^= 1;
+        Files.write(checkpointPath, bytes);
+        assertThrows(IOException.class, () -> new TransactionEngine().restoreCheckpoint(checkpointPath));
+    }
+}
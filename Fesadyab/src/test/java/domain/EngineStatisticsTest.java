@@ -0,0 +1,106 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EngineStatisticsTest {
+
+    @Test
+    @DisplayName("Test statistics match the values the engine thread sees")
+    void testMatchesEngineValues() {
+        TransactionEngine engine = new TransactionEngine();
+        EngineStatistics statistics = engine.getStatistics();
+        engine.addTransactionAndDetectFraud(createTransaction(1, 7, 1100, false));
+        engine.addTransactionsAndDetectFraud(List.of(
+                createTransaction(2, 7, 1200, false),
+                createTransaction(3, 8, 50, true),
+                createTransaction(4, 7, 1300, true)));
+
+        AccountStatistics account = statistics.getAccountStatistics(7);
+        assertEquals(7, account.getAccountId());
+        assertEquals(3, account.getTransactionCount());
+        assertEquals(3600, account.getAmountSum());
+        assertEquals(1200, account.getAverageAmount());
+        assertEquals(4, account.getHistorySize());
+        assertEquals(100, account.getPatternAboveThreshold());
+        assertEquals(1200, statistics.getAverageTransactionAmount(7));
+        assertEquals(0, statistics.getAverageTransactionAmount(9));
+        assertEquals(4, statistics.getHistorySize());
+        assertEquals(engine.getTransactionPatternAboveThreshold(1000), statistics.getPatternAboveThreshold(1000));
+        assertThrows(IllegalArgumentException.class, () -> statistics.getPatternAboveThreshold(0));
+        engine.trackPatternThreshold(0);
+        assertEquals(engine.getTransactionPatternAboveThreshold(0), statistics.getPatternAboveThreshold(0));
+
+        engine.addTransactionAndDetectFraud(createTransaction(5, 9, 10, false));
+        assertTrue(statistics.getAccountStatistics(7).getVersion() > account.getVersion());
+    }
+
+    @Test
+    @DisplayName("Test a reader on another thread never sees a half applied batch")
+    void testReaderNeverSeesTornState() throws InterruptedException {
+        TransactionEngine engine = new TransactionEngine();
+        EngineStatistics statistics = engine.getStatistics();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            int id = 0;
+            for (int batch = 0; batch < 20_000; batch++) {
+                // Every batch adds as many transactions to account 1 as to a new account, so the aggregate
+                // tables keep growing while the batch has not reached history yet
+                Transaction[] txns = new Transaction[2 + 2 * (batch % 3)];
+                for (int i = 0; i < txns.length; i++) {
+                    txns[i] = createTransaction(id++, i % 2 == 0 ? 1 : 2 + batch, 10, false);
+                }
+                engine.addTransactionsAndDetectFraud(txns);
+            }
+        });
+        writer.start();
+
+        long lastVersion = -1;
+        long lastCount = -1;
+        while (writer.isAlive()) {
+            AccountStatistics account = statistics.getAccountStatistics(1);
+            if (account.getHistorySize() != 2 * account.getTransactionCount()) {
+                failure.set("history " + account.getHistorySize() + " for " + account.getTransactionCount() + " transactions");
+            }
+            if (account.getAmountSum() != 10 * account.getTransactionCount()) {
+                failure.set("sum " + account.getAmountSum() + " for " + account.getTransactionCount() + " transactions");
+            }
+            if (account.getVersion() < lastVersion || account.getTransactionCount() < lastCount) {
+                failure.set("statistics went backwards");
+            }
+            lastVersion = account.getVersion();
+            lastCount = account.getTransactionCount();
+            Thread.yield();
+        }
+        writer.join();
+
+        assertNull(failure.get());
+        assertEquals(2 * statistics.getAccountStatistics(1).getTransactionCount(), statistics.getHistorySize());
+    }
+
+    @Test
+    @DisplayName("Test a failing transaction does not leave readers waiting")
+    void testFailedWriteSectionIsClosed() {
+        TransactionEngine engine = new TransactionEngine();
+        engine.setRules(List.of(context -> {
+            if (context.getAmount() == 13) {
+                throw new IllegalStateException("rule failed");
+            }
+            return 0;
+        }));
+        engine.addTransactionAndDetectFraud(createTransaction(1, 1, 10, false));
+
+        assertThrows(IllegalStateException.class, () -> engine.addTransactionAndDetectFraud(createTransaction(2, 1, 13, false)));
+        assertThrows(IllegalStateException.class, () -> engine.addTransactionsAndDetectFraud(List.of(createTransaction(3, 1, 13, false))));
+        assertEquals(1, engine.getStatistics().getHistorySize());
+    }
+}
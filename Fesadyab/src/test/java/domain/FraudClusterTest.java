@@ -0,0 +1,210 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FraudClusterTest {
+
+    @TempDir
+    Path directory;
+
+    private List<Transaction> randomBatch(Random random, int size) {
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            batch.add(createTransaction(random.nextInt(6000), random.nextInt(500),
+                    800 + random.nextInt(800), random.nextInt(3) == 0));
+        }
+        return batch;
+    }
+
+    @Test
+    @DisplayName("Test cluster scores match a single engine, also across a node being added")
+    void testScoresMatchSingleEngineAcrossRebalance() throws Exception {
+        TransactionEngine engine = new TransactionEngine();
+        Random random = new Random(5);
+        try (FraudClusterNode first = new FraudClusterNode("127.0.0.1:0");
+             FraudClusterNode second = new FraudClusterNode("unix:" + directory.resolve("second.sock"));
+             FraudClusterNode third = new FraudClusterNode("127.0.0.1:0");
+             FraudClusterRouter router = new FraudClusterRouter("127.0.0.1:0", List.of(first.address(), second.address()));
+             FraudClusterClient client = new FraudClusterClient(router.address())) {
+            assertArrayEquals(new int[]{512, 512}, router.partitionCounts());
+
+            for (int round = 0; round < 20; round++) {
+                if (round == 10) {
+                    client.addNode(third.address());
+                    assertArrayEquals(new int[]{342, 341, 341}, router.partitionCounts());
+                }
+                List<Transaction> batch = randomBatch(random, 200);
+                assertArrayEquals(engine.addTransactionsAndDetectFraud(batch), client.addTransactionsAndDetectFraud(batch),
+                        "round " + round);
+            }
+
+            assertEquals(engine.accountAggregates.accountCount(),
+                    first.accountCount() + second.accountCount() + third.accountCount());
+            assertTrue(third.accountCount() > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Test the threshold pattern is evaluated across nodes in arrival order")
+    void testPatternIsEvaluatedAcrossNodes() throws Exception {
+        try (FraudClusterNode first = new FraudClusterNode("127.0.0.1:0");
+             FraudClusterNode second = new FraudClusterNode("127.0.0.1:0");
+             FraudClusterRouter router = new FraudClusterRouter("127.0.0.1:0", List.of(first.address(), second.address()));
+             FraudClusterClient client = new FraudClusterClient(router.address())) {
+            client.addTransactionAndDetectFraud(createTransaction(1, 1, 1100, false));
+            client.addTransactionAndDetectFraud(createTransaction(2, 2, 1200, false));
+            client.addTransactionAndDetectFraud(createTransaction(3, 3, 1300, false));
+
+            assertEquals(100, client.addTransactionAndDetectFraud(createTransaction(4, 4, 1300, false)));
+            assertEquals(0, client.addTransactionAndDetectFraud(createTransaction(4, 4, 1300, false)));
+        }
+    }
+
+    @Test
+    @DisplayName("Test a batch failing on one node commits no ids or pattern and can be retried")
+    void testFailedBatchCanBeRetried() throws Exception {
+        String secondAddress = "unix:" + directory.resolve("second.sock");
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            batch.add(createTransaction(i, i, 1000 + 100 * (i % 4), false));
+        }
+        TransactionEngine engine = new TransactionEngine();
+        int[] expected = engine.addTransactionsAndDetectFraud(batch);
+        assertTrue(Arrays.stream(expected).anyMatch(score -> score != 0));
+
+        FraudClusterNode second = new FraudClusterNode(secondAddress);
+        try (FraudClusterNode first = new FraudClusterNode("127.0.0.1:0");
+             FraudClusterRouter router = new FraudClusterRouter("127.0.0.1:0", List.of(first.address(), secondAddress));
+             FraudClusterClient client = new FraudClusterClient(router.address())) {
+            second.close();
+            assertThrows(IOException.class, () -> client.addTransactionsAndDetectFraud(batch));
+
+            try (FraudClusterNode restarted = new FraudClusterNode(secondAddress)) {
+                assertArrayEquals(expected, client.addTransactionsAndDetectFraud(batch));
+                assertArrayEquals(new int[batch.size()], client.addTransactionsAndDetectFraud(batch));
+                assertTrue(restarted.accountCount() > 0);
+            }
+        } finally {
+            second.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Test a retried batch counts the accounts of the node that did reply only once")
+    void testRetriedBatchIsAppliedOnce() throws Exception {
+        String secondAddress = "unix:" + directory.resolve("second.sock");
+        // Rebalancing hands the lower half of the partitions to the second node
+        int healthy = 0;
+        while (ClusterProtocol.partitionOf(healthy) < ClusterProtocol.PARTITIONS / 2) {
+            healthy++;
+        }
+        int failing = 0;
+        while (ClusterProtocol.partitionOf(failing) >= ClusterProtocol.PARTITIONS / 2) {
+            failing++;
+        }
+        List<Transaction> batch = List.of(
+                createTransaction(1, healthy, 100, false),
+                createTransaction(2, healthy, 250, true),
+                createTransaction(3, healthy, 1000, true),
+                createTransaction(4, failing, 50, false));
+        TransactionEngine engine = new TransactionEngine();
+        int[] expected = engine.addTransactionsAndDetectFraud(batch);
+        assertArrayEquals(new int[]{0, 50, 650, 0}, expected);
+
+        FraudClusterNode second = new FraudClusterNode(secondAddress);
+        try (FraudClusterNode first = new FraudClusterNode("127.0.0.1:0");
+             FraudClusterRouter router = new FraudClusterRouter("127.0.0.1:0", List.of(first.address(), secondAddress));
+             FraudClusterClient client = new FraudClusterClient(router.address())) {
+            second.close();
+            assertThrows(IOException.class, () -> client.addTransactionsAndDetectFraud(batch));
+            assertEquals(0, first.accountCount());
+
+            try (FraudClusterNode restarted = new FraudClusterNode(secondAddress)) {
+                assertArrayEquals(expected, client.addTransactionsAndDetectFraud(batch));
+                Transaction next = createTransaction(5, healthy, 900, true);
+                assertEquals(engine.addTransactionAndDetectFraud(next), client.addTransactionAndDetectFraud(next));
+                assertEquals(1, restarted.accountCount());
+            }
+        } finally {
+            second.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Test a bounded router forgets the oldest ids")
+    void testBoundedRouterForgetsOldestIds() throws Exception {
+        try (FraudClusterNode node = new FraudClusterNode("127.0.0.1:0");
+             FraudClusterRouter router = new FraudClusterRouter("127.0.0.1:0", List.of(node.address()), 2);
+             FraudClusterClient client = new FraudClusterClient(router.address())) {
+            client.addTransactionAndDetectFraud(createTransaction(1, 7, 100, false));
+            int score = client.addTransactionAndDetectFraud(createTransaction(2, 7, 1000, true));
+            assertTrue(score > 0);
+            assertEquals(0, client.addTransactionAndDetectFraud(createTransaction(2, 7, 1000, true)));
+
+            client.addTransactionAndDetectFraud(createTransaction(3, 7, 100, false));
+            client.addTransactionAndDetectFraud(createTransaction(4, 7, 100, false));
+            assertTrue(client.addTransactionAndDetectFraud(createTransaction(2, 7, 1000, true)) > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Test a node running in its own process over a Unix socket")
+    void testNodeInSeparateProcess() throws Exception {
+        Path socket = directory.resolve("node.sock");
+        Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), FraudClusterNode.class.getName(), "unix:" + socket)
+                .redirectErrorStream(true)
+                .start();
+        try {
+            BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            assertEquals("listening unix:" + socket, output.readLine());
+
+            try (FraudClusterRouter router = new FraudClusterRouter("unix:" + directory.resolve("router.sock"), List.of("unix:" + socket));
+                 FraudClusterClient client = new FraudClusterClient(router.address())) {
+                assertArrayEquals(new int[]{0, 0, 1000}, client.addTransactionsAndDetectFraud(Arrays.asList(
+                        createTransaction(1, 7, 500, false), createTransaction(2, 7, 500, true),
+                        createTransaction(3, 7, 2000, true))));
+            }
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+        assertFalse(Files.exists(socket));
+    }
+
+    @Test
+    @DisplayName("Test errors reach the client and leave the connection usable")
+    void testErrorsReachTheClient() throws Exception {
+        try (FraudClusterRouter router = new FraudClusterRouter("127.0.0.1:0", List.of());
+             FraudClusterClient client = new FraudClusterClient(router.address())) {
+            IOException error = assertThrows(IOException.class,
+                    () -> client.addTransactionAndDetectFraud(createTransaction(1, 1, 1, false)));
+            assertEquals("the cluster has no nodes", error.getMessage());
+
+            try (FraudClusterNode node = new FraudClusterNode("127.0.0.1:0")) {
+                client.addNode(node.address());
+                assertEquals(0, client.addTransactionAndDetectFraud(createTransaction(1, 1, 1, false)));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new FraudClusterNode("localhost"));
+    }
+}
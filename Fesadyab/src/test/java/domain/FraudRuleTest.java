@@ -0,0 +1,206 @@
+package domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FraudRuleTest {
+
+    private TransactionEngine engine;
+
+    @BeforeEach
+    void setup() {
+        engine = new TransactionEngine();
+    }
+
+    @Test
+    @DisplayName("Test default pipeline is the excessive debit rule followed by the threshold pattern rule")
+    void testDefaultPipeline() {
+        List<FraudRule> rules = engine.getRules();
+
+        assertEquals(2, rules.size());
+        assertEquals(ExcessiveDebitRule.class, rules.get(0).getClass());
+        assertEquals(ThresholdPatternRule.class, rules.get(1).getClass());
+    }
+
+    @Test
+    @DisplayName("Test the first non-zero score wins and later rules are skipped")
+    void testFirstNonZeroScoreWins() {
+        List<String> calls = new ArrayList<>();
+        engine.setRules(List.of(
+                context -> {
+                    calls.add("first");
+                    return context.getAmount() > 100 ? 7 : 0;
+                },
+                context -> {
+                    calls.add("second");
+                    return 9;
+                }
+        ));
+
+        assertEquals(7, engine.addTransactionAndDetectFraud(createTransaction(1, 1, 500, false)));
+        assertEquals(List.of("first"), calls);
+        assertEquals(9, engine.addTransactionAndDetectFraud(createTransaction(2, 1, 50, false)));
+        assertEquals(List.of("first", "first", "second"), calls);
+    }
+
+    @Test
+    @DisplayName("Test rules declaring accept notifications see every accepted transaction, in batches too, but not duplicates")
+    void testStatefulRulesSeeAcceptedTransactions() {
+        List<Integer> accepted = new ArrayList<>();
+        List<Integer> undeclared = new ArrayList<>();
+        engine.addRule(new FraudRule() {
+            @Override
+            public void declareState(FraudRuleState state) {
+                state.requireAcceptNotifications();
+            }
+
+            @Override
+            public int score(ScoringContext context) {
+                return 0;
+            }
+
+            @Override
+            public void onAccepted(ScoringContext context) {
+                accepted.add(context.getTransactionId());
+            }
+        });
+        engine.addRule(new FraudRule() {
+            @Override
+            public int score(ScoringContext context) {
+                return 0;
+            }
+
+            @Override
+            public void onAccepted(ScoringContext context) {
+                undeclared.add(context.getTransactionId());
+            }
+        });
+
+        engine.addTransactionAndDetectFraud(createTransaction(1, 1, 10, false));
+        engine.addTransactionAndDetectFraud(createTransaction(1, 1, 10, false));
+        engine.addTransactionsAndDetectFraud(List.of(createTransaction(3, 2, 10, false), createTransaction(2, 1, 10, false)));
+
+        assertEquals(List.of(1, 3, 2), accepted);
+        assertEquals(List.of(), undeclared);
+    }
+
+    @Test
+    @DisplayName("Test excessive debit rule with a custom multiplier")
+    void testExcessiveDebitRuleMultiplier() {
+        engine.setRules(List.of(new ExcessiveDebitRule(3)));
+        engine.addTransactionAndDetectFraud(createTransaction(1, 1, 100, false));
+
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(2, 1, 300, true)));
+        assertEquals(1, engine.addTransactionAndDetectFraud(createTransaction(3, 1, 601, true)));
+    }
+
+    @Test
+    @DisplayName("Test threshold pattern rule tracks its own threshold")
+    void testThresholdPatternRuleTracksThreshold() {
+        engine.setRules(List.of(new ThresholdPatternRule(5)));
+        engine.addTransactionAndDetectFraud(createTransaction(1, 1, 10, false));
+        engine.addTransactionAndDetectFraud(createTransaction(2, 1, 20, false));
+
+        assertEquals(10, engine.addTransactionAndDetectFraud(createTransaction(3, 1, 30, false)));
+        assertEquals(true, engine.patternDetector.isTracking(5));
+    }
+
+    @Test
+    @DisplayName("Test round amount rule")
+    void testRoundAmountRule() {
+        engine.setRules(List.of(new RoundAmountRule(1000, 5000, 42)));
+
+        assertEquals(42, engine.addTransactionAndDetectFraud(createTransaction(1, 1, 5000, false)));
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(2, 1, 4000, false)));
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(3, 1, 5001, false)));
+        assertThrows(IllegalArgumentException.class, () -> new RoundAmountRule(0, 1, 1));
+    }
+
+    @Test
+    @DisplayName("Test account age rule only flags large debits from young accounts")
+    void testAccountAgeRule() {
+        engine.setRules(List.of(new AccountAgeRule(2, 500)));
+
+        assertEquals(100, engine.addTransactionAndDetectFraud(createTransaction(1, 1, 600, true)));
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(2, 1, 600, false)));
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(3, 1, 600, true)));
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(4, 2, 500, true)));
+    }
+
+    @Test
+    @DisplayName("Test percentile debit rule flags debits above the account's earlier p99, which one outlier does not move")
+    void testPercentileDebitRule() {
+        engine.setRules(List.of(new PercentileDebitRule(0.99, 300)));
+        for (int i = 0; i < 300; i++) {
+            assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(i, 1, 100 + i % 10, true)));
+        }
+
+        assertEquals(99_891, engine.addTransactionAndDetectFraud(createTransaction(300, 1, 100_000, true)));
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(301, 1, 109, true)));
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(302, 1, 5000, false)));
+        assertEquals(4891, engine.addTransactionAndDetectFraud(createTransaction(303, 1, 5000, true)));
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(304, 2, 5000, true)));
+        assertThrows(IllegalArgumentException.class, () -> new PercentileDebitRule(0, 1));
+    }
+
+    @Test
+    @DisplayName("Test percentile debit rule scores a batch like single adds and is seeded from earlier history")
+    void testPercentileDebitRuleBatchAndSeeding() {
+        TransactionEngine single = new TransactionEngine();
+        List<Transaction> txns = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            txns.add(createTransaction(i, i % 3, (i * 37) % 1000, i % 2 == 0));
+            engine.appendToHistory(createTransaction(10_000 + i, i % 3, i, false));
+            single.appendToHistory(createTransaction(10_000 + i, i % 3, i, false));
+        }
+        engine.setRules(List.of(new PercentileDebitRule(0.9, 10)));
+        single.setRules(List.of(new PercentileDebitRule(0.9, 10)));
+        assertEquals(134, engine.accountQuantiles.getCount(0));
+
+        int[] scores = engine.addTransactionsAndDetectFraud(txns);
+        int flagged = 0;
+        for (int i = 0; i < txns.size(); i++) {
+            assertEquals(single.addTransactionAndDetectFraud(txns.get(i)), scores[i], "transaction " + i);
+            flagged += scores[i] > 0 ? 1 : 0;
+        }
+        assertTrue(flagged > 0);
+        assertEquals(268, engine.accountQuantiles.getCount(0));
+    }
+
+    @Test
+    @DisplayName("Test debit velocity rule flags a burst of debits by count and by total within its window")
+    void testDebitVelocityRule() {
+        engine.setRules(List.of(new DebitVelocityRule(60, 3, 1000)));
+        engine.advanceClock(100);
+
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(1, 1, 100, true)));
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(2, 1, 100, true)));
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(3, 1, 5000, false)));
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(4, 1, 100, true)));
+        assertEquals(100, engine.addTransactionAndDetectFraud(createTransaction(5, 1, 100, true)));
+        assertEquals(500, engine.addTransactionAndDetectFraud(createTransaction(6, 2, 1500, true)));
+
+        engine.advanceClock(200);
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(7, 1, 900, true)));
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(8, 2, 1000, true)));
+        assertThrows(IllegalArgumentException.class, () -> new DebitVelocityRule(0, 1, 1));
+    }
+
+    @Test
+    @DisplayName("Test reading an undeclared velocity window fails")
+    void testUndeclaredVelocityWindow() {
+        engine.setRules(List.of(context -> context.getDebitCountWithin(60)));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.addTransactionAndDetectFraud(createTransaction(1, 1, 100, true)));
+    }
+}
@@ -0,0 +1,172 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryWindowTest {
+
+    @Test
+    @DisplayName("Test count bound evicts once the window overflows")
+    void testCountBound() {
+        HistoryWindow window = new HistoryWindow(2, 0);
+        window.recordAppend(0);
+        window.recordAppend(0);
+        assertFalse(window.shouldEvict(0));
+
+        window.recordAppend(0);
+        assertTrue(window.shouldEvict(0));
+        window.recordEviction();
+        assertFalse(window.shouldEvict(0));
+    }
+
+    @Test
+    @DisplayName("Test age bound evicts entries at least maxAge old, across ring growth")
+    void testAgeBound() {
+        HistoryWindow window = new HistoryWindow(0, 10);
+        for (int time = 0; time < 100; time++) {
+            window.recordAppend(time);
+        }
+
+        assertFalse(window.shouldEvict(9));
+        for (int time = 0; time < 50; time++) {
+            assertTrue(window.shouldEvict(60));
+            window.recordEviction();
+        }
+        assertTrue(window.shouldEvict(60));
+        window.recordEviction();
+        assertFalse(window.shouldEvict(60));
+    }
+
+    @Test
+    @DisplayName("Test invalid bounds are rejected")
+    void testInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new HistoryWindow(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new HistoryWindow(-1, 5));
+        assertThrows(IllegalArgumentException.class, () -> new HistoryWindow(5, -1));
+    }
+
+    @Test
+    @DisplayName("Test windowed engine scores like an engine holding only the retained window")
+    void testWindowedEngineMatchesEngineBuiltFromWindow() {
+        TransactionEngine engine = new TransactionEngine();
+        int window = 25;
+        engine.enableHistoryWindow(window, 0);
+        List<Transaction> retained = new ArrayList<>();
+        Random random = new Random(17);
+
+        for (int i = 0; i < 1500; i++) {
+            Transaction txn = createTransaction(random.nextInt(120), random.nextInt(6),
+                    900 + 100 * random.nextInt(6), random.nextInt(3) == 0);
+            TransactionEngine reference = new TransactionEngine();
+            retained.forEach(reference::appendToHistory);
+            int expected = reference.addTransactionAndDetectFraud(txn);
+            if (reference.transactionHistory.size() > retained.size()) {
+                retained.add(txn);
+                if (retained.size() > window) {
+                    retained.remove(0);
+                }
+            }
+
+            assertEquals(expected, engine.addTransactionAndDetectFraud(txn), "transaction " + i);
+            assertEquals(retained.size(), engine.transactionHistory.size());
+        }
+        for (int accountId = 0; accountId < 6; accountId++) {
+            int account = accountId;
+            int expectedAverage = (int) retained.stream().filter(txn -> txn.getAccountId() == account)
+                    .mapToLong(Transaction::getAmount).average().orElse(0);
+            assertEquals(expectedAverage, engine.getAverageTransactionAmountByAccount(accountId));
+        }
+    }
+
+    @Test
+    @DisplayName("Test windowed engine expires transactions by logical time")
+    void testWindowedEngineExpiresByLogicalTime() {
+        TransactionEngine engine = new TransactionEngine();
+        engine.enableHistoryWindow(0, 10);
+        engine.advanceClock(1);
+        engine.addTransactionAndDetectFraud(createTransaction(1, 1, 100));
+        engine.advanceClock(5);
+        engine.addTransactionAndDetectFraud(createTransaction(2, 1, 300));
+        assertEquals(200, engine.getAverageTransactionAmountByAccount(1));
+
+        engine.advanceClock(11);
+        assertEquals(1, engine.transactionHistory.size());
+        assertEquals(300, engine.getAverageTransactionAmountByAccount(1));
+        assertEquals(0, engine.addTransactionAndDetectFraud(createTransaction(2, 1, 300)));
+        assertEquals(1, engine.transactionHistory.size());
+
+        engine.advanceClock(3);
+        engine.addTransactionAndDetectFraud(createTransaction(1, 1, 100));
+        assertEquals(2, engine.transactionHistory.size());
+        engine.advanceClock(21);
+        assertEquals(0, engine.transactionHistory.size());
+        assertEquals(0, engine.getAverageTransactionAmountByAccount(1));
+    }
+
+    @Test
+    @DisplayName("Test enabling a window trims existing history and can only be done once")
+    void testEnableHistoryWindowTrimsExistingHistory() {
+        TransactionEngine engine = new TransactionEngine();
+        engine.appendToHistory(createTransaction(1, 1, 100));
+        engine.appendToHistory(createTransaction(2, 1, 200));
+        engine.appendToHistory(createTransaction(3, 1, 600));
+        engine.enableHistoryWindow(2, 0);
+
+        assertEquals(2, engine.transactionHistory.size());
+        assertEquals(400, engine.getAverageTransactionAmountByAccount(1));
+        assertEquals(1, engine.addTransactionsAndDetectFraud(List.of(createTransaction(1, 1, 100))).length);
+        assertEquals(2, engine.transactionHistory.size());
+        assertThrows(IllegalStateException.class, () -> engine.enableHistoryWindow(5, 0));
+    }
+
+    @Test
+    @DisplayName("Test event timestamps advance the clock, stamp velocity buckets and expire windowed history")
+    void testEventTimestamps() {
+        TransactionEngine engine = new TransactionEngine();
+        engine.setRules(List.of(new DebitVelocityRule(60, 100, 250)));
+        engine.enableHistoryWindow(0, 100);
+        Transaction first = createTransaction(1, 1, 100, true);
+        first.setTimestamp(1000);
+        Transaction late = createTransaction(2, 1, 100, true);
+        late.setTimestamp(990);
+
+        assertEquals(0, engine.addTransactionAndDetectFraud(first));
+        assertEquals(1000, engine.clock);
+        assertEquals(0, engine.addTransactionAndDetectFraud(late));
+        assertEquals(1000, engine.clock);
+        assertEquals(50, engine.addTransactionAndDetectFraud(createTransaction(3, 1, 100, true)));
+
+        Transaction later = createTransaction(4, 1, 100, true);
+        later.setTimestamp(1100);
+        assertEquals(0, engine.addTransactionAndDetectFraud(later));
+        assertEquals(1, engine.transactionHistory.size());
+    }
+
+    @Test
+    @DisplayName("Test a rejected duplicate does not advance the clock or expire windowed history")
+    void testDuplicateDoesNotAdvanceClock() {
+        TransactionEngine engine = new TransactionEngine();
+        engine.setRules(List.of(new DebitVelocityRule(60, 100, 250)));
+        engine.enableHistoryWindow(0, 100);
+        Transaction first = createTransaction(1, 1, 200, true);
+        first.setTimestamp(1000);
+        Transaction duplicate = createTransaction(1, 1, 200, true);
+        duplicate.setTimestamp(5000);
+
+        assertEquals(0, engine.addTransactionAndDetectFraud(first));
+        assertEquals(0, engine.addTransactionAndDetectFraud(duplicate));
+        assertEquals(1000, engine.clock);
+        assertEquals(1, engine.transactionHistory.size());
+        assertEquals(150, engine.addTransactionAndDetectFraud(createTransaction(2, 1, 200, true)));
+    }
+}
@@ -0,0 +1,148 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MicroBatchingTransactionEngineTest {
+
+    @Test
+    @DisplayName("Test scores from a single producer match the wrapped engine fed in order")
+    void testScoresMatchEngine() throws Exception {
+        TransactionEngine reference = new TransactionEngine();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        List<Integer> expected = new ArrayList<>();
+        Random random = new Random(8);
+
+        MicroBatchingTransactionEngine batching = new MicroBatchingTransactionEngine(new TransactionEngine(), 32, 100_000, 64);
+        try (batching) {
+            for (int i = 0; i < 5000; i++) {
+                Transaction txn = createTransaction(random.nextInt(4000), random.nextInt(100),
+                        800 + random.nextInt(800), random.nextInt(3) == 0);
+                expected.add(reference.addTransactionAndDetectFraud(txn));
+                futures.add(batching.submit(txn));
+            }
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(expected.get(i), futures.get(i).get(0, TimeUnit.SECONDS), "transaction " + i);
+        }
+        assertTrue(batching.batchCount() > 0);
+        assertTrue(batching.averageBatchSize() >= 1 && batching.averageBatchSize() <= 32);
+    }
+
+    @Test
+    @DisplayName("Test concurrent producers get every future completed and every id accepted once")
+    void testConcurrentProducers() throws Exception {
+        TransactionEngine engine = new TransactionEngine();
+        int producers = 4;
+        int perProducer = 2000;
+        List<List<CompletableFuture<Integer>>> futures = new ArrayList<>();
+
+        try (MicroBatchingTransactionEngine batching = new MicroBatchingTransactionEngine(engine)) {
+            Thread[] threads = new Thread[producers];
+            for (int p = 0; p < producers; p++) {
+                List<CompletableFuture<Integer>> own = new ArrayList<>();
+                futures.add(own);
+                int producer = p;
+                threads[p] = new Thread(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        // Every id is submitted by two producers, only one copy may be accepted
+                        own.add(batching.submit(createTransaction(i + (producer / 2) * perProducer, producer, 100, false)));
+                    }
+                });
+                threads[p].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        for (List<CompletableFuture<Integer>> own : futures) {
+            for (CompletableFuture<Integer> future : own) {
+                assertTrue(future.isDone());
+                assertEquals(0, future.get());
+            }
+        }
+        assertEquals(2 * perProducer, engine.transactionIds.size());
+        long accepted = 0;
+        for (int p = 0; p < producers; p++) {
+            accepted += engine.accountAggregates.getCount(p);
+        }
+        assertEquals(2 * perProducer, accepted);
+    }
+
+    @Test
+    @DisplayName("Test a full batch is processed without waiting for the deadline")
+    void testFullBatchDoesNotWait() throws Exception {
+        try (MicroBatchingTransactionEngine batching =
+                     new MicroBatchingTransactionEngine(new TransactionEngine(), 4, TimeUnit.SECONDS.toNanos(60), 16)) {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(batching.submit(createTransaction(i, 1, 100, false)));
+            }
+            for (CompletableFuture<Integer> future : futures) {
+                assertEquals(0, future.get(10, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test a lone transaction completes once its batch deadline passes")
+    void testBatchClosesAtDeadline() throws Exception {
+        try (MicroBatchingTransactionEngine batching =
+                     new MicroBatchingTransactionEngine(new TransactionEngine(), 64, TimeUnit.MILLISECONDS.toNanos(20), 16)) {
+            CompletableFuture<Integer> future = batching.submit(createTransaction(1, 1, 100, false));
+            assertEquals(0, future.get(10, TimeUnit.SECONDS));
+            assertEquals(1, batching.batchCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Test an error thrown by the engine fails only its batch")
+    void testErrorFailsBatch() throws Exception {
+        TransactionEngine engine = new TransactionEngine();
+        engine.addRule(context -> {
+            if (context.getTransactionId() == 1) {
+                throw new AssertionError("rule broke");
+            }
+            return 0;
+        });
+        try (MicroBatchingTransactionEngine batching = new MicroBatchingTransactionEngine(engine, 8, 0, 16)) {
+            CompletableFuture<Integer> failed = batching.submit(createTransaction(1, 1, 100, false));
+            ExecutionException error = assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(AssertionError.class, error.getCause());
+
+            assertEquals(0, batching.submit(createTransaction(2, 1, 100, false)).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    @DisplayName("Test engine failures fail the batch's futures and closed engines reject submissions")
+    void testFailuresAndClose() throws Exception {
+        TransactionEngine engine = new TransactionEngine();
+        engine.setRules(List.of(context -> {
+            throw new IllegalStateException("rule failed");
+        }));
+        MicroBatchingTransactionEngine batching = new MicroBatchingTransactionEngine(engine, 8, 0, 16);
+        CompletableFuture<Integer> failed = batching.submit(createTransaction(1, 1, 100, false));
+        batching.close();
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> failed.get(0, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertThrows(IllegalStateException.class, () -> batching.submit(createTransaction(2, 1, 100, false)));
+        assertThrows(IllegalArgumentException.class, () -> new MicroBatchingTransactionEngine(engine, 0, 0, 16));
+    }
+}
@@ -0,0 +1,80 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MpscRingBufferTest {
+
+    @Test
+    @DisplayName("Test offer fails when full and poll returns elements in order")
+    void testOfferAndPollInOrder() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(2);
+
+        assertTrue(buffer.isEmpty());
+        assertTrue(buffer.offer(1));
+        assertTrue(buffer.offer(2));
+        assertFalse(buffer.offer(3));
+        assertEquals(1, buffer.poll());
+        assertTrue(buffer.offer(3));
+        assertEquals(2, buffer.poll());
+        assertEquals(3, buffer.poll());
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test capacity must be a positive power of two")
+    void testCapacityMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<>(0));
+        assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<>(6));
+        assertEquals(8, new MpscRingBuffer<>(8).capacity());
+    }
+
+    @Test
+    @DisplayName("Test elements from several producers arrive once each and in per-producer order")
+    void testElementsFromSeveralProducers() throws InterruptedException {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(16);
+        int producers = 4;
+        int perProducer = 50_000;
+
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(producer * perProducer + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        int[] next = new int[producers];
+        long sum = 0;
+        for (int received = 0; received < producers * perProducer; ) {
+            Integer value = buffer.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            int producer = value / perProducer;
+            assertEquals(next[producer]++, value % perProducer);
+            sum += value;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long total = (long) producers * perProducer;
+        assertEquals(total * (total - 1) / 2, sum);
+        assertNull(buffer.poll());
+    }
+}
@@ -0,0 +1,105 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PackedTransactionViewTest {
+
+    @Test
+    @DisplayName("Test the view exposes the packed transactions through the Transaction getters")
+    void testViewOverArray() {
+        PackedTransactionView view = PackedTransactionView.of(List.of(
+                createTransaction(1, -2, 300, true),
+                createTransaction(Integer.MAX_VALUE, 5, -40, false)));
+
+        assertEquals(2, view.size());
+        assertSame(view, view.moveTo(0));
+        assertEquals(1, view.getTransactionId());
+        assertEquals(-2, view.getAccountId());
+        assertEquals(300, view.getAmount());
+        assertTrue(view.isDebit());
+
+        view.moveTo(1);
+        assertEquals(Integer.MAX_VALUE, view.getTransactionId());
+        assertEquals(-40, view.getAmount());
+        assertFalse(view.isDebit());
+        Transaction txn = view.toTransaction();
+        assertEquals(5, txn.getAccountId());
+        assertEquals(-40, txn.getAmount());
+        assertThrows(IndexOutOfBoundsException.class, () -> view.moveTo(2));
+    }
+
+    @Test
+    @DisplayName("Test a buffer view starts at the buffer position and ignores later moves of it")
+    void testViewOverBuffer() {
+        Transaction txn = createTransaction(9, 8, 7, true);
+        LongBuffer buffer = LongBuffer.wrap(new long[]{0, 0, txn.packIdAndAccount(), txn.packAmountAndDebit()});
+        buffer.position(2);
+
+        PackedTransactionView view = new PackedTransactionView(buffer);
+        buffer.position(0);
+        assertEquals(1, view.size());
+        assertEquals(9, view.getTransactionId());
+        assertEquals(8, view.getAccountId());
+        assertEquals(7, view.getAmount());
+        assertTrue(view.isDebit());
+    }
+
+    @Test
+    @DisplayName("Test a slice of an array covers only its transactions")
+    void testArraySlice() {
+        long[] packed = new long[6];
+        for (int i = 0; i < 3; i++) {
+            Transaction txn = createTransaction(i, i, i * 10, false);
+            packed[2 * i] = txn.packIdAndAccount();
+            packed[2 * i + 1] = txn.packAmountAndDebit();
+        }
+
+        PackedTransactionView slice = new PackedTransactionView(packed, 1, 2);
+        assertEquals(2, slice.size());
+        assertEquals(1, slice.moveTo(0).getTransactionId());
+        assertEquals(20, slice.moveTo(1).getAmount());
+        assertThrows(IndexOutOfBoundsException.class, () -> new PackedTransactionView(packed, 2, 2));
+    }
+
+    @Test
+    @DisplayName("Test an odd number of longs is rejected")
+    void testOddLengthIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new PackedTransactionView(new long[3]));
+        assertThrows(IllegalArgumentException.class, () -> new PackedTransactionView(LongBuffer.allocate(1)));
+    }
+
+    @Test
+    @DisplayName("Test a packed batch read from a LongBuffer scores like sequential adds")
+    void testPackedBatchFromBuffer() {
+        TransactionEngine engine = new TransactionEngine();
+        TransactionEngine sequential = new TransactionEngine();
+        Random random = new Random(17);
+        LongBuffer buffer = LongBuffer.allocate(2 + 2 * 2000);
+        buffer.put(-1).put(-1);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Transaction txn = createTransaction(random.nextInt(1500), random.nextInt(30), 500 + random.nextInt(1000), random.nextBoolean());
+            expected.add(sequential.addTransactionAndDetectFraud(txn));
+            buffer.put(txn.packIdAndAccount()).put(txn.packAmountAndDebit());
+        }
+        buffer.position(2);
+
+        int[] scores = engine.addTransactionsAndDetectFraud(new PackedTransactionView(buffer));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), scores[i], "transaction " + i);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionedTransactionEngineTest {
+
+    @Test
+    @DisplayName("Test partitioned scores match a single engine fed in submission order")
+    void testScoresMatchSingleEngine() throws Exception {
+        TransactionEngine engine = new TransactionEngine();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        List<Integer> expected = new ArrayList<>();
+        Random random = new Random(3);
+
+        try (PartitionedTransactionEngine partitioned = new PartitionedTransactionEngine(4, 64)) {
+            for (int i = 0; i < 5000; i++) {
+                Transaction txn = createTransaction(random.nextInt(4000), random.nextInt(100),
+                        800 + random.nextInt(800), random.nextInt(3) == 0);
+                expected.add(engine.addTransactionAndDetectFraud(txn));
+                futures.add(partitioned.submit(txn));
+            }
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertTrue(futures.get(i).isDone());
+            assertEquals(expected.get(i), futures.get(i).get(0, TimeUnit.SECONDS), "transaction " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Test the threshold pattern is evaluated across shards in submission order")
+    void testPatternIsEvaluatedAcrossShards() throws Exception {
+        CompletableFuture<Integer> last;
+        try (PartitionedTransactionEngine partitioned = new PartitionedTransactionEngine(2, 8)) {
+            partitioned.submit(createTransaction(1, 1, 1100, false));
+            partitioned.submit(createTransaction(2, 2, 1200, false));
+            partitioned.submit(createTransaction(3, 3, 1300, false));
+            last = partitioned.submit(createTransaction(4, 4, 1300, false));
+        }
+
+        assertEquals(100, last.get());
+    }
+
+    @Test
+    @DisplayName("Test a failing stage fails its transaction, the ones behind it and later submissions")
+    void testStageFailureIsPropagated() throws Exception {
+        try (PartitionedTransactionEngine partitioned = new PartitionedTransactionEngine(2, 8)) {
+            CompletableFuture<Integer> first = partitioned.submit(createTransaction(1, 1, 100, false));
+            assertEquals(0, first.get(5, TimeUnit.SECONDS));
+
+            CompletableFuture<Integer> broken = partitioned.submit(null);
+            ExecutionException error = assertThrows(ExecutionException.class, () -> broken.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(NullPointerException.class, error.getCause());
+
+            IllegalStateException rejected = assertThrows(IllegalStateException.class,
+                    () -> partitioned.submit(createTransaction(2, 1, 100, false)));
+            assertSame(error.getCause(), rejected.getCause());
+        }
+    }
+
+    @Test
+    @DisplayName("Test submit after close is rejected")
+    void testSubmitAfterCloseIsRejected() throws InterruptedException {
+        PartitionedTransactionEngine partitioned = new PartitionedTransactionEngine(1, 2);
+        partitioned.close();
+
+        assertThrows(IllegalStateException.class, () -> partitioned.submit(createTransaction(1, 1, 1, false)));
+        assertThrows(IllegalArgumentException.class, () -> new PartitionedTransactionEngine(0, 2));
+    }
+}
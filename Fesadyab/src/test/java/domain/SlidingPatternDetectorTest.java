@@ -0,0 +1,114 @@
+package domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingPatternDetectorTest {
+
+    private TransactionHistory history;
+    private SlidingPatternDetector detector;
+
+    @BeforeEach
+    void setup() {
+        history = new ColumnarTransactionHistory();
+        detector = new SlidingPatternDetector(history);
+    }
+
+    private void append(int transactionId, int amount, boolean duplicateId) {
+        history.append(transactionId, 1, amount, false);
+        detector.append(amount, duplicateId);
+    }
+
+    private void evict() {
+        history.removeOldest();
+        detector.evictOldest();
+    }
+
+    @Test
+    @DisplayName("Test pattern follows the new oldest entry after eviction")
+    void testPatternFollowsOldestEntry() {
+        detector.track(1000);
+        append(1, 900, false);
+        append(2, 1100, false);
+        append(3, 1300, false);
+        assertEquals(200, detector.getPattern(1000));
+
+        evict();
+        assertEquals(200, detector.getPattern(1000));
+        append(4, 1300, false);
+        evict();
+        assertEquals(0, detector.getPattern(1000));
+        evict();
+        evict();
+        assertEquals(0, detector.getPattern(1000));
+    }
+
+    @Test
+    @DisplayName("Test random appends and evictions match the full scan, including retained duplicate ids")
+    void testMatchesFullScan() {
+        int[] thresholds = {0, 1000, 1150};
+        Random random = new Random(9);
+
+        for (int run = 0; run < 300; run++) {
+            setup();
+            detector.track(thresholds[0]);
+            append(random.nextInt(1000), 1000, false);
+            detector.track(thresholds[1]);
+            detector.track(thresholds[2]);
+            for (int step = 0; step < 40; step++) {
+                if (history.size() > 0 && random.nextInt(3) == 0) {
+                    evict();
+                } else {
+                    boolean duplicate = random.nextInt(20) == 0;
+                    int id = duplicate && history.size() > 0 ? history.transactionIdAt(0) : 1000 + step;
+                    append(id, 900 + 100 * random.nextInt(5), duplicate && history.size() > 0);
+                }
+                for (int threshold : thresholds) {
+                    assertEquals(TransactionEngine.getTransactionPatternAboveThreshold(history, threshold),
+                            detector.getPattern(threshold), "run " + run + " step " + step);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test a detector built over an existing history scans while its duplicate id is retained")
+    void testDetectorOverExistingHistory() {
+        int[] amounts = {1000, 1100, 1200, 1100, 1300, 1500};
+        for (int i = 0; i < amounts.length; i++) {
+            history.append(i == 3 ? 1 : i, 1, amounts[i], false);
+        }
+        detector = new SlidingPatternDetector(history);
+        detector.track(1000);
+
+        assertEquals(4, detector.pendingScanEvictions());
+        for (int step = 0; step < 10; step++) {
+            assertEquals(TransactionEngine.getTransactionPatternAboveThreshold(history, 1000), detector.getPattern(1000),
+                    "step " + step);
+            if (step % 2 == 0) {
+                evict();
+            } else {
+                append(100 + step, 1400 + 100 * step, false);
+            }
+        }
+        assertEquals(0, detector.pendingScanEvictions());
+    }
+
+    @Test
+    @DisplayName("Test untracked threshold is rejected")
+    void testUntrackedThresholdIsRejected() {
+        detector.track(5);
+
+        assertTrue(detector.isTracking(5));
+        assertFalse(detector.isTracking(6));
+        assertThrows(IllegalArgumentException.class, () -> detector.getPattern(6));
+    }
+}
@@ -0,0 +1,229 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpillingAccountAggregatesTest {
+
+    @TempDir
+    Path directory;
+
+    private long filesIn(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    @DisplayName("Test a small cache over many accounts matches in-memory aggregates")
+    void testMatchesInMemoryAggregates() {
+        AccountAggregates expected = new AccountAggregates();
+        try (SpillingAccountAggregates aggregates = new SpillingAccountAggregates(50, directory)) {
+            Random random = new Random(17);
+            for (int i = 0; i < 50_000; i++) {
+                int accountId = random.nextInt(10) < 8 ? random.nextInt(40) : random.nextInt(3000) - 1000;
+                int amount = random.nextInt(10_000) - 100;
+                expected.add(accountId, amount);
+                int slot = aggregates.slotFor(accountId);
+                aggregates.addAt(slot, amount, 1);
+            }
+
+            assertEquals(expected.accountCount(), aggregates.accountCount());
+            AccountAggregates copy = aggregates.copy();
+            assertEquals(expected.accountCount(), copy.accountCount());
+            for (int accountId = -1000; accountId < 2000; accountId++) {
+                assertEquals(expected.getSum(accountId), aggregates.getSum(accountId), "sum of " + accountId);
+                assertEquals(expected.getCount(accountId), aggregates.getCount(accountId), "count of " + accountId);
+                assertEquals(expected.getAverage(accountId), aggregates.getAverage(accountId), "average of " + accountId);
+                assertEquals(expected.getSum(accountId), copy.getSum(accountId), "copied sum of " + accountId);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test the least recently used account is evicted and faulted back with its aggregates")
+    void testLeastRecentlyUsedEviction() {
+        try (SpillingAccountAggregates aggregates = new SpillingAccountAggregates(2, directory)) {
+            aggregates.add(1, 100, 1);
+            aggregates.add(2, 200, 1);
+            aggregates.add(1, 10, 1);
+            aggregates.add(3, 300, 1);
+
+            AccountCacheMetrics metrics = aggregates.metrics();
+            assertEquals(1, metrics.getHits());
+            assertEquals(3, metrics.getMisses());
+            assertEquals(0, metrics.getFaults());
+            assertEquals(1, metrics.getEvictions());
+            assertEquals(2, metrics.getCachedAccounts());
+            assertEquals(1, metrics.getSpilledAccounts());
+            assertEquals(200, aggregates.getSum(2));
+
+            aggregates.add(2, 5, 1);
+            metrics = aggregates.metrics();
+            assertEquals(1, metrics.getFaults());
+            assertEquals(205, aggregates.getSum(2));
+            assertEquals(110, aggregates.getSum(1));
+            assertEquals(2, aggregates.getCount(1));
+            assertEquals(3, aggregates.accountCount());
+            assertEquals(0.2, metrics.getHitRate(), 1e-9);
+            assertEquals(metrics.getTotalFaultNanos(), metrics.getAverageFaultNanos());
+        }
+    }
+
+    @Test
+    @DisplayName("Test loading takes over every account without counting cache traffic")
+    void testLoad() {
+        AccountAggregates source = new AccountAggregates();
+        for (int accountId = 0; accountId < 100; accountId++) {
+            source.add(accountId, accountId * 3L, 2);
+        }
+
+        try (SpillingAccountAggregates aggregates = SpillingAccountAggregates.load(source, 10, directory)) {
+            assertEquals(100, aggregates.accountCount());
+            assertEquals(0, aggregates.metrics().getMisses());
+            assertEquals(90, aggregates.metrics().getSpilledAccounts());
+            assertEquals(21, aggregates.getSum(7));
+            assertEquals(148, aggregates.getAverage(99));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new SpillingAccountAggregates(0, directory));
+    }
+
+    @Test
+    @DisplayName("Test a snapshot is frozen and streams through the wire format into a new spill file")
+    void testSnapshotAndStreaming() throws IOException {
+        AccountAggregates expected = new AccountAggregates();
+        try (SpillingAccountAggregates aggregates = new SpillingAccountAggregates(5, directory)) {
+            for (int accountId = 0; accountId < 200; accountId++) {
+                expected.add(accountId, accountId * 10L, 1);
+                aggregates.add(accountId, accountId * 10L, 1);
+            }
+            aggregates.add(199, 1, 1);
+            expected.add(199, 1, 1);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (SpillingAccountAggregates snapshot = aggregates.snapshot()) {
+                aggregates.add(3, 1000, 1);
+                snapshot.writeTo(new DataOutputStream(bytes));
+                assertEquals(200, snapshot.accountCount());
+                assertEquals(30, snapshot.getSum(3));
+            }
+            assertEquals(1030, aggregates.getSum(3));
+            assertEquals(200, aggregates.accountCount());
+
+            try (SpillingAccountAggregates read = SpillingAccountAggregates.readFrom(
+                    new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 5, directory)) {
+                assertEquals(200, read.accountCount());
+                assertEquals(0, read.metrics().getCachedAccounts());
+                for (int accountId = 0; accountId < 200; accountId++) {
+                    assertEquals(expected.getSum(accountId), read.getSum(accountId), "sum of " + accountId);
+                    assertEquals(expected.getCount(accountId), read.getCount(accountId), "count of " + accountId);
+                }
+            }
+
+            bytes.reset();
+            aggregates.writeTo(new DataOutputStream(bytes));
+            AccountAggregates streamed = AccountAggregates.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            assertEquals(200, streamed.accountCount());
+            assertEquals(1030, streamed.getSum(3));
+            assertEquals(1991, streamed.getSum(199));
+        }
+    }
+
+    @Test
+    @DisplayName("Test the spill file grows past its initial capacity and leaves no file behind")
+    void testSpillFileGrowsAndIsDeleted() throws IOException {
+        AccountSpillFile spillFile = new AccountSpillFile(directory, 16);
+        for (int accountId = 0; accountId < 1000; accountId++) {
+            spillFile.put(accountId * 7919, accountId, 1);
+        }
+        spillFile.put(7919, 42, 2);
+
+        assertEquals(1000, spillFile.size());
+        assertEquals(2048, spillFile.capacity());
+        assertEquals(42, spillFile.sumAt(spillFile.find(7919)));
+        assertEquals(2, spillFile.countAt(spillFile.find(7919)));
+        assertEquals(999, spillFile.sumAt(spillFile.find(999 * 7919)));
+        assertEquals(-1, spillFile.find(5));
+
+        spillFile.close();
+        assertEquals(0, filesIn(directory));
+    }
+
+    @Test
+    @DisplayName("Test an engine with account spill scores like an in-memory one and survives recompute and checkpoint")
+    void testAccountSpill(@TempDir Path directory) throws Exception {
+        TransactionEngine engine = new TransactionEngine();
+        TransactionEngine inMemory = new TransactionEngine();
+        Random random = new Random(23);
+        for (int i = 0; i < 100; i++) {
+            Transaction txn = createTransaction(i, random.nextInt(500), random.nextInt(2000), random.nextBoolean());
+            engine.addTransactionAndDetectFraud(txn);
+            inMemory.addTransactionAndDetectFraud(txn);
+        }
+        engine.enableAccountSpill(20, directory);
+        assertThrows(IllegalStateException.class, () -> engine.enableAccountSpill(20, directory));
+        assertEquals(0, engine.getAccountCacheMetrics().getMisses());
+
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 100; i < 3000; i++) {
+            int accountId = random.nextInt(4) == 0 ? random.nextInt(500) : random.nextInt(10);
+            Transaction txn = createTransaction(i, accountId, random.nextInt(2000), random.nextBoolean());
+            if (i < 2000) {
+                assertEquals(inMemory.addTransactionAndDetectFraud(txn), engine.addTransactionAndDetectFraud(txn));
+            } else {
+                batch.add(txn);
+            }
+        }
+        assertArrayEquals(inMemory.addTransactionsAndDetectFraud(batch), engine.addTransactionsAndDetectFraud(batch));
+        AccountCacheMetrics metrics = engine.getStatistics().getAccountCacheMetrics();
+        assertTrue(metrics.getFaults() > 0);
+        assertTrue(metrics.getHitRate() > 0.5);
+        assertEquals(20, metrics.getCachedAccounts());
+
+        engine.recomputeAccountStatistics();
+        assertInstanceOf(SpillingAccountAggregates.class, engine.accountAggregates);
+        engine.checkpoint(directory.resolve("checkpoint")).get();
+        TransactionEngine restored = new TransactionEngine();
+        restored.restoreCheckpoint(directory.resolve("checkpoint"));
+        TransactionEngine spilledRestore = new TransactionEngine();
+        spilledRestore.enableAccountSpill(10, directory);
+        spilledRestore.restoreCheckpoint(directory.resolve("checkpoint"));
+        assertEquals(0, spilledRestore.getAccountCacheMetrics().getCachedAccounts());
+        for (int accountId = 0; accountId < 500; accountId++) {
+            int expected = inMemory.getAverageTransactionAmountByAccount(accountId);
+            assertEquals(expected, engine.getAverageTransactionAmountByAccount(accountId));
+            assertEquals(expected, restored.getAverageTransactionAmountByAccount(accountId));
+            assertEquals(expected, spilledRestore.getAverageTransactionAmountByAccount(accountId));
+        }
+        assertEquals(inMemory.accountAggregates.accountCount(), engine.accountAggregates.accountCount());
+        assertEquals(inMemory.accountAggregates.accountCount(), spilledRestore.accountAggregates.accountCount());
+        spilledRestore.close();
+
+        engine.disableAccountSpill();
+        assertNull(engine.getAccountCacheMetrics());
+        assertEquals(inMemory.getAverageTransactionAmountByAccount(3), engine.getAverageTransactionAmountByAccount(3));
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
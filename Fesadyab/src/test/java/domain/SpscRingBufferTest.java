@@ -0,0 +1,72 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpscRingBufferTest {
+
+    @Test
+    @DisplayName("Test offer fails when full and poll returns elements in order")
+    void testOfferAndPollInOrder() {
+        SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(2);
+
+        assertTrue(buffer.isEmpty());
+        assertTrue(buffer.offer(1));
+        assertTrue(buffer.offer(2));
+        assertFalse(buffer.offer(3));
+        assertEquals(1, buffer.poll());
+        assertTrue(buffer.offer(3));
+        assertEquals(2, buffer.poll());
+        assertEquals(3, buffer.poll());
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test capacity must be a positive power of two")
+    void testCapacityMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new SpscRingBuffer<>(0));
+        assertThrows(IllegalArgumentException.class, () -> new SpscRingBuffer<>(6));
+        assertEquals(8, new SpscRingBuffer<>(8).capacity());
+    }
+
+    @Test
+    @DisplayName("Test elements cross threads without loss or reordering")
+    void testElementsCrossThreads() throws InterruptedException {
+        SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(16);
+        int count = 200_000;
+        long[] received = new long[2];
+
+        Thread consumer = new Thread(() -> {
+            int next = 0;
+            while (next < count) {
+                Integer value = buffer.poll();
+                if (value == null) {
+                    Thread.yield();
+                    continue;
+                }
+                if (value != next) {
+                    received[1]++;
+                }
+                next++;
+                received[0] += value;
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < count; i++) {
+            while (!buffer.offer(i)) {
+                Thread.yield();
+            }
+        }
+        consumer.join();
+
+        assertEquals((long) count * (count - 1) / 2, received[0]);
+        assertEquals(0, received[1]);
+    }
+}
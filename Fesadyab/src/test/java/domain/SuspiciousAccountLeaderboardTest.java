@@ -0,0 +1,114 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuspiciousAccountLeaderboardTest {
+
+    @Test
+    @DisplayName("Test the leaderboard holds the accounts with the highest cumulative absolute score")
+    void testMatchesBruteForce() {
+        SuspiciousAccountLeaderboard leaderboard = new SuspiciousAccountLeaderboard(5);
+        Map<Integer, Long> totals = new HashMap<>();
+        Random random = new Random(2);
+
+        for (int i = 0; i < 20_000; i++) {
+            int accountId = random.nextInt(300);
+            int score = random.nextInt(5) == 0 ? 0 : random.nextInt(2001) - 1000;
+            leaderboard.record(accountId, score);
+            if (score != 0) {
+                totals.merge(accountId, (long) Math.abs(score), Long::sum);
+            }
+
+            if (i % 1000 == 999) {
+                List<SuspiciousAccount> top = leaderboard.snapshot();
+                List<Long> expected = totals.values().stream().sorted((a, b) -> Long.compare(b, a)).limit(5).toList();
+                assertEquals(expected, top.stream().map(SuspiciousAccount::getCumulativeScore).toList());
+                for (SuspiciousAccount account : top) {
+                    assertEquals(totals.get(account.getAccountId()), account.getCumulativeScore());
+                    assertEquals(account.getCumulativeScore(), leaderboard.cumulativeScore(account.getAccountId()));
+                }
+            }
+        }
+        assertEquals(0, leaderboard.cumulativeScore(-1));
+        assertThrows(IllegalArgumentException.class, () -> new SuspiciousAccountLeaderboard(0));
+    }
+
+    @Test
+    @DisplayName("Test snapshots taken on another thread are never torn")
+    void testSnapshotsFromAnotherThread() throws InterruptedException {
+        SuspiciousAccountLeaderboard leaderboard = new SuspiciousAccountLeaderboard(8);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            Random random = new Random(4);
+            for (int i = 0; i < 300_000; i++) {
+                leaderboard.record(random.nextInt(64), 1 + random.nextInt(100));
+            }
+        });
+        writer.start();
+
+        Map<Integer, Long> lastSeen = new HashMap<>();
+        while (writer.isAlive()) {
+            List<SuspiciousAccount> top = leaderboard.snapshot();
+            Set<Integer> accounts = new HashSet<>();
+            for (int i = 0; i < top.size(); i++) {
+                SuspiciousAccount account = top.get(i);
+                if (!accounts.add(account.getAccountId())) {
+                    failure.set("duplicate account " + account.getAccountId());
+                }
+                if (i > 0 && top.get(i - 1).getCumulativeScore() < account.getCumulativeScore()) {
+                    failure.set("snapshot not sorted: " + top);
+                }
+                Long previous = lastSeen.put(account.getAccountId(), account.getCumulativeScore());
+                if (previous != null && previous > account.getCumulativeScore()) {
+                    failure.set("score went backwards for account " + account.getAccountId());
+                }
+            }
+            assertTrue(top.size() <= 8);
+            Thread.yield();
+        }
+        writer.join();
+
+        assertNull(failure.get());
+        assertEquals(8, leaderboard.snapshot().size());
+    }
+
+    @Test
+    @DisplayName("Test the suspicious account leaderboard accumulates scores from single and batch adds")
+    void testTopSuspiciousAccounts() {
+        TransactionEngine engine = new TransactionEngine();
+        assertEquals(List.of(), engine.getTopSuspiciousAccounts());
+        engine.trackTopSuspiciousAccounts(2);
+        assertThrows(IllegalStateException.class, () -> engine.trackTopSuspiciousAccounts(3));
+
+        engine.addTransactionAndDetectFraud(createTransaction(1, 1, 100, false));
+        engine.addTransactionAndDetectFraud(createTransaction(2, 2, 100, false));
+        engine.addTransactionAndDetectFraud(createTransaction(3, 3, 100, false));
+        assertEquals(300, engine.addTransactionAndDetectFraud(createTransaction(4, 1, 500, true)));
+        engine.addTransactionsAndDetectFraud(List.of(
+                createTransaction(5, 2, 600, true),
+                createTransaction(6, 3, 250, true)));
+
+        List<SuspiciousAccount> top = engine.getTopSuspiciousAccounts();
+        assertEquals(2, top.size());
+        assertEquals(2, top.get(0).getAccountId());
+        assertEquals(400, top.get(0).getCumulativeScore());
+        assertEquals(1, top.get(1).getAccountId());
+        assertEquals(300, top.get(1).getCumulativeScore());
+        assertEquals(50, engine.getCumulativeFraudScore(3));
+    }
+}
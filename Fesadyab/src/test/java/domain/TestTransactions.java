@@ -0,0 +1,21 @@
+package domain;
+
+// Transaction fixtures shared by the tests
+final class TestTransactions {
+
+    private TestTransactions() {
+    }
+
+    static Transaction createTransaction(int transactionId, int accountId, int amount, boolean isDebit) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(transactionId);
+        transaction.setAccountId(accountId);
+        transaction.setAmount(amount);
+        transaction.setDebit(isDebit);
+        return transaction;
+    }
+
+    static Transaction createTransaction(int transactionId, int accountId, int amount) {
+        return createTransaction(transactionId, accountId, amount, false);
+    }
+}
@@ -0,0 +1,120 @@
+package domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThresholdPatternDetectorTest {
+
+    private ThresholdPatternDetector detector;
+    private TransactionHistory history;
+
+    @BeforeEach
+    void setup() {
+        detector = new ThresholdPatternDetector();
+        history = new ColumnarTransactionHistory();
+    }
+
+    private void append(int transactionId, int amount) {
+        history.append(transactionId, 1, amount, false);
+        detector.append(transactionId, amount);
+    }
+
+    @Test
+    @DisplayName("Test pattern is zero while history is empty")
+    void testPatternIsZeroForEmptyHistory() {
+        detector.track(100, history);
+
+        assertEquals(0, detector.getPattern(100));
+    }
+
+    @Test
+    @DisplayName("Test consistent pattern is detected incrementally")
+    void testConsistentPattern() {
+        detector.track(5, history);
+        append(1, 10);
+        append(2, 20);
+        assertEquals(10, detector.getPattern(5));
+        append(3, 30);
+
+        assertEquals(10, detector.getPattern(5));
+    }
+
+    @Test
+    @DisplayName("Test a broken pattern stays broken")
+    void testBrokenPatternStaysBroken() {
+        detector.track(5, history);
+        append(1, 10);
+        append(2, 20);
+        append(3, 50);
+        append(4, 30);
+
+        assertEquals(0, detector.getPattern(5));
+    }
+
+    @Test
+    @DisplayName("Test several thresholds match the full scan after every append")
+    void testThresholdsMatchFullScan() {
+        int[] thresholds = {0, 500, 1000, 1500};
+        Random random = new Random(5);
+
+        for (int run = 0; run < 200; run++) {
+            setup();
+            for (int threshold : thresholds) {
+                detector.track(threshold, history);
+            }
+            for (int i = 0; i < 30; i++) {
+                int amount = random.nextInt(4) == 0 ? 400 + random.nextInt(1500) : 1000 + 100 * random.nextInt(4);
+                append(random.nextInt(25), amount);
+                for (int threshold : thresholds) {
+                    assertEquals(TransactionEngine.getTransactionPatternAboveThreshold(history, threshold),
+                            detector.getPattern(threshold));
+                }
+            }
+        }
+        assertArrayEquals(thresholds, detector.thresholds());
+    }
+
+    @Test
+    @DisplayName("Test a threshold tracked late catches up with existing history")
+    void testLateTrackingCatchesUp() {
+        append(1, 1100);
+        append(2, 1300);
+        append(3, 1500);
+        detector.track(1000, history);
+        append(4, 1500);
+
+        assertEquals(200, detector.getPattern(1000));
+        assertTrue(detector.isTracking(1000));
+        assertFalse(detector.isTracking(999));
+    }
+
+    @Test
+    @DisplayName("Test untracked threshold is rejected")
+    void testUntrackedThresholdIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> detector.getPattern(7));
+    }
+
+    @Test
+    @DisplayName("Test tracked thresholds give the same pattern as the full scan")
+    void testTrackedThresholdMatchesFullScan() {
+        TransactionEngine engine = new TransactionEngine();
+        engine.trackPatternThreshold(5);
+        engine.appendToHistory(createTransaction(1, 1, 10));
+        engine.appendToHistory(createTransaction(2, 2, 20));
+        engine.appendToHistory(createTransaction(3, 3, 30));
+
+        assertEquals(10, engine.getTransactionPatternAboveThreshold(5));
+        assertEquals(TransactionEngine.getTransactionPatternAboveThreshold(engine.transactionHistory, 1000),
+                engine.getTransactionPatternAboveThreshold(1000));
+    }
+}
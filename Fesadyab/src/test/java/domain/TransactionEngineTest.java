@@ -6,8 +6,12 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
@@ -15,22 +19,10 @@ class TransactionEngineTest {
 
     private TransactionEngine engine;
 
-
-    private Transaction createTransaction(int transactionId, int accountId, int amount, boolean isDebit) {
-        Transaction transaction = new Transaction();
-        transaction.setTransactionId(transactionId);
-        transaction.setAccountId(accountId);
-        transaction.setAmount(amount);
-        transaction.setDebit(isDebit);
-        return transaction;
-    }
-
-    private Transaction createTransaction(int transactionId, int accountId, int amount) {
-        Transaction transaction = new Transaction();
-        transaction.setTransactionId(transactionId);
-        transaction.setAccountId(accountId);
-        transaction.setAmount(amount);
-        return transaction;
+    private void seedHistory(Transaction... transactions) {
+        for (Transaction transaction : transactions) {
+            engine.appendToHistory(transaction);
+        }
     }
 
     @BeforeEach
@@ -49,10 +41,10 @@ class TransactionEngineTest {
     @Test
     @DisplayName("Test get average transaction amount by account with no matching transactions")
     void testGetAverageTransactionAmountByAccountWithNoMatchingTransactions() {
-        engine.transactionHistory = new ArrayList<>(List.of(
+        seedHistory(
                 createTransaction(1, 2, 100),
                 createTransaction(2, 2, 150)
-        ));
+        );
         int result = engine.getAverageTransactionAmountByAccount(1);
 
         assertEquals(0, result);
@@ -61,9 +53,9 @@ class TransactionEngineTest {
     @Test
     @DisplayName("Test get average transaction amount by account with single matching transaction")
     void testGetAverageTransactionAmountByAccountWithSingleMatchingTransaction() {
-        engine.transactionHistory = new ArrayList<>(List.of(
+        seedHistory(
                 createTransaction(1, 1, 100)
-        ));
+        );
         int result = engine.getAverageTransactionAmountByAccount(1);
 
         assertEquals(100, result);
@@ -72,16 +64,40 @@ class TransactionEngineTest {
     @Test
     @DisplayName("Test get average transaction amount by account with multiple matching transactions")
     void testGetAverageTransactionAmountByAccountWithMultipleMatchingTransactions() {
-        engine.transactionHistory = new ArrayList<>(List.of(
+        seedHistory(
                 createTransaction(1, 1, 150),
                 createTransaction(2, 1, 250),
                 createTransaction(3, 1, 500)
-        ));
+        );
         int result = engine.getAverageTransactionAmountByAccount(1);
 
         assertEquals(300, result);
     }
 
+    @Test
+    @DisplayName("Test get average transaction amount by account does not overflow for large totals")
+    void testGetAverageTransactionAmountByAccountWithLargeTotals() {
+        seedHistory(
+                createTransaction(1, 1, Integer.MAX_VALUE),
+                createTransaction(2, 1, Integer.MAX_VALUE),
+                createTransaction(3, 1, Integer.MAX_VALUE - 2)
+        );
+        int result = engine.getAverageTransactionAmountByAccount(1);
+
+        assertEquals(Integer.MAX_VALUE - 1, result);
+    }
+
+    @Test
+    @DisplayName("Test get average transaction amount by account includes added transactions")
+    void testGetAverageTransactionAmountByAccountIncludesAddedTransactions() {
+        engine.addTransactionAndDetectFraud(createTransaction(1, 1, 100));
+        engine.addTransactionAndDetectFraud(createTransaction(2, 2, 900));
+        engine.addTransactionAndDetectFraud(createTransaction(3, 1, 300));
+
+        assertEquals(200, engine.getAverageTransactionAmountByAccount(1));
+        assertEquals(900, engine.getAverageTransactionAmountByAccount(2));
+    }
+
     @Test
     @DisplayName("Test detect fraudulent transaction when debit exceeds twice the average")
     void testDetectFraudulentTransactionWithDebitExceedsTwiceAverage() {
@@ -118,20 +134,44 @@ class TransactionEngineTest {
     @DisplayName("Test add transaction and detect fraud with duplicate transaction")
     void testAddTransactionAndDetectFraudWithDuplicateTransaction() {
         Transaction txn = createTransaction(1, 1, 100, true);
-        engine.transactionHistory.add(txn);
+        engine.appendToHistory(txn);
         int fraudScore = engine.addTransactionAndDetectFraud(txn);
 
         assertEquals(0, fraudScore);
         assertEquals(1, engine.transactionHistory.size());
     }
 
+    @Test
+    @DisplayName("Test add transaction and detect fraud rejects a replay with the same id")
+    void testAddTransactionAndDetectFraudRejectsReplayWithSameId() {
+        engine.addTransactionAndDetectFraud(createTransaction(1, 1, 100, true));
+        int fraudScore = engine.addTransactionAndDetectFraud(createTransaction(1, 2, 5000, true));
+
+        assertEquals(0, fraudScore);
+        assertEquals(1, engine.transactionHistory.size());
+    }
+
+    @Test
+    @DisplayName("Test add transaction and detect fraud with bounded duplicate index accepts forgotten ids")
+    void testAddTransactionAndDetectFraudWithBoundedDuplicateIndex() {
+        engine = new TransactionEngine(2);
+        engine.addTransactionAndDetectFraud(createTransaction(1, 1, 100));
+        engine.addTransactionAndDetectFraud(createTransaction(2, 1, 100));
+        engine.addTransactionAndDetectFraud(createTransaction(2, 1, 100));
+        engine.addTransactionAndDetectFraud(createTransaction(3, 1, 100));
+        engine.addTransactionAndDetectFraud(createTransaction(1, 1, 100));
+
+        assertEquals(4, engine.transactionHistory.size());
+        assertThrows(IllegalStateException.class, () -> engine.enableHistoryWindow(10, 0));
+    }
+
     @Test
     @DisplayName("Test add transaction and detect fraud with fraudulent transaction")
     void testAddTransactionAndDetectFraudWithFraudulentTransaction() {
-        engine.transactionHistory = new ArrayList<>(List.of(
+        seedHistory(
                 createTransaction(1, 1, 1000),
                 createTransaction(2, 1, 1500)
-        ));
+        );
 
         Transaction txn = createTransaction(3, 1, 2000, true);
         int fraudScore = engine.addTransactionAndDetectFraud(txn);
@@ -143,10 +183,10 @@ class TransactionEngineTest {
     @Test
     @DisplayName("Test add transaction and detect fraud with not fraudulent transaction, returns pattern")
     void testAddTransactionAndDetectFraudWithNotFraudulentTransaction() {
-        engine.transactionHistory = new ArrayList<>(List.of(
+        seedHistory(
                 createTransaction(1, 1, 150),
                 createTransaction(2, 1, 250)
-        ));
+        );
 
         Transaction txn = createTransaction(3, 1, 500, true);
         int fraudScore = engine.addTransactionAndDetectFraud(txn);
@@ -164,11 +204,11 @@ class TransactionEngineTest {
     @Test
     @DisplayName("Test transaction pattern with all transaction less that or equal to the threshold")
     public void testTransactionPatternWithAllTransactionsBelowTheThreshold() {
-        engine.transactionHistory = new ArrayList<>(List.of(
+        seedHistory(
                 createTransaction(1, 1, 100),
                 createTransaction(2, 2, 200),
                 createTransaction(3, 3, 300)
-        ));
+        );
 
         assertEquals(0, engine.getTransactionPatternAboveThreshold(300));
     }
@@ -176,24 +216,76 @@ class TransactionEngineTest {
     @Test
     @DisplayName("Test transaction pattern with no consistent pattern")
     public void testTransactionPatternWithNoPattern() {
-        engine.transactionHistory = new ArrayList<>(List.of(
+        seedHistory(
                 createTransaction(1, 1, 10),
                 createTransaction(2, 2, 20),
                 createTransaction(2, 2, 30),
                 createTransaction(3, 3, 50)
-        ));
+        );
         assertEquals(0, engine.getTransactionPatternAboveThreshold(5));
     }
 
     @Test
     @DisplayName("Test transaction pattern with a consistent pattern")
     public void testTransactionPatternWithConsistentPattern() {
-        engine.transactionHistory = new ArrayList<>(List.of(
+        seedHistory(
                 createTransaction(1, 1, 10),
                 createTransaction(2, 2, 20),
                 createTransaction(3, 3, 30)
-        ));
+        );
         assertEquals(10, engine.getTransactionPatternAboveThreshold(5));
     }
 
+    @Test
+    @DisplayName("Test batch add scores like sequential adds, including duplicates and the threshold pattern")
+    void testAddTransactionsAndDetectFraudMatchesSequentialAdds() {
+        Random random = new Random(42);
+        TransactionEngine sequential = new TransactionEngine();
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            transactions.add(createTransaction(random.nextInt(1500), random.nextInt(20),
+                    random.nextInt(3000), random.nextBoolean()));
+        }
+
+        int[] expected = new int[transactions.size()];
+        for (int i = 0; i < transactions.size(); i++) {
+            expected[i] = sequential.addTransactionAndDetectFraud(transactions.get(i));
+        }
+        int[] actual = new int[transactions.size()];
+        for (int from = 0; from < transactions.size(); from += 300) {
+            List<Transaction> batch = transactions.subList(from, Math.min(from + 300, transactions.size()));
+            System.arraycopy(engine.addTransactionsAndDetectFraud(batch), 0, actual, from, batch.size());
+        }
+
+        assertArrayEquals(expected, actual);
+        assertEquals(sequential.transactionHistory.size(), engine.transactionHistory.size());
+        for (int accountId = 0; accountId < 20; accountId++) {
+            assertEquals(sequential.getAverageTransactionAmountByAccount(accountId),
+                    engine.getAverageTransactionAmountByAccount(accountId));
+        }
+    }
+
+    @Test
+    @DisplayName("Test batch add scores excessive debits and patterns within one batch")
+    void testAddTransactionsAndDetectFraudWithinOneBatch() {
+        int[] scores = engine.addTransactionsAndDetectFraud(new Transaction[]{
+                createTransaction(1, 1, 1000),
+                createTransaction(2, 2, 1200),
+                createTransaction(1, 1, 9000, true),
+                createTransaction(3, 1, 1500),
+                createTransaction(4, 1, 4000, true),
+                createTransaction(5, 2, 1400)
+        });
+
+        assertArrayEquals(new int[]{0, 0, 0, 200, 1500, 0}, scores);
+        assertEquals(5, engine.transactionHistory.size());
+    }
+
+    @Test
+    @DisplayName("Test batch add with an empty batch")
+    void testAddTransactionsAndDetectFraudWithEmptyBatch() {
+        assertArrayEquals(new int[0], engine.addTransactionsAndDetectFraud(List.of()));
+        assertEquals(0, engine.transactionHistory.size());
+    }
+
 }
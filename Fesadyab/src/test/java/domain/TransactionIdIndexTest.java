@@ -0,0 +1,106 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionIdIndexTest {
+
+    @Test
+    @DisplayName("Test add reports whether the id was new")
+    void testAddReportsNewIds() {
+        TransactionIdIndex index = new TransactionIdIndex();
+
+        assertTrue(index.add(0));
+        assertTrue(index.add(-3));
+        assertFalse(index.add(0));
+        assertTrue(index.contains(-3));
+        assertFalse(index.contains(3));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    @DisplayName("Test unbounded index keeps every id across table growth")
+    void testUnboundedIndexKeepsEveryId() {
+        TransactionIdIndex index = new TransactionIdIndex();
+        for (int id = 0; id < 10_000; id++) {
+            index.add(id * 31);
+        }
+
+        assertFalse(index.isBounded());
+        assertEquals(10_000, index.size());
+        for (int id = 0; id < 10_000; id++) {
+            assertTrue(index.contains(id * 31));
+        }
+    }
+
+    @Test
+    @DisplayName("Test remove keeps colliding ids reachable")
+    void testRemoveKeepsOtherIdsReachable() {
+        TransactionIdIndex index = new TransactionIdIndex();
+        for (int id = 0; id < 1000; id++) {
+            index.add(id);
+        }
+        for (int id = 0; id < 1000; id += 2) {
+            assertTrue(index.remove(id));
+        }
+
+        assertFalse(index.remove(0));
+        assertEquals(500, index.size());
+        for (int id = 0; id < 1000; id++) {
+            assertEquals(id % 2 == 1, index.contains(id));
+        }
+    }
+
+    @Test
+    @DisplayName("Test bounded index forgets the oldest ids")
+    void testBoundedIndexForgetsOldestIds() {
+        TransactionIdIndex index = new TransactionIdIndex(3);
+        for (int id = 1; id <= 5; id++) {
+            index.add(id);
+        }
+
+        assertTrue(index.isBounded());
+        assertEquals(3, index.size());
+        assertFalse(index.contains(1));
+        assertFalse(index.contains(2));
+        assertTrue(index.contains(3));
+        assertTrue(index.contains(5));
+    }
+
+    @Test
+    @DisplayName("Test a filtered index answers exactly and rebuilds the filter as ids are forgotten")
+    void testFilteredIndex() {
+        TransactionIdIndex index = new TransactionIdIndex(100);
+        index.add(-1);
+        index.useFilter(new BloomFilter(200, 0.01));
+        assertTrue(index.contains(-1));
+
+        for (int id = 0; id < 10_000; id++) {
+            index.add(id);
+        }
+        for (int id = 0; id < 10_000; id++) {
+            assertEquals(id >= 9_900, index.contains(id));
+        }
+        BloomFilter filter = index.filter();
+        assertTrue(filter.getFillRatio() < 0.6, "fill ratio: " + filter.getFillRatio());
+        assertEquals(20_001, filter.getQueryCount());
+        assertEquals(20_001 - 101 - filter.getNegativeCount(), filter.getFalsePositiveCount());
+
+        assertFalse(index.add(9_999));
+        index.addAbsent(20_000);
+        assertTrue(index.contains(20_000));
+        assertFalse(index.contains(9_900));
+        assertEquals(20_004, filter.getQueryCount());
+    }
+
+    @Test
+    @DisplayName("Test negative bound is rejected")
+    void testNegativeBoundIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TransactionIdIndex(-1));
+    }
+}
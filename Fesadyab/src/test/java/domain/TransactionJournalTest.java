@@ -0,0 +1,120 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static domain.TestTransactions.createTransaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransactionJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private List<String> replay(TransactionJournal journal) {
+        List<String> records = new ArrayList<>();
+        journal.replay((transactionId, accountId, amount, isDebit) ->
+                records.add(transactionId + ":" + accountId + ":" + amount + ":" + isDebit));
+        return records;
+    }
+
+    @Test
+    @DisplayName("Test records survive reopening, across segment boundaries")
+    void testRecordsSurviveReopening() throws IOException {
+        Path path = directory.resolve("journal.bin");
+        try (TransactionJournal journal = TransactionJournal.open(path, 0, 3)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(i, i % 3, i * 100 - 300, i % 2 == 0);
+            }
+        }
+
+        try (TransactionJournal journal = TransactionJournal.open(path, 0, 3)) {
+            assertEquals(10, journal.size());
+            List<String> records = replay(journal);
+            assertEquals("0:0:-300:true", records.get(0));
+            assertEquals("9:0:600:false", records.get(9));
+
+            journal.append(10, 1, 5, true);
+            assertEquals(11, replay(journal).size());
+        }
+    }
+
+    @Test
+    @DisplayName("Test every-record sync policy and a journal with no records")
+    void testSyncEveryRecord() throws IOException {
+        Path path = directory.resolve("synced.bin");
+        try (TransactionJournal journal = TransactionJournal.open(path, 1)) {
+            assertEquals(0, journal.size());
+            assertEquals(List.of(), replay(journal));
+            journal.append(1, 2, 3, false);
+            journal.sync();
+        }
+
+        try (TransactionJournal journal = TransactionJournal.open(path)) {
+            assertEquals(List.of("1:2:3:false"), replay(journal));
+        }
+    }
+
+    @Test
+    @DisplayName("Test a torn final record is ignored on reopen")
+    void testTornRecordIsIgnored() throws IOException {
+        Path path = directory.resolve("torn.bin");
+        try (TransactionJournal journal = TransactionJournal.open(path, 0, 4)) {
+            journal.append(1, 1, 1, false);
+            journal.append(2, 2, 2, true);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ByteBuffer flags = ByteBuffer.allocate(4);
+            channel.write(flags, TransactionJournal.HEADER_BYTES + TransactionJournal.RECORD_BYTES + 12);
+        }
+
+        try (TransactionJournal journal = TransactionJournal.open(path, 0, 4)) {
+            assertEquals(List.of("1:1:1:false"), replay(journal));
+        }
+    }
+
+    @Test
+    @DisplayName("Test opening a file that is not a journal fails")
+    void testForeignFileIsRejected() throws IOException {
+        Path path = directory.resolve("foreign.bin");
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+
+        assertThrows(IOException.class, () -> TransactionJournal.open(path));
+        assertThrows(IllegalArgumentException.class, () -> TransactionJournal.open(path, -1));
+    }
+
+    @Test
+    @DisplayName("Test an engine attached to a journal is rebuilt from it after a restart")
+    void testAttachJournalRebuildsState(@TempDir Path directory) throws IOException {
+        TransactionEngine engine = new TransactionEngine();
+        Path path = directory.resolve("journal.bin");
+        try (TransactionJournal journal = TransactionJournal.open(path)) {
+            engine.attachJournal(journal);
+            engine.addTransactionAndDetectFraud(createTransaction(1, 1, 1100));
+            engine.addTransactionsAndDetectFraud(List.of(createTransaction(2, 1, 1300), createTransaction(2, 1, 1300)));
+            engine.addTransactionAndDetectFraud(createTransaction(3, 2, 700, true));
+            assertThrows(IllegalStateException.class, () -> engine.attachJournal(journal));
+        }
+
+        TransactionEngine restarted = new TransactionEngine();
+        try (TransactionJournal journal = TransactionJournal.open(path)) {
+            restarted.attachJournal(journal);
+            assertEquals(3, restarted.transactionHistory.size());
+            assertEquals(1200, restarted.getAverageTransactionAmountByAccount(1));
+            assertEquals(0, restarted.addTransactionAndDetectFraud(createTransaction(2, 1, 9000, true)));
+            assertEquals(200, restarted.addTransactionAndDetectFraud(createTransaction(4, 3, 1500)));
+            assertEquals(4, journal.size());
+        }
+    }
+}
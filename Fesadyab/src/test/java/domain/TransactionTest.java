@@ -59,4 +59,19 @@ public class TransactionTest {
         assertEquals(false, transaction.isDebit());
     }
 
+
+    @Test
+    @DisplayName("Test packing round-trips every field, including negative values")
+    public void testPackRoundTrip() {
+        transaction.setTransactionId(-7);
+        transaction.setAccountId(-1);
+        transaction.setAmount(Integer.MIN_VALUE);
+        transaction.setDebit(true);
+
+        Transaction unpacked = Transaction.unpack(transaction.packIdAndAccount(), transaction.packAmountAndDebit());
+        assertEquals(-7, unpacked.getTransactionId());
+        assertEquals(-1, unpacked.getAccountId());
+        assertEquals(Integer.MIN_VALUE, unpacked.getAmount());
+        assertTrue(unpacked.isDebit());
+    }
 }
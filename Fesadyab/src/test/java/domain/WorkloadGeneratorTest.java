@@ -0,0 +1,176 @@
+package domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkloadGeneratorTest {
+
+    private List<long[]> collect(WorkloadGenerator generator, long count) {
+        List<long[]> txns = new ArrayList<>();
+        generator.generate(count, (transactionId, accountId, amount, isDebit) ->
+                txns.add(new long[]{transactionId, accountId, amount, isDebit ? 1 : 0}));
+        return txns;
+    }
+
+    private WorkloadGenerator fullWorkload(long seed) {
+        return new WorkloadGenerator(seed)
+                .accounts(1000, 1.0)
+                .patterns(0.01, 4, 1000)
+                .excessiveDebits(0.01, 20)
+                .duplicates(0.05);
+    }
+
+    @Test
+    @DisplayName("Test the same seed reproduces the stream across generate calls")
+    void testSameSeedSameStream() {
+        List<long[]> once = collect(fullWorkload(7), 5000);
+        WorkloadGenerator split = fullWorkload(7);
+        List<long[]> twice = collect(split, 1234);
+        twice.addAll(collect(split, 5000 - 1234));
+        List<long[]> other = collect(fullWorkload(8), 5000);
+
+        for (int i = 0; i < once.size(); i++) {
+            assertEquals(List.of(once.get(i)[0], once.get(i)[1], once.get(i)[2], once.get(i)[3]),
+                    List.of(twice.get(i)[0], twice.get(i)[1], twice.get(i)[2], twice.get(i)[3]));
+        }
+        assertNotEquals(once.stream().mapToLong(txn -> txn[1] * 31 + txn[2]).sum(),
+                other.stream().mapToLong(txn -> txn[1] * 31 + txn[2]).sum());
+    }
+
+    @Test
+    @DisplayName("Test accounts follow the Zipf skew and debits the configured ratio")
+    void testDistributions() {
+        WorkloadGenerator generator = new WorkloadGenerator(1).accounts(1000, 1.0).debitRatio(0.3);
+        long[] counts = new long[1001];
+        long[] debits = new long[1];
+        generator.generate(200_000, (transactionId, accountId, amount, isDebit) -> {
+            counts[accountId]++;
+            if (isDebit) {
+                debits[0]++;
+            }
+            assertTrue(amount >= 1);
+        });
+
+        assertEquals(0, counts[0]);
+        // With exponent 1 account k is drawn in proportion to 1/k
+        assertEquals(2.0, (double) counts[1] / counts[2], 0.1);
+        assertEquals(10.0, (double) counts[1] / counts[10], 1.0);
+        assertEquals(0.3, debits[0] / 200_000.0, 0.01);
+
+        List<Long> uniform = new ArrayList<>();
+        new WorkloadGenerator(1).accounts(4, 0).generate(40_000,
+                (transactionId, accountId, amount, isDebit) -> uniform.add((long) accountId));
+        for (long accountId = 1; accountId <= 4; accountId++) {
+            long id = accountId;
+            assertEquals(10_000, uniform.stream().filter(a -> a == id).count(), 500);
+        }
+    }
+
+    @Test
+    @DisplayName("Test injected duplicates replay earlier transactions and are counted")
+    void testDuplicates() {
+        WorkloadGenerator generator = fullWorkload(3);
+        List<long[]> txns = collect(generator, 50_000);
+
+        Set<Long> seen = new HashSet<>();
+        Set<List<Long>> originals = new HashSet<>();
+        long duplicates = 0;
+        for (long[] txn : txns) {
+            List<Long> fields = List.of(txn[0], txn[1], txn[2], txn[3]);
+            if (!seen.add(txn[0])) {
+                duplicates++;
+                assertTrue(originals.contains(fields));
+            }
+            originals.add(fields);
+        }
+        assertEquals(generator.getDuplicateCount(), duplicates);
+        assertEquals(0.05, duplicates / 50_000.0, 0.005);
+        assertEquals(50_000, generator.getGeneratedCount());
+    }
+
+    @Test
+    @DisplayName("Test injected fraud is flagged when fed into the engine")
+    void testFeedFlagsInjectedFraud() {
+        // Background amounts stay below the threshold, so only injected runs form patterns
+        WorkloadGenerator generator = new WorkloadGenerator(5)
+                .accounts(50, 0.8)
+                .amounts(100, 0.3, 900)
+                .debitRatio(0)
+                .excessiveDebits(0.001, 20)
+                .duplicates(0.01);
+        TransactionEngine engine = new TransactionEngine();
+        long flagged = generator.feed(engine, 20_000, 1000);
+
+        assertEquals(generator.getExcessiveDebitCount(), flagged);
+        assertEquals(20_000 - generator.getDuplicateCount(), engine.transactionHistory.size());
+
+        TransactionEngine patternEngine = new TransactionEngine();
+        generator.patterns(1, 3, 1000).feed(patternEngine, 3, 7);
+        assertTrue(patternEngine.getTransactionPatternAboveThreshold(1000) > 0);
+        assertEquals(3, generator.getPatternTransactionCount());
+        assertEquals(1, generator.getPatternCount());
+    }
+
+    @Test
+    @DisplayName("Test which injected pattern transactions the threshold pattern rule flags")
+    void testPatternRunsAgainstThresholdPatternRule() {
+        TransactionEngine fresh = new TransactionEngine();
+        fresh.setRules(List.of(new ThresholdPatternRule(1000)));
+        assertEquals(1, new WorkloadGenerator(7).patterns(1, 3, 1000).feed(fresh, 3, 3));
+
+        // Background amounts stay below the threshold, so the anchor is the first background transaction
+        WorkloadGenerator generator = new WorkloadGenerator(7)
+                .accounts(50, 0.8)
+                .amounts(100, 0.3, 900)
+                .patterns(0.01, 5, 1000);
+        TransactionEngine engine = new TransactionEngine();
+        engine.setRules(List.of(new ThresholdPatternRule(1000)));
+        long flagged = generator.feed(engine, 20_000, 1000);
+
+        assertTrue(generator.getPatternCount() > 1);
+        assertEquals(1, flagged);
+    }
+
+    @Test
+    @DisplayName("Test the journal receives the generated stream")
+    void testWriteToJournal(@TempDir Path dir) throws IOException {
+        List<long[]> expected = collect(fullWorkload(11), 3000);
+        List<long[]> replayed = new ArrayList<>();
+        try (TransactionJournal journal = TransactionJournal.open(dir.resolve("workload.journal"))) {
+            fullWorkload(11).writeTo(journal, 3000);
+            journal.replay((transactionId, accountId, amount, isDebit) ->
+                    replayed.add(new long[]{transactionId, accountId, amount, isDebit ? 1 : 0}));
+        }
+
+        assertEquals(expected.size(), replayed.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i)[0], replayed.get(i)[0]);
+            assertEquals(expected.get(i)[2], replayed.get(i)[2]);
+        }
+    }
+
+    @Test
+    @DisplayName("Test invalid settings are rejected")
+    void testInvalidSettings() {
+        WorkloadGenerator generator = new WorkloadGenerator(0);
+        assertThrows(IllegalArgumentException.class, () -> generator.accounts(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> generator.debitRatio(1.5));
+        assertThrows(IllegalArgumentException.class, () -> generator.duplicates(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> generator.patterns(0.1, 1, 1000));
+        assertThrows(IllegalArgumentException.class, () -> generator.amounts(100, 1, 10));
+        assertThrows(IllegalArgumentException.class, () -> generator.feed(new TransactionEngine(), 10, 0));
+    }
+}